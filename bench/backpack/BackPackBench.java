@@ -0,0 +1,134 @@
+package backpack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import backpack.object.Equipment;
+import backpack.object.GemType;
+import dungeon.RandomArmor;
+import dungeon.RandomGear;
+import dungeon.RandomGem;
+
+/**
+ * Compares the placement checks of BackPack with the grid reference on the
+ * same half full bag : canPlace of a set of shapes, both rotations, at every
+ * cell, then a place and withdraw of an item at every cell where it fits.
+ *
+ * Run with {@code ant bench}.
+ */
+public final class BackPackBench {
+	private static final long SEED = 42;
+
+	private final BackPack bag = new BackPack();
+	private final GridBackPack reference = new GridBackPack();
+	private final List<Equipment> candidates = new ArrayList<>();
+
+	private BackPackBench() {
+		for (int i = 0; i < BackPack.MAX_LINE; i++) {
+			for (int j = 0; j < BackPack.MAX_COL; j++) {
+				bag.unlockSlot(i, j);
+				reference.unlockSlot(i, j);
+			}
+		}
+		var random = new Random(SEED);
+		// un sac à moitié plein, le même des deux côtés
+		var gems = RandomGem.values();
+		for (int placed = 0; placed < 8;) {
+			Equipment item = gems[random.nextInt(gems.length)].create();
+			int x = random.nextInt(BackPack.MAX_LINE);
+			int y = random.nextInt(BackPack.MAX_COL);
+			if (bag.canPlace(item, x, y, false)) {
+				bag.place(item, x, y, false);
+				reference.place(item, x, y, false);
+				placed++;
+			}
+		}
+		for (var gear : RandomGear.values()) {
+			if (candidates.size() < 7) {
+				candidates.add(gear.create());
+			}
+		}
+		for (var armor : RandomArmor.values()) {
+			candidates.add(armor.create());
+		}
+	}
+
+	private long canPlaceMasks() {
+		long accepted = 0;
+		for (var item : candidates) {
+			for (int r = 0; r < 2; r++) {
+				for (int x = 0; x < BackPack.MAX_LINE; x++) {
+					for (int y = 0; y < BackPack.MAX_COL; y++) {
+						if (bag.canPlace(item, x, y, r == 1)) {
+							accepted++;
+						}
+					}
+				}
+			}
+		}
+		return accepted;
+	}
+
+	private long canPlaceGrid() {
+		long accepted = 0;
+		for (var item : candidates) {
+			for (int r = 0; r < 2; r++) {
+				for (int x = 0; x < BackPack.MAX_LINE; x++) {
+					for (int y = 0; y < BackPack.MAX_COL; y++) {
+						if (reference.canPlace(item, x, y, r == 1)) {
+							accepted++;
+						}
+					}
+				}
+			}
+		}
+		return accepted;
+	}
+
+	private long placeWithdrawMasks() {
+		long bonus = 0;
+		var item = candidates.get(0);
+		for (int x = 0; x < BackPack.MAX_LINE; x++) {
+			for (int y = 0; y < BackPack.MAX_COL; y++) {
+				if (bag.canPlace(item, x, y, false)) {
+					bag.place(item, x, y, false);
+					bonus += bag.bonusDamage(item);
+					bag.withdraw(x, y);
+				}
+			}
+		}
+		return bonus;
+	}
+
+	private long placeWithdrawGrid() {
+		long bonus = 0;
+		var item = candidates.get(0);
+		for (int x = 0; x < BackPack.MAX_LINE; x++) {
+			for (int y = 0; y < BackPack.MAX_COL; y++) {
+				if (reference.canPlace(item, x, y, false)) {
+					reference.place(item, x, y, false);
+					bonus += reference.bonus(item, GemType.WEAPON_DAMAGE);
+					reference.withdraw(x, y);
+				}
+			}
+		}
+		return bonus;
+	}
+
+	public static void main(String[] args) {
+		var bench = new BackPackBench();
+		if (bench.canPlaceMasks() != bench.canPlaceGrid()
+				|| bench.placeWithdrawMasks() != bench.placeWithdrawGrid()) {
+			throw new AssertionError("les deux sacs ne donnent pas les mêmes résultats");
+		}
+		long checks = bench.candidates.size() * 2L * BackPack.MAX_LINE * BackPack.MAX_COL;
+		double grid = Bench.run("canPlace grille", checks, bench::canPlaceGrid);
+		double masks = Bench.run("canPlace masques", checks, bench::canPlaceMasks);
+		System.out.printf("canPlace : %.1f fois plus rapide%n", grid / masks);
+		long cells = BackPack.MAX_LINE * BackPack.MAX_COL;
+		grid = Bench.run("place + bonus + withdraw grille", cells, bench::placeWithdrawGrid);
+		masks = Bench.run("place + bonus + withdraw masques", cells, bench::placeWithdrawMasks);
+		System.out.printf("place + withdraw : %.1f fois plus rapide%n", grid / masks);
+	}
+}
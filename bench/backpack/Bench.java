@@ -0,0 +1,74 @@
+package backpack;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.LongSupplier;
+
+/**
+ * A small harness in the way of JMH : warmup iterations, then measured
+ * iterations of a fixed time, in one JVM. Each batch returns a number which
+ * is kept so the JIT can't drop the work. The allocated bytes are read from
+ * the thread counters of HotSpot.
+ */
+final class Bench {
+	private static final long WARMUP_NANOS = 500_000_000L;
+	private static final int WARMUPS = 5;
+	private static final long ITERATION_NANOS = 1_000_000_000L;
+	private static final int ITERATIONS = 5;
+	static volatile long sink;
+
+	private Bench() {
+	}
+
+	/**
+	 * Run a batch until the time of each iteration is over and print the time
+	 * and the bytes allocated by operation
+	 *
+	 * @param String       name name printed
+	 * @param long         operations operations done by one batch
+	 * @param LongSupplier batch work to measure
+	 * @return double mean time of one operation in nanoseconds
+	 */
+	static double run(String name, long operations, LongSupplier batch) {
+		for (int i = 0; i < WARMUPS; i++) {
+			iteration(batch, WARMUP_NANOS);
+		}
+		double best = Double.MAX_VALUE;
+		double total = 0;
+		long bytes = 0;
+		long batches = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			long before = allocated();
+			long start = System.nanoTime();
+			long done = iteration(batch, ITERATION_NANOS);
+			double perOp = (double) (System.nanoTime() - start) / (done * operations);
+			bytes += allocated() - before;
+			batches += done;
+			best = Math.min(best, perOp);
+			total += perOp;
+		}
+		double mean = total / ITERATIONS;
+		System.out.printf("%-40s %10.2f ns/op (min %.2f) %8.2f B/op%n", name, mean, best,
+				(double) bytes / (batches * operations));
+		return mean;
+	}
+
+	private static long iteration(LongSupplier batch, long nanos) {
+		long end = System.nanoTime() + nanos;
+		long done = 0;
+		long result = 0;
+		do {
+			result += batch.getAsLong();
+			done++;
+		} while (System.nanoTime() < end);
+		sink += result;
+		return done;
+	}
+
+	private static long allocated() {
+		var threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean hotspot) {
+			return hotspot.getCurrentThreadAllocatedBytes();
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,127 @@
+package backpack;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+
+import backpack.object.Equipment;
+import dungeon.RandomArmor;
+import dungeon.RandomCurse;
+import dungeon.RandomGear;
+import dungeon.RandomGem;
+
+/**
+ * Times the repack search on full 5x7 bags, in sequence and in parallel,
+ * against the time of one frame at 60 frames per second. The long search has
+ * 5 s, the search in one frame has a 15 ms budget and its score is compared
+ * with the score of the long search on the same bag.
+ *
+ * Run with {@code ant bench}.
+ */
+public final class RepackBench {
+	private static final long SEED = 42;
+	private static final int BAGS = 20;
+	private static final int WARMUPS = 5;
+	private static final int RUNS = 3;
+	private static final double FRAME_MILLIS = 1000.0 / 60;
+	private static final Duration FRAME_BUDGET = Duration.ofMillis(15);
+	private static final Duration LONG_BUDGET = Duration.ofSeconds(5);
+
+	private RepackBench() {
+	}
+
+	/**
+	 * A bag with every cell unlocked, a curse and random weapons, shields,
+	 * armors and gems dropped until about three quarters of it is taken
+	 */
+	private static BackPack bag(Random random) {
+		var bag = new BackPack();
+		for (int i = 0; i < BackPack.MAX_LINE; i++) {
+			for (int j = 0; j < BackPack.MAX_COL; j++) {
+				bag.unlockSlot(i, j);
+			}
+		}
+		bag.placeCurse(RandomCurse.TINY_DAMAGE.createCurse(), random.nextInt(BackPack.MAX_LINE),
+				random.nextInt(BackPack.MAX_COL));
+		var gears = RandomGear.values();
+		var gems = RandomGem.values();
+		var armors = RandomArmor.values();
+		for (int tries = 0; tries < 500 && Long.bitCount(bag.freeCells()) > 9; tries++) {
+			Equipment item = switch (random.nextInt(4)) {
+			case 0, 1 -> gears[random.nextInt(gears.length)].create();
+			case 2 -> gems[random.nextInt(gems.length)].create();
+			default -> armors[random.nextInt(armors.length)].create();
+			};
+			var placement = bag.bestPlacement(item, PlacementObjective.COMPACTNESS);
+			if (placement != null) {
+				bag.place(item, placement.line(), placement.col(), placement.rotation());
+			}
+		}
+		return bag;
+	}
+
+	/**
+	 * Run the search on every bag and print the times, the searches cut by the
+	 * budget and the runs reaching the score of the long search
+	 */
+	private static void measure(String name, BackPack[] bags, Repacker repacker, int[] reference) {
+		for (int i = 0; i < WARMUPS; i++) {
+			for (var bag : bags) {
+				repacker.search(bag);
+			}
+		}
+		var millis = new double[bags.length * RUNS];
+		int cut = 0;
+		int reached = 0;
+		int k = 0;
+		for (int i = 0; i < RUNS; i++) {
+			for (int b = 0; b < bags.length; b++) {
+				long start = System.nanoTime();
+				var found = repacker.search(bags[b]);
+				millis[k++] = (System.nanoTime() - start) / 1e6;
+				if (found != null && !found.complete()) {
+					cut++;
+				}
+				if (reference != null && score(found) == reference[b]) {
+					reached++;
+				}
+			}
+		}
+		Arrays.sort(millis);
+		int late = 0;
+		for (double m : millis) {
+			if (m > FRAME_MILLIS) {
+				late++;
+			}
+		}
+		System.out.printf("%-28s médiane %7.2f ms, max %7.2f ms, %3d/%d au-delà d'une image, %3d coupées", name,
+				millis[millis.length / 2], millis[millis.length - 1], late, millis.length, cut);
+		System.out.println(reference == null ? "" : ", " + reached + " au score de la recherche longue");
+	}
+
+	private static int score(Repacker.Arrangement found) {
+		return found == null ? Integer.MIN_VALUE : found.score();
+	}
+
+	public static void main(String[] args) {
+		var random = new Random(SEED);
+		var bags = new BackPack[BAGS];
+		int items = 0;
+		for (int i = 0; i < BAGS; i++) {
+			bags[i] = bag(random);
+			items += bags[i].items().size();
+		}
+		System.out.printf("%d sacs 5x7, %.1f items en moyenne, une image = %.1f ms%n", BAGS, (double) items / BAGS,
+				FRAME_MILLIS);
+		// le score de la recherche longue sert de référence
+		var longSearch = new Repacker(LONG_BUDGET, false);
+		var reference = new int[BAGS];
+		for (int i = 0; i < BAGS; i++) {
+			reference[i] = score(longSearch.search(bags[i]));
+		}
+		measure("longue séquentiel", bags, longSearch, null);
+		measure("longue parallèle", bags, new Repacker(LONG_BUDGET, true), null);
+		measure("une image séquentiel", bags, new Repacker(FRAME_BUDGET, false), reference);
+		measure("une image parallèle", bags, new Repacker(FRAME_BUDGET, true), reference);
+	}
+}
@@ -1,7 +1,10 @@
 package backpack;
 
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -14,22 +17,33 @@ import backpack.object.GemType;
 import backpack.object.Gold;
 
 public class BackPack {
-	private static final int MAX_LINE = 5;
-	private static final int MAX_COL = 7;
+	static final int MAX_LINE = 5;
+	static final int MAX_COL = 7;
 	private int line;
 	private int col;
+	private static final long ROW_MASK = (1L << MAX_COL) - 1;
+	private static final long FIRST_COL = 0b0000001_0000001_0000001_0000001_0000001L;
+	private static final long LAST_COL = FIRST_COL << (MAX_COL - 1);
+	private static final long ALL_CELLS = (1L << (MAX_LINE * MAX_COL)) - 1;
 	private final Equipment[][] grid = new Equipment[MAX_LINE][MAX_COL];
-	private final boolean[][] unlocked = new boolean[MAX_LINE][MAX_COL];
-	private final Map<Equipment, Boolean> rotations = new HashMap<>();
+	// une case (x, y) correspond au bit x * MAX_COL + y, le sac tient dans 35 bits
+	private long occupied;
+	private long unlocked;
+	// index item -> cases occupées, par identité comme la grille
+	private final Map<Equipment, Long> footprints = new IdentityHashMap<>();
+	private final Map<Equipment, Boolean> rotations = new IdentityHashMap<>();
+	private static final GemType[] GEM_TYPES = GemType.values();
+	// bonus des gemmes reçus par chaque item, indexés par GemType.ordinal(),
+	// tenus à jour par fill et withdraw autour des cases qui changent
+	private final Map<Equipment, int[]> bonuses = new IdentityHashMap<>();
+	// tableaux des items retirés, repris par les items posés ensuite
+	private final ArrayList<int[]> freeLedgers = new ArrayList<>();
+	private int version; // change à chaque modification visible du sac
 
 	public BackPack() {
 		line = 3;
 		col = 3;
-		for (int i = 0; i < 3; i++) {
-			for (int j = 0; j < 3; j++) {
-				unlocked[i][j] = true;
-			}
-		}
+		unlocked = boxMask(3, 3);
 	}
 
 	public int maxLine() {
@@ -68,9 +82,105 @@ public class BackPack {
 		return x >= 0 && y >= 0 && x < MAX_LINE && y < MAX_COL;
 	}
 
+	/**
+	 * Give the unlocked cells, one bit per cell like the footprints
+	 *
+	 * @return long mask of the unlocked cells
+	 */
+	public long unlockedMask() {
+		return unlocked;
+	}
+
+	/**
+	 * Create an empty bag with the given unlocked cells, to load a save
+	 *
+	 * @param long unlocked mask of the unlocked cells
+	 * @return BackPack the empty bag
+	 */
+	public static BackPack withUnlocked(long unlocked) {
+		if (unlocked == 0 || (unlocked & ~ALL_CELLS) != 0) {
+			throw new IllegalArgumentException("cases débloquées invalides");
+		}
+		var bag = new BackPack();
+		bag.unlocked = unlocked;
+		bag.updateDimensions();
+		return bag;
+	}
+
+	/**
+	 * Put back an item on the cells it had, to load a save
+	 *
+	 * @param Equipment item     the item
+	 * @param long      mask     cells of the item, as given by footprint
+	 * @param boolean   rotation rotation of the item
+	 */
+	public void restore(Equipment item, long mask, boolean rotation) {
+		Objects.requireNonNull(item);
+		if (item.getClass() == Curse.class) {
+			rotation = false;
+		}
+		// coin de la boîte : premier bit du masque moins la première case de la forme
+		int anchor = Long.numberOfTrailingZeros(mask) - Long.numberOfTrailingZeros(item.shape().mask(rotation));
+		if (mask == 0 || anchor < 0) {
+			throw new IllegalArgumentException("cases invalides pour " + item);
+		}
+		int x = anchor / MAX_COL;
+		int y = anchor % MAX_COL;
+		// mêmes règles qu'à la pose : la forme décalée doit redonner le masque exact
+		long expected = switch (item) {
+		case Curse curse when item.getClass() == Curse.class -> curseMask(curse, x, y);
+		// addGold prend la première case vide du rectangle, même bloquée
+		case Gold _ -> x < line && y < col && (occupied & bit(x, y)) == 0 ? bit(x, y) : 0;
+		default -> placementMask(item, x, y, rotation);
+		};
+		if (expected != mask) {
+			throw new IllegalArgumentException("cases invalides pour " + item);
+		}
+		fill(item, mask);
+		rotations.put(item, rotation);
+	}
+
+	/**
+	 * Give a number changed by every change of the cells, the items or the gold
+	 * of the bag, to know if a drawing of the bag is out of date
+	 *
+	 * @return int version of the bag
+	 */
+	public int version() {
+		return version;
+	}
+
 	public boolean isUnlocked(int x, int y) {
-		return rangeMax(x, y) && unlocked[x][y];
+		return rangeMax(x, y) && (unlocked & bit(x, y)) != 0;
+	}
+
+	/**
+	 * Give the bit of a cell in the occupancy masks
+	 *
+	 * @param x Position line
+	 * @param y Position column
+	 * @return long mask with only the cell set
+	 */
+	private static long bit(int x, int y) {
+		return 1L << (x * MAX_COL + y);
+	}
+
+	/**
+	 * Give the mask of a full rectangle anchored at (0, 0)
+	 *
+	 * @param rows number of lines
+	 * @param cols number of columns
+	 * @return long mask of the rectangle
+	 */
+	static long boxMask(int rows, int cols) {
+		long row = (1L << cols) - 1;
+		long mask = 0;
+		for (int i = 0; i < rows; i++) {
+			mask |= row << (i * MAX_COL);
+		}
+		return mask;
 	}
+
 	public Arrow findArrowInBackpack() {
 		for (int i = 0; i < line; i++) {
 			for (int j = 0; j < col; j++) {
@@ -95,28 +205,24 @@ public class BackPack {
 		if (!rangeMax(x, y)) { // position invalide
 			return false;
 		}
-		if (unlocked[x][y]) { // case déjà débloquée
+		long cell = bit(x, y);
+		if ((unlocked & cell) != 0) { // case déjà débloquée
 			return false;
 		}
 		// vérifier qu'au moins une case adjacente est débloquée
-		boolean hasAdjacentUnlocked = false;
-		if (x > 0 && unlocked[x - 1][y]) { // haut
-			hasAdjacentUnlocked = true;
-		}
-		if (x < MAX_LINE - 1 && unlocked[x + 1][y]) { // bas
-			hasAdjacentUnlocked = true;
-		}
-		if (y > 0 && unlocked[x][y - 1]) { // gauche
-			hasAdjacentUnlocked = true;
+		long neighbours = (cell << MAX_COL) | (cell >>> MAX_COL); // bas et haut
+		if (y > 0) { // gauche
+			neighbours |= cell >>> 1;
 		}
-		if (y < MAX_COL - 1 && unlocked[x][y + 1]) { // droite
-			hasAdjacentUnlocked = true;
+		if (y < MAX_COL - 1) { // droite
+			neighbours |= cell << 1;
 		}
-		if (!hasAdjacentUnlocked) { // aucune case adjacente débloquée
+		if ((unlocked & neighbours) == 0) { // aucune case adjacente débloquée
 			return false;
 		}
-		unlocked[x][y] = true;
+		unlocked |= cell; // aucun item ne bouge, les bonus restent justes
 		updateDimensions();
+		version++;
 		return true;
 	}
 
@@ -125,22 +231,12 @@ public class BackPack {
 	 *
 	 */
 	private void updateDimensions() {
-		int maxLine = 0;
-		int maxCol = 0;
+		long columns = 0; // on superpose toutes les lignes pour trouver la colonne max
 		for (int i = 0; i < MAX_LINE; i++) {
-			for (int j = 0; j < MAX_COL; j++) {
-				if (unlocked[i][j]) {
-					if (i >= maxLine) {
-						maxLine = i + 1;
-					}
-					if (j >= maxCol) {
-						maxCol = j + 1;
-					}
-				}
-			}
+			columns |= (unlocked >>> (i * MAX_COL)) & ROW_MASK;
 		}
-		this.line = maxLine;
-		this.col = maxCol;
+		this.line = unlocked == 0 ? 0 : (63 - Long.numberOfLeadingZeros(unlocked)) / MAX_COL + 1;
+		this.col = 64 - Long.numberOfLeadingZeros(columns);
 	}
 	/**
 	 * Give the object gold from the backpack
@@ -176,13 +272,14 @@ public class BackPack {
 		var g = goldCell();
 		if(g != null) {
 			g.add(amount);
+			version++;
 			return;
 		}
 		// on ajoute le gold sur une case vide on en avait pas déjà dasn le sac
 		for (int i = 0; i < line; i++) {
 			for (int j = 0; j < col; j++) {
 				if (grid[i][j] == null) {
-					grid[i][j] = new Gold(amount);
+					fill(new Gold(amount), bit(i, j));
 					return;
 				}
 			}
@@ -211,8 +308,9 @@ public class BackPack {
 		if (amount <= 0)
 			throw new IllegalArgumentException();
 		var g = goldCell();
-		if(g != null) {
-			return g.paid(amount);
+		if(g != null && g.paid(amount)) {
+			version++;
+			return true;
 		}
 		return false;
 	}
@@ -225,15 +323,107 @@ public class BackPack {
 	 */
 	public List<Position> getPos(Equipment gear) {
 		Objects.requireNonNull(gear);
-		var temp = new ArrayList<Position>();
-		for (int i = 0; i < line; i++) {
-			for (int j = 0; j < col; j++) {
-				if (grid[i][j] == gear) {
-					temp.add(new Position(i, j));
-				}
+		long mask = footprint(gear);
+		var temp = new Position[Long.bitCount(mask)];
+		int k = 0;
+		for (long m = mask; m != 0; m &= m - 1) {
+			int index = Long.numberOfTrailingZeros(m);
+			temp[k++] = new Position(index / MAX_COL, index % MAX_COL);
+		}
+		return List.of(temp);
+	}
+
+	/**
+	 * Give the cells taken by an item, one bit per cell (line * maxCol() + col)
+	 *
+	 * @param Equipment gear item in the bag
+	 * @return long mask of the cells, 0 if the item is not in the bag
+	 */
+	public long footprint(Equipment gear) {
+		Objects.requireNonNull(gear);
+		return footprints.getOrDefault(gear, 0L);
+	}
+
+	/**
+	 * Give all the distinct items in the bag, in the reading order of their
+	 * first cell so the order does not depend on identity hashes
+	 *
+	 * @return List<Equipment> items in the bag
+	 */
+	public List<Equipment> items() {
+		var items = new ArrayList<>(footprints.keySet());
+		items.sort(Comparator.comparingInt(item -> Long.numberOfTrailingZeros(footprints.get(item))));
+		return List.copyOf(items);
+	}
+
+	/**
+	 * Give an independent copy of the bag, mutable items (gold, mana stones) are
+	 * copied too
+	 *
+	 * @return BackPack copy with the same items at the same places
+	 */
+	public BackPack copy() {
+		var copy = new BackPack();
+		copy.line = line;
+		copy.col = col;
+		copy.unlocked = unlocked;
+		for (var entry : footprints.entrySet()) {
+			var item = entry.getKey();
+			var twin = item.copy();
+			copy.fill(twin, entry.getValue());
+			var rotation = rotations.get(item);
+			if (rotation != null) {
+				copy.rotations.put(twin, rotation);
 			}
 		}
-		return List.copyOf(temp);
+		return copy;
+	}
+
+	/**
+	 * Give the first line of a footprint
+	 */
+	public static int minLine(long mask) {
+		return Long.numberOfTrailingZeros(mask) / MAX_COL;
+	}
+
+	/**
+	 * Give the last line of a footprint
+	 */
+	public static int maxLine(long mask) {
+		return (63 - Long.numberOfLeadingZeros(mask)) / MAX_COL;
+	}
+
+	/**
+	 * Give the first column of a footprint
+	 */
+	public static int minCol(long mask) {
+		return Long.numberOfTrailingZeros(columns(mask));
+	}
+
+	/**
+	 * Give the last column of a footprint
+	 */
+	public static int maxCol(long mask) {
+		return 63 - Long.numberOfLeadingZeros(columns(mask));
+	}
+
+	/**
+	 * Fold all the lines of a mask into one line
+	 */
+	private static long columns(long mask) {
+		long columns = 0;
+		for (int i = 0; i < MAX_LINE; i++) {
+			columns |= (mask >>> (i * MAX_COL)) & ROW_MASK;
+		}
+		return columns;
+	}
+
+	/**
+	 * Give the cells next to a mask (up, down, left, right)
+	 */
+	private static long neighbours(long mask) {
+		return ((mask << MAX_COL) | (mask >>> MAX_COL) | ((mask & ~LAST_COL) << 1) | ((mask & ~FIRST_COL) >>> 1))
+				& ALL_CELLS;
 	}
 
 	/**
@@ -245,46 +435,305 @@ public class BackPack {
 	public boolean adjacent(Equipment gear, Equipment gem) {
 		Objects.requireNonNull(gear);
 		Objects.requireNonNull(gem);
-		var posGear = getPos(gear);
-		var posGem = getPos(gem);
-		for (var i : posGear) {
-			if (posGem.contains(new Position(i.line() + 1, i.col())) || posGem.contains(new Position(i.line(), i.col() + 1))
-					|| posGem.contains(new Position(i.line() - 1, i.col()))
-					|| posGem.contains(new Position(i.line(), i.col() - 1))) {
-				return true;
+		return (footprint(gear) & neighbours(footprint(gem))) != 0;
+	}
+
+	/**
+	 * Give the unlocked cells without item
+	 *
+	 * @return long mask of the free cells
+	 */
+	public long freeCells() {
+		return unlocked & ~occupied;
+	}
+
+	/**
+	 * Give the unlocked cells
+	 */
+	long unlockedCells() {
+		return unlocked;
+	}
+
+	/**
+	 * Give the gem bonus an item would get, or give if it is a gem, on some
+	 * cells. Each side between a gem and an item it boosts counts once (see
+	 * GemType#boosts), curses, gold and the other items get nothing.
+	 *
+	 * @param Equipment item item to place
+	 * @param long      cells cells taken by the item
+	 * @return int bonus around the cells
+	 */
+	int gemBonusAround(Equipment item, long cells) {
+		int total = 0;
+		for (long m = cells; m != 0; m &= m - 1) {
+			int index = Long.numberOfTrailingZeros(m);
+			for (long n = neighbours(1L << index) & ~cells & occupied; n != 0; n &= n - 1) {
+				int other = Long.numberOfTrailingZeros(n);
+				var eq = grid[other / MAX_COL][other % MAX_COL];
+				switch (item) {
+				case Gem gem -> total += gem.type().boosts(eq) ? gem.bonus() : 0;
+				default -> total += eq instanceof Gem gem && gem.type().boosts(item) ? gem.bonus() : 0;
+				}
 			}
 		}
-		return false;
+		return total;
+	}
+
+	/**
+	 * Give the number of sides of the cells not touching a free cell
+	 *
+	 * @param long cells cells of an item
+	 * @param long free free cells around it
+	 * @return int number of sides touching an item, a locked cell or the border
+	 */
+	static int contacts(long cells, long free) {
+		int open = Long.bitCount((cells >>> MAX_COL) & free) + Long.bitCount((cells << MAX_COL) & free)
+				+ Long.bitCount(((cells & ~FIRST_COL) >>> 1) & free) + Long.bitCount(((cells & ~LAST_COL) << 1) & free);
+		return 4 * Long.bitCount(cells) - open;
+	}
+
+	/**
+	 * Give the number of separate regions of a mask (cells linked by a side)
+	 *
+	 * @param long free cells to split in regions
+	 * @return int number of regions
+	 */
+	static int regions(long free) {
+		int count = 0;
+		while (free != 0) {
+			long region = grow(free & -free, free);
+			free &= ~region;
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Give the region of a mask linked to a seed
+	 */
+	static long grow(long seed, long free) {
+		long region = seed;
+		for (;;) {
+			long next = (region | neighbours(region)) & free;
+			if (next == region) {
+				return region;
+			}
+			region = next;
+		}
+	}
+
+	/**
+	 * Give the best legal placements of an item in the bag, best first. The item
+	 * must not be in the bag already.
+	 *
+	 * @param Equipment          item item to place
+	 * @param PlacementObjective objective score of a placement
+	 * @param int                limit maximum number of placements returned
+	 * @return List<Placement> placements sorted by decreasing score
+	 */
+	public List<Placement> placements(Equipment item, PlacementObjective objective, int limit) {
+		Objects.requireNonNull(item);
+		Objects.requireNonNull(objective);
+		if (limit <= 0) {
+			throw new IllegalArgumentException();
+		}
+		var best = new ArrayList<Placement>();
+		for (int r = 0; r < 2; r++) {
+			boolean rotation = r == 1;
+			if (rotation && !rotates(item)) {
+				continue;
+			}
+			for (int x = 0; x < MAX_LINE; x++) {
+				for (int y = 0; y < MAX_COL; y++) {
+					long cells = candidateMask(item, x, y, rotation);
+					if (cells == 0) {
+						continue;
+					}
+					int score = objective.score(this, item, cells);
+					int i = best.size();
+					while (i > 0 && best.get(i - 1).score() < score) {
+						i--;
+					}
+					if (i < limit) {
+						best.add(i, new Placement(x, y, rotation, score));
+						if (best.size() > limit) {
+							best.remove(limit);
+						}
+					}
+				}
+			}
+		}
+		return List.copyOf(best);
+	}
+
+	/**
+	 * Give the best legal placement of an item in the bag
+	 *
+	 * @param Equipment          item item to place
+	 * @param PlacementObjective objective score of a placement
+	 * @return Placement best placement or null if the item fits nowhere
+	 */
+	public Placement bestPlacement(Equipment item, PlacementObjective objective) {
+		Objects.requireNonNull(item);
+		Objects.requireNonNull(objective);
+		int bestScore = Integer.MIN_VALUE;
+		int bestX = -1;
+		int bestY = -1;
+		boolean bestRotation = false;
+		for (int r = 0; r < 2; r++) {
+			boolean rotation = r == 1;
+			if (rotation && !rotates(item)) {
+				continue;
+			}
+			for (int x = 0; x < MAX_LINE; x++) {
+				for (int y = 0; y < MAX_COL; y++) {
+					long cells = candidateMask(item, x, y, rotation);
+					if (cells == 0) {
+						continue;
+					}
+					int score = objective.score(this, item, cells);
+					if (score > bestScore) {
+						bestScore = score;
+						bestX = x;
+						bestY = y;
+						bestRotation = rotation;
+					}
+				}
+			}
+		}
+		return bestX == -1 ? null : new Placement(bestX, bestY, bestRotation, bestScore);
+	}
+
+	/**
+	 * Tell if turning an item gives another placement (not a curse, not symmetric)
+	 */
+	private static boolean rotates(Equipment item) {
+		if (item.getClass() == Curse.class) {
+			return false;
+		}
+		var shape = item.shape();
+		return shape.rows(true) != shape.rows(false) || shape.mask(true) != shape.mask(false);
+	}
+
+	/**
+	 * Give the cells an item dropped at (x, y) would take, with the rule of place
+	 * or placeCurse
+	 *
+	 * @param Equipment item     the item
+	 * @param int       x        Position line
+	 * @param int       y        Position column
+	 * @param boolean   rotation rotation of the item, ignored for a curse
+	 * @return long mask of the cells, or 0 if it can't go there
+	 */
+	public long dropMask(Equipment item, int x, int y, boolean rotation) {
+		Objects.requireNonNull(item);
+		return candidateMask(item, x, y, rotation);
+	}
+
+	/**
+	 * Give the cells an item would take at (x, y) with the rule of place or
+	 * placeCurse, or 0 if it can't go there
+	 */
+	private long candidateMask(Equipment item, int x, int y, boolean rotation) {
+		return switch (item) {
+		case Curse curse -> curseMask(curse, x, y);
+		default -> placementMask(item, x, y, rotation);
+		};
 	}
 
+	/**
+	 * Give the damage bonus of a gear from the damage gems next to it
+	 *
+	 * @param Equipment gear item receiving the bonus
+	 * @return int bonus damage
+	 */
 	public int bonusDamage(Equipment gear) {
-	  Objects.requireNonNull(gear);
-	  int bonus = 0;
-	  for (var p : getPos(gear)) {
-	    bonus += dmgFromGemAt(p.line() + 1, p.col());
-	    bonus += dmgFromGemAt(p.line() - 1, p.col());
-	    bonus += dmgFromGemAt(p.line(), p.col() + 1);
-	    bonus += dmgFromGemAt(p.line(), p.col() - 1);
-	  }
-	  return bonus;
+		return bonus(gear, GemType.WEAPON_DAMAGE);
 	}
 
-	private int dmgFromGemAt(int x, int y) {
-	  if (!rangeMax(x, y)) return 0;
-	  var eq = grid[x][y];
-	  if (eq == null) return 0;
-	  switch (eq) {
-	    case Gem gem -> {
-	      if (gem.type() == GemType.WEAPON_DAMAGE) {
-	        return gem.bonus();
-	      }
-	    }
-	    default -> {
-	    }
-	  }
-	  return 0;
+	/**
+	 * Give the bonus an item receives from the gems of a type next to it. Each
+	 * side of a cell touching a gem adds the bonus of that gem once.
+	 *
+	 * @param Equipment gear item receiving the bonus
+	 * @param GemType   type type of gems counted
+	 * @return int bonus, 0 if the item is not in the bag
+	 */
+	public int bonus(Equipment gear, GemType type) {
+		Objects.requireNonNull(gear);
+		Objects.requireNonNull(type);
+		var ledger = bonuses.get(gear);
+		return ledger == null ? 0 : ledger[type.ordinal()];
 	}
-	
+
+	/**
+	 * Update the ledgers after an item was put on some cells, the grid already
+	 * holds it. Only the item and the items next to the new cells change.
+	 *
+	 * @param Equipment gear item put in the bag
+	 * @param long      mask cells just taken by the item
+	 */
+	private void addBonuses(Equipment gear, long mask) {
+		var ledger = bonuses.get(gear);
+		if (ledger == null) {
+			ledger = freeLedgers.isEmpty() ? new int[GEM_TYPES.length] : freeLedgers.removeLast();
+			bonuses.put(gear, ledger);
+		} else {
+			Arrays.fill(ledger, 0);
+		}
+		long cells = footprints.get(gear);
+		for (long m = cells; m != 0; m &= m - 1) {
+			int index = Long.numberOfTrailingZeros(m);
+			for (long n = neighbours(1L << index) & occupied; n != 0; n &= n - 1) {
+				int other = Long.numberOfTrailingZeros(n);
+				if (grid[other / MAX_COL][other % MAX_COL] instanceof Gem gem) {
+					ledger[gem.type().ordinal()] += gem.bonus();
+				}
+			}
+		}
+		if (gear instanceof Gem gem) {
+			spreadBonus(gem, mask, cells, gem.bonus());
+		}
+	}
+
+	/**
+	 * Update the ledgers before an item leaves its cells, the grid still holds
+	 * it. Its ledger goes back to the free ones.
+	 *
+	 * @param Equipment gear item leaving the bag
+	 * @param long      mask cells of the item
+	 */
+	private void removeBonuses(Equipment gear, long mask) {
+		if (gear instanceof Gem gem) {
+			spreadBonus(gem, mask, mask, -gem.bonus());
+		}
+		var ledger = bonuses.remove(gear);
+		if (ledger != null) {
+			Arrays.fill(ledger, 0);
+			freeLedgers.add(ledger);
+		}
+	}
+
+	/**
+	 * Add the bonus of a gem to the items on the sides of some of its cells.
+	 * Each side counts once, the cells of the gem itself are left out.
+	 *
+	 * @param Gem  gem   the gem
+	 * @param long mask  cells of the gem to look around
+	 * @param long cells all the cells of the gem
+	 * @param int  delta bonus to add, negative to take it back
+	 */
+	private void spreadBonus(Gem gem, long mask, long cells, int delta) {
+		int type = gem.type().ordinal();
+		for (long m = mask; m != 0; m &= m - 1) {
+			int index = Long.numberOfTrailingZeros(m);
+			for (long n = neighbours(1L << index) & occupied & ~cells; n != 0; n &= n - 1) {
+				int other = Long.numberOfTrailingZeros(n);
+				bonuses.get(grid[other / MAX_COL][other % MAX_COL])[type] += delta;
+			}
+		}
+	}
+
 	/**
 	 * Give the item in the bag from line and col
 	 *
@@ -343,22 +792,14 @@ public class BackPack {
 		if (gear.getClass() == Curse.class) {// bloquer la rotation d'un curse
 			rotation = false;
 		}
-		boolean[][] shape = gear.getShape();
-		if (shape == null || shape.length == 0 || shape[0].length == 0) {
-			throw new IllegalArgumentException();
-		}
-		if (rotation) {
-			shape = rotation90(shape);
-		}
-		int shapeRows = shape.length;
-		int shapeCols = shape[0].length;
+		var cached = gear.shape();
 		if (x < 0 || y < 0) {
 			throw new IllegalArgumentException();
 		}
-		if (x + shapeRows > MAX_LINE || y + shapeCols > MAX_COL) {
+		if (x + cached.rows(rotation) > MAX_LINE || y + cached.cols(rotation) > MAX_COL) {
 			throw new IllegalArgumentException();
 		}
-		return shape;
+		return cached.matrix(rotation);
 	}
 
 	/**
@@ -372,26 +813,76 @@ public class BackPack {
 	 */
 	public boolean canPlace(Equipment gear, int x, int y, boolean rotation) {
 		Objects.requireNonNull(gear);
-		boolean[][] shape;
-		try {
-			shape = setRotation(gear, rotation, x, y);
-		} catch (IllegalArgumentException e) {
-			return false;
+		return placementMask(gear, x, y, rotation) != 0;
+	}
+
+	/**
+	 * Give the cells taken by an item placed at (x, y), or 0 if the item can't be
+	 * placed there. The whole bounding box of the shape must be unlocked and the
+	 * cells of the shape must be free.
+	 *
+	 * @param Equipment gear item that we need to place in the bag
+	 * @param int       x Position line
+	 * @param int       y Position column
+	 * @param boolean   rotation give information if we rotate or not the item
+	 * @return long mask of the cells or 0
+	 */
+	private long placementMask(Equipment gear, int x, int y, boolean rotation) {
+		return placementMask(gear, x, y, rotation, occupied);
+	}
+
+	/**
+	 * Same as placementMask, with the cells already taken given instead of the
+	 * cells of the bag
+	 */
+	private long placementMask(Equipment gear, int x, int y, boolean rotation, long taken) {
+		if (gear.getClass() == Curse.class) {// bloquer la rotation d'un curse
+			rotation = false;
+		}
+		var cached = gear.shape();
+		if (x < 0 || y < 0 || x + cached.rows(rotation) > MAX_LINE || y + cached.cols(rotation) > MAX_COL) {
+			return 0;
 		}
-		int shapeRows = shape.length;
-		int shapeCols = shape[0].length;
+		long mask = cached.mask(rotation) << (x * MAX_COL + y);
+		long box = cached.box(rotation) << (x * MAX_COL + y);
+		if ((mask & taken) != 0 || (box & ~unlocked) != 0) {
+			return 0; // déjà un équipement ici ou case bloquée
+		}
+		return mask;
+	}
 
-		for (int i = 0; i < shapeRows; i++) {
-			for (int j = 0; j < shapeCols; j++) {
-				if (grid[x + i][y + j] != null && shape[i][j]) {
-					return false; // déjà un équipement ici
-				}
-				if (!isUnlocked(x + i, y + j)) {
-					return false;
-				}
-			}
+	/**
+	 * Give the cells taken by a curse placed at (x, y), or 0 if it can't be
+	 * placed there. Only the cells of the shape must be unlocked and free.
+	 */
+	private long curseMask(Curse curse, int x, int y) {
+		var shape = curse.shape();
+		if (x < 0 || y < 0 || x + shape.rows(false) > MAX_LINE || y + shape.cols(false) > MAX_COL) {
+			return 0;
 		}
-		return true;
+		long mask = shape.mask(false) << (x * MAX_COL + y);
+		// seules les cases de la forme comptent : débloquées et sans autre item
+		if ((mask & ~unlocked) != 0 || (mask & occupied) != 0) {
+			return 0;
+		}
+		return mask;
+	}
+
+	/**
+	 * Put an item on every cell of a mask
+	 *
+	 * @param Equipment gear item to put in the grid
+	 * @param long      mask cells taken by the item
+	 */
+	private void fill(Equipment gear, long mask) {
+		for (long m = mask; m != 0; m &= m - 1) {
+			int index = Long.numberOfTrailingZeros(m);
+			grid[index / MAX_COL][index % MAX_COL] = gear;
+		}
+		occupied |= mask;
+		footprints.merge(gear, mask, (a, b) -> a | b);
+		addBonuses(gear, mask);
+		version++;
 	}
 
 	/**
@@ -404,21 +895,11 @@ public class BackPack {
 	 */
 	public void place(Equipment gear, int x, int y, boolean rotation) {
 		Objects.requireNonNull(gear);
-		var shape = setRotation(gear, rotation, x, y);
-		if (canPlace(gear, x, y, rotation) == false || shape == null) {
+		long mask = placementMask(gear, x, y, rotation);
+		if (mask == 0) {
 			throw new IllegalArgumentException();
 		}
-		int shapeRows = shape.length;
-		int shapeCols = shape[0].length;
-
-		for (int i = 0; i < shapeRows; i++) {
-			for (int j = 0; j < shapeCols; j++) {
-				if (grid[x + i][y + j] == null && shape[i][j] == true) {
-					grid[x + i][y + j] = gear;
-
-				}
-			}
-		}
+		fill(gear, mask);
 		rotations.put(gear, rotation);
 	}
 
@@ -432,32 +913,55 @@ public class BackPack {
 	 */
 	public boolean placeCurse(Curse curse, int x, int y) {
 		Objects.requireNonNull(curse);
-		boolean[][] shape = curse.shape();
-		int shapeRows = shape.length;
-		int shapeCols = shape[0].length;
-		if (x + shapeRows > MAX_LINE || y + shapeCols > MAX_COL) {
+		long mask = curseMask(curse, x, y);
+		if (mask == 0) {
 			return false;
 		}
-		for (int i = 0; i < shapeRows; i++) { // les verifs si on peut placer la malediction
-			for (int j = 0; j < shapeCols; j++) {
-				if (shape[i][j]) {
-					if (!isUnlocked(x + i, y + j)) { // si les cases sont débloqués ou non
-						return false;
-					}
-					if (detection(x + i, y + j) != null) { // si il y a d'autres items dans la position
-						return false;
-					}
-				}
-			}
+		fill(curse, mask); // on place la malédiction
+		rotations.put(curse, false); // ne peuvent pas être rotate
+		return true;
+	}
+
+	/**
+	 * Rearrange all the items of the bag (curses stay in place) to get the most
+	 * gem bonus, then the biggest free region.
+	 *
+	 * @param Duration budget maximum search time
+	 * @param boolean  parallel search the first level in parallel
+	 * @return boolean true if the bag changed, the bag is left as it was when a
+	 *         placement found doesn't fit
+	 */
+	public boolean repack(Duration budget, boolean parallel) {
+		var arrangement = new Repacker(budget, parallel).search(this);
+		if (arrangement == null) {
+			return false;
 		}
-		for (int i = 0; i < shapeRows; i++) { // on place la malédiction
-			for (int j = 0; j < shapeCols; j++) {
-				if (shape[i][j]) {
-					grid[x + i][y + j] = curse;
-				}
+		var items = arrangement.items();
+		var placements = arrangement.placements();
+		// toutes les places sont vérifiées avant de toucher au sac
+		long moved = 0;
+		for (var item : items) {
+			moved |= footprint(item);
+		}
+		long taken = occupied & ~moved;
+		long[] masks = new long[items.size()];
+		for (int i = 0; i < items.size(); i++) {
+			var p = placements.get(i);
+			masks[i] = placementMask(items.get(i), p.line(), p.col(), p.rotation(), taken);
+			if (masks[i] == 0) {
+				return false;
 			}
+			taken |= masks[i];
+		}
+		for (var item : items) {
+			// une case de l'item lui-même, le coin du cadre peut être vide ou à un voisin
+			int cell = Long.numberOfTrailingZeros(footprint(item));
+			withdraw(cell / MAX_COL, cell % MAX_COL);
+		}
+		for (int i = 0; i < items.size(); i++) {
+			fill(items.get(i), masks[i]);
+			rotations.put(items.get(i), placements.get(i).rotation());
 		}
-		rotations.put(curse, false); // ne peuvent pas être rotate
 		return true;
 	}
 
@@ -472,14 +976,15 @@ public class BackPack {
 		if (temp == null) {
 			throw new IllegalArgumentException();
 		}
-		for (int i = 0; i < line; i++) {
-			for (int j = 0; j < col; j++) {
-				if (grid[i][j] == temp) {
-					grid[i][j] = null;
-				}
-			}
+		long mask = footprints.remove(temp);
+		removeBonuses(temp, mask);
+		for (long m = mask; m != 0; m &= m - 1) {
+			int index = Long.numberOfTrailingZeros(m);
+			grid[index / MAX_COL][index % MAX_COL] = null;
 		}
+		occupied &= ~mask;
 		rotations.remove(temp);
+		version++;
 	}
 
 	/**
@@ -0,0 +1,12 @@
+package backpack;
+
+/**
+ * A legal spot for an item in the bag with the score given by an objective.
+ *
+ * @param line     anchor line
+ * @param col      anchor column
+ * @param rotation rotation of the item
+ * @param score    score of the placement, higher is better
+ */
+public record Placement(int line, int col, boolean rotation, int score) {
+}
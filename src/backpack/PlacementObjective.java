@@ -0,0 +1,51 @@
+package backpack;
+
+import java.util.Objects;
+
+import backpack.object.Equipment;
+
+/**
+ * Score of an item placed on some cells of the bag, higher is better. The
+ * bag is given without the item, cells is the mask of the cells it would
+ * take (one bit per cell, line * maxCol() + col).
+ */
+@FunctionalInterface
+public interface PlacementObjective {
+	int score(BackPack bag, Equipment item, long cells);
+
+	/**
+	 * Bonus given or received through gems next to the cells, only between a gem
+	 * and an item its type boosts.
+	 */
+	PlacementObjective GEM_BONUS = (bag, item, cells) -> bag.gemBonusAround(item, cells);
+
+	/**
+	 * Number of sides of the cells touching an item, a locked cell or the border.
+	 */
+	PlacementObjective COMPACTNESS = (bag, item, cells) -> BackPack.contacts(cells, bag.freeCells() & ~cells);
+
+	/**
+	 * Minus the number of separate free regions left after the placement.
+	 */
+	PlacementObjective FRAGMENTATION = (bag, item, cells) -> -BackPack.regions(bag.freeCells() & ~cells);
+
+	/**
+	 * Objective used by the auto placement: gems first, then a tidy bag.
+	 */
+	PlacementObjective DEFAULT = GEM_BONUS.times(10).plus(COMPACTNESS).plus(FRAGMENTATION.times(4));
+
+	/**
+	 * Add the score of another objective to this one
+	 */
+	default PlacementObjective plus(PlacementObjective other) {
+		Objects.requireNonNull(other);
+		return (bag, item, cells) -> score(bag, item, cells) + other.score(bag, item, cells);
+	}
+
+	/**
+	 * Multiply the score of this objective by a weight
+	 */
+	default PlacementObjective times(int weight) {
+		return (bag, item, cells) -> weight * score(bag, item, cells);
+	}
+}
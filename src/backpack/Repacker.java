@@ -0,0 +1,393 @@
+package backpack;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import backpack.object.Curse;
+import backpack.object.Equipment;
+import backpack.object.Gem;
+import backpack.object.GemType;
+
+/**
+ * Search of the best arrangement of all the items of a bag by branch and
+ * bound. Curses stay where they are, every other item can move and rotate.
+ * The score of an arrangement is its gem bonus times REGION_WEIGHT plus the
+ * size of its biggest free region, so the gems come first. A gem only counts
+ * next to the items its type boosts (see {@link GemType#boosts}), the same
+ * rule as {@link PlacementObjective#GEM_BONUS}.
+ * <p>
+ * The search is exact only if it ends within its budget: on a full 5x7 bag it
+ * can take seconds. With the budget of one frame it gives the best
+ * arrangement found in time, which is the best one on about six bags out of
+ * ten (see RepackBench in bench/).
+ */
+public final class Repacker {
+	private static final int REGION_WEIGHT = 64; // plus que le nombre de cases : la gemme passe avant la place libre
+	private static final int CHECK_EVERY = 64; // branches entre deux lectures de l'horloge, une image n'a pas de marge
+	private static final GemType[] GEM_TYPES = GemType.values();
+
+	/**
+	 * Result of a search, items and placements at the same index.
+	 *
+	 * @param items         moved items
+	 * @param placements    new placement of each item
+	 * @param gemBonus      total gem bonus of the arrangement
+	 * @param largestRegion size of the biggest free region left
+	 * @param complete      false if the time budget stopped the search
+	 */
+	public record Arrangement(List<Equipment> items, List<Placement> placements, int gemBonus, int largestRegion,
+			boolean complete) {
+		public Arrangement {
+			items = List.copyOf(items);
+			placements = List.copyOf(placements);
+		}
+
+		public int score() {
+			return gemBonus * REGION_WEIGHT + largestRegion;
+		}
+	}
+
+	/**
+	 * An item to place with all the spots it can take in the empty bag. A gem
+	 * has its type in gemType, the types boosting an item are the bits of
+	 * boostedBy.
+	 */
+	private record Piece(Equipment item, int gemBonus, int gemType, int boostedBy, int perimeter, long[] masks,
+			int[] spots, Shape shape) {
+		boolean sameAs(Piece other) {
+			return shape == other.shape && gemBonus == other.gemBonus && gemType == other.gemType
+					&& boostedBy == other.boostedBy;
+		}
+
+		boolean receives() {
+			return boostedBy != 0;
+		}
+
+		boolean boosts(Piece other) {
+			return gemBonus > 0 && (other.boostedBy & 1 << gemType) != 0;
+		}
+	}
+
+	private final Duration budget;
+	private final boolean parallel;
+
+	/**
+	 * @param budget   maximum time of a search, the best arrangement found so far is
+	 *                 kept when it runs out
+	 * @param parallel split the first level of the search across the common
+	 *                 fork-join pool, only faster with several cores
+	 */
+	public Repacker(Duration budget, boolean parallel) {
+		Objects.requireNonNull(budget);
+		if (budget.isNegative() || budget.isZero()) {
+			throw new IllegalArgumentException("budget must be positive");
+		}
+		this.budget = budget;
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Search the best arrangement of a bag without modifying it.
+	 *
+	 * @param bag bag to repack
+	 * @return best arrangement found, or null if none beats the current one
+	 */
+	public Arrangement search(BackPack bag) {
+		Objects.requireNonNull(bag);
+		long deadline = System.nanoTime() + budget.toNanos();
+		long fixed = 0;
+		var pieces = new ArrayList<Piece>();
+		for (var item : bag.items()) {
+			if (item.getClass() == Curse.class) {
+				fixed |= bag.footprint(item);
+			} else {
+				pieces.add(piece(bag, item));
+			}
+		}
+		// les plus grosses pièces d'abord, les pièces identiques côte à côte
+		pieces.sort(Comparator.comparingInt((Piece p) -> -Long.bitCount(p.shape().mask(false)))
+				.thenComparingLong(p -> p.shape().mask(false)).thenComparingInt(p -> p.shape().rows(false))
+				.thenComparingInt(Piece::gemBonus).thenComparingInt(Piece::gemType).thenComparingInt(Piece::boostedBy));
+		var search = new Search(pieces.toArray(Piece[]::new), bag.unlockedCells() & ~fixed, fixed, deadline);
+		int current = search.currentScore(bag);
+		search.best.set(current);
+		var found = parallel ? search.parallel() : search.sequential();
+		return found != null && found.score() > current ? found : null;
+	}
+
+	private static Piece piece(BackPack bag, Equipment item) {
+		var shape = item.shape();
+		var masks = new ArrayList<Long>();
+		var spots = new ArrayList<Integer>();
+		for (int r = 0; r < 2; r++) {
+			boolean rotation = r == 1;
+			if (rotation && shape.rows(true) == shape.rows(false) && shape.mask(true) == shape.mask(false)) {
+				continue;
+			}
+			for (int x = 0; x + shape.rows(rotation) <= BackPack.MAX_LINE; x++) {
+				for (int y = 0; y + shape.cols(rotation) <= BackPack.MAX_COL; y++) {
+					int offset = x * BackPack.MAX_COL + y;
+					if ((shape.box(rotation) << offset & ~bag.unlockedCells()) != 0) {
+						continue; // même règle que BackPack.place : toute la boîte doit être débloquée
+					}
+					masks.add(shape.mask(rotation) << offset);
+					spots.add(offset << 1 | r);
+				}
+			}
+		}
+		int boostedBy = 0;
+		for (var type : GEM_TYPES) {
+			if (type.boosts(item)) {
+				boostedBy |= 1 << type.ordinal();
+			}
+		}
+		int gemBonus = 0;
+		int gemType = -1;
+		if (item instanceof Gem gem && boostsAny(bag, gem.type())) { // une gemme sans item à bonifier ne rapporte rien
+			gemBonus = gem.bonus();
+			gemType = gem.type().ordinal();
+		}
+		int perimeter = BackPack.contacts(shape.mask(false), 0);
+		return new Piece(item, gemBonus, gemType, boostedBy, perimeter,
+				masks.stream().mapToLong(Long::longValue).toArray(), spots.stream().mapToInt(Integer::intValue).toArray(),
+				shape);
+	}
+
+	private static boolean boostsAny(BackPack bag, GemType type) {
+		for (var item : bag.items()) {
+			if (type.boosts(item)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Number of sides shared by two masks
+	 */
+	private static int edges(long a, long b) {
+		return 4 * Long.bitCount(a) - BackPack.contacts(a, b);
+	}
+
+	/**
+	 * Size of the biggest region of a mask
+	 */
+	private static int largestRegion(long free) {
+		int best = 0;
+		while (free != 0) {
+			long region = BackPack.grow(free & -free, free);
+			best = Math.max(best, Long.bitCount(region));
+			free &= ~region;
+		}
+		return best;
+	}
+
+	private final class Search {
+		private final Piece[] pieces;
+		private final long allowed;
+		private final long fixed;
+		private final long deadline;
+		private final AtomicInteger best = new AtomicInteger(Integer.MIN_VALUE);
+		private volatile boolean timedOut;
+		private final int[] remainingGemBound; // borne des gemmes pas encore placées à partir de l'index i
+		private final int[] remainingReceiverBound; // borne des items bonifiés pas encore placés à partir de i
+		private final int[] maxBoost; // plus gros bonus d'une gemme qui bonifie l'item i
+
+		Search(Piece[] pieces, long allowed, long fixed, long deadline) {
+			this.pieces = pieces;
+			this.allowed = allowed;
+			this.fixed = fixed;
+			this.deadline = deadline;
+			remainingGemBound = new int[pieces.length + 1];
+			remainingReceiverBound = new int[pieces.length + 1];
+			maxBoost = new int[pieces.length];
+			for (int i = 0; i < pieces.length; i++) {
+				for (var gem : pieces) {
+					if (gem.boosts(pieces[i])) {
+						maxBoost[i] = Math.max(maxBoost[i], gem.gemBonus());
+					}
+				}
+			}
+			for (int i = pieces.length - 1; i >= 0; i--) {
+				remainingGemBound[i] = remainingGemBound[i + 1] + pieces[i].gemBonus() * pieces[i].perimeter();
+				remainingReceiverBound[i] = remainingReceiverBound[i + 1] + maxBoost[i] * pieces[i].perimeter();
+			}
+		}
+
+		int currentScore(BackPack bag) {
+			var masks = new long[pieces.length];
+			int bonus = 0;
+			long used = fixed;
+			for (int i = 0; i < pieces.length; i++) {
+				masks[i] = bag.footprint(pieces[i].item());
+				bonus += gain(i, masks[i], masks);
+				used |= masks[i];
+			}
+			return bonus * REGION_WEIGHT + largestRegion(allowed & ~used);
+		}
+
+		Arrangement sequential() {
+			var walker = new Walker();
+			walker.dfs(0, 0, 0);
+			return walker.result();
+		}
+
+		Arrangement parallel() {
+			if (pieces.length == 0) {
+				return sequential();
+			}
+			var tasks = new ArrayList<RecursiveTask<Arrangement>>();
+			var first = pieces[0];
+			for (int c = 0; c < first.masks().length; c++) {
+				int candidate = c;
+				tasks.add(new RecursiveTask<>() {
+					@Override
+					protected Arrangement compute() {
+						var walker = new Walker();
+						if ((first.masks()[candidate] & ~allowed) != 0) {
+							return null;
+						}
+						walker.chosen[0] = candidate;
+						walker.masks[0] = first.masks()[candidate];
+						walker.dfs(1, first.masks()[candidate], gain(0, first.masks()[candidate], walker.masks));
+						return walker.result();
+					}
+				});
+			}
+			return ForkJoinPool.commonPool().invoke(new RecursiveTask<Arrangement>() {
+				@Override
+				protected Arrangement compute() {
+					invokeAll(tasks);
+					Arrangement result = null;
+					for (var task : tasks) { // à score égal on garde la première branche
+						var found = task.join();
+						if (found != null && (result == null || found.score() > result.score())) {
+							result = found;
+						}
+					}
+					return result;
+				}
+			});
+		}
+
+		/**
+		 * Gem bonus won by placing piece i on mask, pieces before i already placed
+		 */
+		private int gain(int i, long mask, long[] masks) {
+			var piece = pieces[i];
+			int gain = 0;
+			for (int j = 0; j < i; j++) {
+				var other = pieces[j];
+				if (piece.boosts(other)) {
+					gain += piece.gemBonus() * edges(mask, masks[j]);
+				} else if (other.boosts(piece)) {
+					gain += other.gemBonus() * edges(mask, masks[j]);
+				}
+			}
+			return gain;
+		}
+
+		private Arrangement arrangement(int[] chosen, long[] masks, boolean complete) {
+			var items = new ArrayList<Equipment>();
+			var placements = new ArrayList<Placement>();
+			int bonus = 0;
+			long used = fixed;
+			for (int i = 0; i < pieces.length; i++) {
+				bonus += gain(i, masks[i], masks);
+				used |= masks[i];
+			}
+			int region = largestRegion(allowed & ~used);
+			int score = bonus * REGION_WEIGHT + region;
+			for (int i = 0; i < pieces.length; i++) {
+				int spot = pieces[i].spots()[chosen[i]] >> 1;
+				items.add(pieces[i].item());
+				placements.add(new Placement(spot / BackPack.MAX_COL, spot % BackPack.MAX_COL,
+						(pieces[i].spots()[chosen[i]] & 1) == 1, score));
+			}
+			return new Arrangement(items, placements, bonus, region, complete);
+		}
+
+		/**
+		 * State of one depth-first walk, one per fork-join task.
+		 */
+		private final class Walker {
+			private final int[] chosen = new int[pieces.length];
+			private final long[] masks = new long[pieces.length];
+			private int[] bestChosen;
+			private long[] bestMasks;
+			private int bestScore = Integer.MIN_VALUE;
+			private int branches;
+			private final int freeAtEnd;
+
+			Walker() {
+				int size = 0;
+				for (var piece : pieces) {
+					size += piece.masks().length == 0 ? 0 : Long.bitCount(piece.masks()[0]);
+				}
+				freeAtEnd = Long.bitCount(allowed) - size;
+			}
+
+			void dfs(int i, long used, int bonus) {
+				if (timedOut) {
+					return;
+				}
+				if (i == pieces.length) {
+					int score = bonus * REGION_WEIGHT + largestRegion(allowed & ~used);
+					if (score > bestScore) {
+						bestScore = score;
+						bestChosen = chosen.clone();
+						bestMasks = masks.clone();
+						best.accumulateAndGet(score, Math::max);
+					}
+					return;
+				}
+				// borne : bonus acquis + ce que peuvent encore rapporter les côtés libres, vu
+				// du côté des gemmes ou du côté des items bonifiés (on garde la plus petite)
+				int gemSide = remainingGemBound[i];
+				int receiverSide = remainingReceiverBound[i];
+				long free = allowed & ~used;
+				for (int j = 0; j < i; j++) {
+					int open = 4 * Long.bitCount(masks[j]) - BackPack.contacts(masks[j], free);
+					if (pieces[j].gemBonus() > 0) {
+						gemSide += pieces[j].gemBonus() * open;
+					} else {
+						receiverSide += maxBoost[j] * open;
+					}
+				}
+				int bound = (bonus + Math.min(gemSide, receiverSide)) * REGION_WEIGHT;
+				if (bound + freeAtEnd <= best.get()) {
+					return;
+				}
+				var piece = pieces[i];
+				int start = i > 0 && piece.sameAs(pieces[i - 1]) ? chosen[i - 1] + 1 : 0; // pas de permutations inutiles
+				for (int c = start; c < piece.masks().length; c++) {
+					long mask = piece.masks()[c];
+					if ((mask & used) != 0 || (mask & ~allowed) != 0) {
+						continue;
+					}
+					if (++branches % CHECK_EVERY == 0 && System.nanoTime() > deadline) {
+						timedOut = true;
+						return;
+					}
+					chosen[i] = c;
+					masks[i] = mask;
+					dfs(i + 1, used | mask, bonus + gain(i, mask, masks));
+				}
+			}
+
+			Arrangement result() {
+				if (bestChosen == null) {
+					return null;
+				}
+				return arrangement(bestChosen, bestMasks, !timedOut);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,142 @@
+package backpack;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable view of an item shape with its two orientations precomputed.
+ * Shapes are interned: every matrix with the same content gives the same
+ * Shape, found by its content without lock so the parallel searches don't
+ * wait on each other. Only one Shape is kept for each content, the matrices
+ * given are not kept. Items keep their Shape from their creation so the bag
+ * never looks it up again, and the matrices stay private : a caller only ever
+ * gets a copy.
+ */
+public final class Shape {
+	private record Key(int rows, int cols, long bits) {
+	}
+
+	private static final ConcurrentHashMap<Key, Shape> BY_CONTENT = new ConcurrentHashMap<>();
+
+	private final boolean[][][] matrices = new boolean[2][][]; // 0 : normal, 1 : rotation de 90 degrés
+	private final long[] masks = new long[2];
+	private final long[] boxes = new long[2];
+	private final int rows;
+	private final int cols;
+
+	private Shape(boolean[][] matrix) {
+		rows = matrix.length;
+		cols = matrix[0].length;
+		matrices[0] = new boolean[rows][];
+		for (int i = 0; i < rows; i++) {
+			matrices[0][i] = matrix[i].clone(); // l'appelant garde son tableau
+		}
+		matrices[1] = BackPack.rotation90(matrices[0]);
+		for (int r = 0; r < 2; r++) {
+			var m = matrices[r];
+			for (int i = 0; i < m.length; i++) {
+				for (int j = 0; j < m[i].length; j++) {
+					if (m[i][j] && i < BackPack.MAX_LINE && j < BackPack.MAX_COL) {
+						masks[r] |= 1L << (i * BackPack.MAX_COL + j);
+					}
+				}
+			}
+			boxes[r] = BackPack.boxMask(Math.min(m.length, BackPack.MAX_LINE), Math.min(m[0].length, BackPack.MAX_COL));
+		}
+	}
+
+	/**
+	 * Give the interned shape of a matrix
+	 *
+	 * @param boolean[][] matrix 2D tab from the shape of the item
+	 * @return Shape the shared shape with the same content
+	 */
+	public static Shape of(boolean[][] matrix) {
+		Objects.requireNonNull(matrix);
+		var key = key(matrix);
+		var shape = BY_CONTENT.get(key); // lecture sans verrou, le cas courant
+		if (shape == null) {
+			shape = BY_CONTENT.computeIfAbsent(key, k -> new Shape(matrix));
+		}
+		return shape;
+	}
+
+	private static Key key(boolean[][] matrix) {
+		if (matrix.length == 0 || matrix[0].length == 0) {
+			throw new IllegalArgumentException();
+		}
+		int rows = matrix.length;
+		int cols = matrix[0].length;
+		if (rows * cols > Long.SIZE) {
+			throw new IllegalArgumentException("forme trop grande");
+		}
+		long bits = 0;
+		for (int i = 0; i < rows; i++) {
+			if (matrix[i].length != cols) {
+				throw new IllegalArgumentException();
+			}
+			for (int j = 0; j < cols; j++) {
+				if (matrix[i][j]) {
+					bits |= 1L << (i * cols + j);
+				}
+			}
+		}
+		return new Key(rows, cols, bits);
+	}
+
+	private static int index(boolean rotation) {
+		return rotation ? 1 : 0;
+	}
+
+	/**
+	 * Give a copy of the matrix of the shape
+	 */
+	public boolean[][] matrix(boolean rotation) {
+		var matrix = matrices[index(rotation)];
+		var copy = new boolean[matrix.length][];
+		for (int i = 0; i < matrix.length; i++) {
+			copy[i] = matrix[i].clone();
+		}
+		return copy;
+	}
+
+	/**
+	 * Tell if a cell of the shape is filled
+	 *
+	 * @param boolean rotation rotation of the shape
+	 * @param int     i line in the shape
+	 * @param int     j column in the shape
+	 * @return boolean true if the cell belongs to the shape
+	 */
+	public boolean filled(boolean rotation, int i, int j) {
+		return matrices[index(rotation)][i][j];
+	}
+
+	/**
+	 * Give the number of lines of the shape
+	 */
+	public int rows(boolean rotation) {
+		return rotation ? cols : rows;
+	}
+
+	/**
+	 * Give the number of columns of the shape
+	 */
+	public int cols(boolean rotation) {
+		return rotation ? rows : cols;
+	}
+
+	/**
+	 * Give the cells of the shape anchored at (0, 0) in the backpack layout
+	 */
+	public long mask(boolean rotation) {
+		return masks[index(rotation)];
+	}
+
+	/**
+	 * Give the bounding box of the shape anchored at (0, 0) in the backpack layout
+	 */
+	public long box(boolean rotation) {
+		return boxes[index(rotation)];
+	}
+}
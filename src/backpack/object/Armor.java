@@ -1,8 +1,10 @@
 package backpack.object;
 
+import backpack.Shape;
+
 import java.util.Objects;
 
-public record Armor(String name, int protection, boolean [][] shape, Rarity rarity) implements Equipment{
+public record Armor(String name, int protection, Shape shape, Rarity rarity) implements Equipment{
 	
 	public Armor {
 		Objects.requireNonNull(name);
@@ -1,8 +1,10 @@
 package backpack.object;
 
+import backpack.Shape;
+
 import java.util.Objects;
 
-public record Arrow (String name, int damage ,boolean[][] shape,Rarity rarity) implements Equipment{
+public record Arrow (String name, int damage ,Shape shape,Rarity rarity) implements Equipment{
 	
 	public Arrow {
 		Objects.requireNonNull(name);
@@ -1,18 +1,17 @@
 package backpack.object;
 
+import backpack.Shape;
+
 import java.util.Objects;
 
 import fighter.Hero;
 
-public record Consumable(String name, boolean[][] shape, PotionType type, int amount,Rarity rarity) implements Equipment {
+public record Consumable(String name, Shape shape, PotionType type, int amount,Rarity rarity) implements Equipment {
 	public Consumable {
 		Objects.requireNonNull(name);
 		Objects.requireNonNull(shape);
 		Objects.requireNonNull(type);
 		Objects.requireNonNull(rarity);
-		if (shape.length == 0 || shape[0].length == 0) {
-			throw new IllegalArgumentException("Shape vide");
-		}
 		if (amount <= 0) {
 			throw new IllegalArgumentException("amount doit être > 0");
 		}
@@ -24,7 +23,7 @@ public record Consumable(String name, boolean[][] shape, PotionType type, int am
 	}
 
 	@Override
-	public boolean[][] shape() {
+	public Shape shape() {
 		return shape;
 	}
 
@@ -1,15 +1,17 @@
 package backpack.object;
 
+import backpack.Shape;
+
 import java.util.Objects;
 
 public class Curse implements Equipment {
-	private final boolean[][] shape;
+	private final Shape shape;
 	private final MalusType malusType;
 	private int malus;
 	private Rarity rarity = Rarity.COMMON;
 	private final String name;
 
-	public Curse(boolean[][] shape, MalusType malusType, String name, int malus) {
+	public Curse(Shape shape, MalusType malusType, String name, int malus) {
 		Objects.requireNonNull(shape);
 		Objects.requireNonNull(malusType);
 		Objects.requireNonNull(name);
@@ -43,7 +45,12 @@ public class Curse implements Equipment {
 	}
 
 	@Override
-	public boolean[][] shape() {
+	public Shape shape() {
 		return shape;
 	}
+
+	@Override
+	public Curse copy() { // le sac range ses objets par identité, chaque malédiction posée est la sienne
+		return new Curse(shape, malusType, name, malus);
+	}
 }
@@ -1,10 +1,19 @@
 package backpack.object;
 
+import backpack.Shape;
+
 public interface Equipment {
 	public ItemType getType();
-	boolean[][] shape();
+	Shape shape();
 	Rarity rarity();
 	default boolean[][] getShape() {
-		return shape();
+		return shape().matrix(false);
+	}
+
+	/**
+	 * Give an independent copy of the item, immutable items are shared.
+	 */
+	default Equipment copy() {
+		return this;
 	}
 }
@@ -1,31 +1,33 @@
 package backpack.object;
 
+import backpack.Shape;
+
 import java.util.Objects;
 
-public record Gear(String name, int basicDamage, boolean[][] shape, int cost, int protectionBasic, Rarity rarity,
+public record Gear(String name, int basicDamage, Shape shape, int cost, int protectionBasic, Rarity rarity,
 		WeaponType typeW, ShieldType typeS, int mana) implements Equipment {
 	/**
 	 * Create a normal weapon (no mana).
 	 */
-	public Gear(String name, int basicDamage, boolean[][] shape, int cost, Rarity rarity, WeaponType typeW) {
+	public Gear(String name, int basicDamage, Shape shape, int cost, Rarity rarity, WeaponType typeW) {
 		this(name, basicDamage, shape, cost, 0, rarity, typeW, null, 0);
 	}
 	/**
 	 * Create a magic weapon (with mana).
 	 */
-	public Gear(String name, int basicDamage, boolean[][] shape, int cost, Rarity rarity, WeaponType typeW, int mana) {
+	public Gear(String name, int basicDamage, Shape shape, int cost, Rarity rarity, WeaponType typeW, int mana) {
 		this(name, basicDamage, shape, cost, 0, rarity, typeW, null, mana);
 	}
 	/**
 	 * Create a magic shield (with mana).
 	 */
-	public Gear(String name, int basicDamage, boolean[][] shape, int cost, Rarity rarity, ShieldType typeS, int mana) {
+	public Gear(String name, int basicDamage, Shape shape, int cost, Rarity rarity, ShieldType typeS, int mana) {
 		this(name, basicDamage, shape, cost, 0, rarity, null, typeS, mana);
 	}
 	/**
 	 * Create a normal shield (no mana).
 	 */
-	public Gear(String name, boolean[][] shape, int cost, int protectionBasic, Rarity rarity, ShieldType typeS) {
+	public Gear(String name, Shape shape, int cost, int protectionBasic, Rarity rarity, ShieldType typeS) {
 		this(name, 0, shape, cost, protectionBasic, rarity, null, typeS, 0);
 	}
 
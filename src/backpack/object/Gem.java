@@ -1,8 +1,10 @@
 package backpack.object;
 
+import backpack.Shape;
+
 import java.util.Objects;
 
-public record Gem(String name, boolean[][] shape, GemType type, int bonus,Rarity rarity) implements Equipment {
+public record Gem(String name, Shape shape, GemType type, int bonus,Rarity rarity) implements Equipment {
 
 	public Gem {
 		Objects.requireNonNull(name);
@@ -16,7 +18,7 @@ public record Gem(String name, boolean[][] shape, GemType type, int bonus,Rarity
 	public GemType type() {
 		return type;
 	}
-	public boolean[][] shape() {
+	public Shape shape() {
 		return shape;
 	}
 	public ItemType getType() {
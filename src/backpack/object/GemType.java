@@ -1,5 +1,20 @@
 package backpack.object;
 
 public enum GemType {
-	HEART, WEAPON_DAMAGE, ARMOR_BLOCK,
+	HEART, WEAPON_DAMAGE, ARMOR_BLOCK;
+
+	/**
+	 * Tell if a gem of this type next to an item changes the item in play :
+	 * damage gems for the weapons, block gems for the armors and shields.
+	 *
+	 * @param Equipment item item next to the gem
+	 * @return boolean true if the bonus of the gem counts for the item
+	 */
+	public boolean boosts(Equipment item) {
+		return switch (this) {
+		case WEAPON_DAMAGE -> item instanceof Gear gear && gear.typeW() != null;
+		case ARMOR_BLOCK -> item instanceof Armor || (item instanceof Gear gear && gear.typeS() != null);
+		case HEART -> false;
+		};
+	}
 }
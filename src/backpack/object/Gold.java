@@ -1,17 +1,17 @@
 package backpack.object;
 
+import backpack.Shape;
 
 public class Gold implements Equipment {
 	private int amount;
-	private final boolean[][] shape;
+	private final Shape shape;
 	private Rarity rarity = Rarity.COMMON;
 	
 	public Gold(int montant) {
 		if (montant < 0)
 			throw new IllegalArgumentException("Montant initial negatif impossible");
 		this.amount = montant;
-		shape = new boolean[1][1];
-		shape[0][0] = true;
+		shape = Shape.of(new boolean[][] { { true } });
 
 	}
 	
@@ -19,7 +19,7 @@ public class Gold implements Equipment {
 		return rarity;
 	}
 	
-	public boolean[][] shape() {
+	public Shape shape() {
 		return shape;
 	}
 	
@@ -43,4 +43,9 @@ public class Gold implements Equipment {
 	public int amount() {
 		return amount;
 	}
+
+	@Override
+	public Gold copy() {
+		return new Gold(amount);
+	}
 }
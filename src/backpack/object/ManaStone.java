@@ -1,5 +1,7 @@
 package backpack.object;
 
+import backpack.Shape;
+
 import java.util.Objects;
 
 public class ManaStone implements Equipment {
@@ -7,7 +9,7 @@ public class ManaStone implements Equipment {
 	private final String name;
 	private final int manaBasic;
 	private int manaFight;
-	private final boolean[][] shape;
+	private final Shape shape;
 	private final Rarity rarity;
 	private final String type;
 
@@ -19,8 +21,7 @@ public class ManaStone implements Equipment {
 		Objects.requireNonNull(rarity);
 		Objects.requireNonNull(type);
 
-		shape = new boolean[1][1];
-		shape[0][0] = true;
+		shape = Shape.of(new boolean[][] { { true } });
 		this.manaBasic = manaBasic;
 		this.type = type;
 		this.name = name;
@@ -31,6 +32,10 @@ public class ManaStone implements Equipment {
 		return name;
 	}
 
+	public int manaBasic() {
+		return manaBasic;
+	}
+
 	public String type() {
 		return type;
 	}
@@ -56,7 +61,7 @@ public class ManaStone implements Equipment {
 		manaFight = manaBasic;
 	}
 
-	public boolean[][] shape() {
+	public Shape shape() {
 		return shape;
 	}
 
@@ -68,4 +73,11 @@ public class ManaStone implements Equipment {
 		return manaFight;
 	}
 
+	@Override
+	public ManaStone copy() {
+		var copy = new ManaStone(name, manaBasic, type, rarity);
+		copy.manaFight = manaFight;
+		return copy;
+	}
+
 }
@@ -0,0 +1,458 @@
+package combat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.random.RandomGenerator;
+
+import actions.Action;
+import backpack.BackPack;
+import backpack.PlacementObjective;
+import backpack.Position;
+import backpack.object.Armor;
+import backpack.object.Consumable;
+import backpack.object.Curse;
+import backpack.object.Equipment;
+import backpack.object.Gear;
+import backpack.object.ManaStone;
+import backpack.object.PotionType;
+import backpack.object.WeaponType;
+import fighter.Enemy;
+import fighter.Hero;
+
+/**
+ * A fight between the hero and a group of enemies, with no display state. The
+ * enemies draw their actions from the given generator, so the same generator
+ * seed plays the same fight. A curse thrown by an enemy is kept as pending,
+ * the caller decides to place it or to refuse it.
+ */
+public final class Combat {
+	private static final int MELEE_DAMAGE = 4;
+	private static final int MELEE_COST = 1;
+	private static final int MAX_ACTIONS_PER_TURN = 32; // garde-fou contre les armes à coût nul
+
+	private final Hero hero;
+	private final List<Enemy> enemies;
+	private final RandomGenerator rand;
+	private int selectedEnemyIndex = 0;
+	private List<Action> nextEnemyActions = List.of();
+	private Curse pendingCurse;
+	private int turns = 0;
+	private int curseRefusalCount = 0;
+
+	/**
+	 * Create a fight, call {@link #start()} before playing it.
+	 *
+	 * @param hero    hero with his backpack
+	 * @param enemies enemies of the fight, at least one
+	 * @param rand    generator of the enemy actions
+	 */
+	public Combat(Hero hero, List<Enemy> enemies, RandomGenerator rand) {
+		Objects.requireNonNull(hero);
+		Objects.requireNonNull(enemies);
+		Objects.requireNonNull(rand);
+		if (enemies.isEmpty()) {
+			throw new IllegalArgumentException("pas d'ennemi");
+		}
+		this.hero = hero;
+		this.enemies = List.copyOf(enemies);
+		this.rand = rand;
+	}
+
+	/**
+	 * Reset the hero for a new fight, announce the enemy actions and add the
+	 * armor protection.
+	 */
+	public void start() {
+		nextEnemyActions = rollActions();
+		hero.resetEnergie();
+		hero.resetMana();
+		hero.rechargerManaStones();
+		hero.addProtection(armorProtection(hero.getBackpack()));
+	}
+
+	public Hero hero() {
+		return hero;
+	}
+
+	public List<Enemy> enemies() {
+		return enemies;
+	}
+
+	public Enemy selectedEnemy() {
+		return enemies.get(selectedEnemyIndex);
+	}
+
+	public int selectedEnemyIndex() {
+		return selectedEnemyIndex;
+	}
+
+	public void selectEnemy(int index) {
+		if (index < 0 || index >= enemies.size()) {
+			throw new IllegalArgumentException();
+		}
+		selectedEnemyIndex = index;
+	}
+
+	public List<Action> nextEnemyActions() {
+		return nextEnemyActions;
+	}
+
+	/**
+	 * Number of enemy turns played
+	 */
+	public int turns() {
+		return turns;
+	}
+
+	public Curse pendingCurse() {
+		return pendingCurse;
+	}
+
+	public void clearPendingCurse() {
+		pendingCurse = null;
+	}
+
+	/**
+	 * Return true if every enemy is dead.
+	 */
+	public boolean isWon() {
+		for (var enemy : enemies) {
+			if (enemy.isAlive()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Return true if the hero is dead.
+	 */
+	public boolean isLost() {
+		return !hero.isAlive();
+	}
+
+	public boolean isOver() {
+		return isWon() || isLost();
+	}
+
+	/**
+	 * Sum of the protection of the armors in a backpack.
+	 */
+	public static int armorProtection(BackPack bag) {
+		Objects.requireNonNull(bag);
+		int sum = 0;
+		for (var eq : bag.items()) {
+			switch (eq) {
+				case Armor armor -> sum += armor.protection();
+				default -> {
+				}
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Apply a curse effect to the hero.
+	 */
+	public static void applyCurse(Hero hero, Curse curse) {
+		Objects.requireNonNull(hero);
+		Objects.requireNonNull(curse);
+		switch (curse.malusType()) {
+		case HEAL -> hero.takeDamage(curse.malus());
+		case DAMAGE -> hero.setWeakDamageMalus(curse.malus());
+		case WEAK -> hero.setEnergyPenalty(curse.malus());
+		}
+	}
+
+	/**
+	 * Use an item of the backpack (gear, mana stone or consumable) on the selected
+	 * enemy.
+	 *
+	 * @return true if the selected enemy died
+	 */
+	public boolean useItem(Equipment item) {
+		Objects.requireNonNull(item);
+		var enemy = selectedEnemy();
+		switch (item) {
+		case Gear gear -> {
+			if (gear.basicDamage() > 0) {
+				return useWeapon(gear, enemy);
+			} else if (gear.protectionBasic() > 0) {
+				useShield(gear);
+			}
+		}
+		case ManaStone manaStone -> useManaStone(manaStone);
+		case Consumable consumable -> useConsumable(consumable);
+		default -> {
+		}
+		}
+		return false;
+	}
+
+	/**
+	 * Hit the selected enemy bare-handed.
+	 *
+	 * @return true if the selected enemy died
+	 */
+	public boolean meleeAttack() {
+		var enemy = selectedEnemy();
+		if (!hero.useEnergy(MELEE_COST)) {
+			return false;
+		}
+		enemy.takeDamage(hero.applyOutgoingDamage(MELEE_DAMAGE));
+		return killed(enemy);
+	}
+
+	private int arrowMultiplier() {
+		var arrow = hero.getBackpack().findArrowInBackpack();
+		if (arrow == null) {
+			return -1;
+		}
+		return arrow.damage() / 2;
+	}
+
+	private boolean useWeapon(Gear gear, Enemy enemy) {
+		int base = gear.basicDamage();
+		if (gear.getWeaponType() == WeaponType.BOW) {
+			var arrow = arrowMultiplier();
+			if (arrow == -1) {
+				return false;
+			}
+			base *= arrow;
+		}
+		if (hero.energyPenalty() != 0) {
+			hero.useEnergy(hero.energyPenalty());
+		}
+		if (!hero.useEnergy(gear.cost())) {
+			return false;
+		}
+		if (gear.typeW() == WeaponType.MAGIC && gear.mana() > 0 && !hero.useMana(gear.mana())) {
+			hero.addEnergy(gear.cost());
+			return false;
+		}
+		int bonus = hero.getBackpack().bonusDamage(gear);
+		enemy.takeDamage(hero.applyOutgoingDamage(base + bonus));
+		return killed(enemy);
+	}
+
+	private void useShield(Gear gear) {
+		if (hero.useEnergy(gear.cost())) {
+			hero.addProtection(gear.protectionBasic());
+		}
+	}
+
+	private void useManaStone(ManaStone manaStone) {
+		if (manaStone.getManaFight() > 0) {
+			manaStone.useMana(1);
+			hero.addMana(1);
+		}
+	}
+
+	private void useConsumable(Consumable consumable) {
+		var bag = hero.getBackpack();
+		var positions = bag.getPos(consumable);
+		if (!positions.isEmpty()) {
+			consumable.use(hero);
+			Position first = positions.get(0);
+			bag.withdraw(first.line(), first.col());
+		}
+	}
+
+	/**
+	 * Select the next alive enemy if the given one just died.
+	 */
+	private boolean killed(Enemy enemy) {
+		if (enemy.isAlive()) {
+			return false;
+		}
+		for (int i = 0; i < enemies.size(); i++) {
+			if (enemies.get(i).isAlive()) {
+				selectedEnemyIndex = i;
+				break;
+			}
+		}
+		return true;
+	}
+
+	private List<Action> rollActions() {
+		var actions = new ArrayList<Action>();
+		for (var enemy : enemies) {
+			if (enemy.isAlive()) {
+				actions.addAll(enemy.randomActions(rand));
+			}
+		}
+		return List.copyOf(actions);
+	}
+
+	/**
+	 * Play the turn of the enemies. A curse is kept as pending if none is
+	 * already pending.
+	 */
+	public void enemyTurn() {
+		for (var enemy : enemies) {
+			if (enemy.isAlive()) {
+				enemy.resetProtection();
+			}
+		}
+		hero.resetProtection();
+		var actions = rollActions();
+		nextEnemyActions = actions;
+		for (var action : actions) {
+			execute(action);
+		}
+		turns++;
+		if (hero.isAlive()) {
+			hero.resetEnergie();
+		}
+	}
+
+	private void execute(Action action) {
+		switch (action.getType()) {
+		case ATTACK -> hero.takeDamage(action.getVal());
+		case PROTECTION -> {
+			var enemy = firstAlive();
+			if (enemy != null) {
+				enemy.addProtection(action.getVal());
+			}
+		}
+		case HEAL -> {
+			var enemy = firstAlive();
+			if (enemy != null) {
+				enemy.heal(action.getVal());
+			}
+		}
+		case CURSE -> {
+			if (pendingCurse == null) {
+				pendingCurse = action.getGear();
+			}
+		}
+		}
+	}
+
+	private Enemy firstAlive() {
+		for (var enemy : enemies) {
+			if (enemy.isAlive()) {
+				return enemy;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Play the hero turn with a greedy policy: drink a heal potion under half
+	 * HP, draw the mana the magic weapons need, then spend the energy on the
+	 * attack with the most damage per energy, bare hands included.
+	 */
+	public void playHeroTurn() {
+		var items = hero.getBackpack().items();
+		if (hero.getCurrentHp() * 2 <= hero.getMaxHp()) {
+			for (var item : items) {
+				if (item instanceof Consumable potion && potion.type() == PotionType.HEAL) {
+					useConsumable(potion);
+					break;
+				}
+			}
+		}
+		drawMana(items);
+		for (int i = 0; i < MAX_ACTIONS_PER_TURN && !isOver(); i++) {
+			var weapon = bestWeapon(items);
+			if (weapon != null) {
+				useWeapon(weapon, selectedEnemy());
+			} else if (!meleeAttack()) {
+				return;
+			}
+		}
+	}
+
+	private void drawMana(List<Equipment> items) {
+		int needed = 0;
+		for (var item : items) {
+			if (item instanceof Gear gear && gear.typeW() == WeaponType.MAGIC) {
+				needed = Math.max(needed, gear.mana());
+			}
+		}
+		for (var item : items) {
+			if (item instanceof ManaStone stone) {
+				while (hero.getCurrentMana() < needed && stone.getManaFight() > 0) {
+					useManaStone(stone);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Weapon the hero can use now that beats bare hands, or null
+	 */
+	private Gear bestWeapon(List<Equipment> items) {
+		Gear best = null;
+		int bestDamage = MELEE_DAMAGE;
+		int bestCost = MELEE_COST;
+		int energy = hero.getCurrentEnergy();
+		for (var item : items) {
+			if (!(item instanceof Gear gear) || gear.basicDamage() == 0) {
+				continue;
+			}
+			int cost = gear.cost() + hero.energyPenalty();
+			if (cost > energy || (gear.typeW() == WeaponType.MAGIC && hero.getCurrentMana() < gear.mana())) {
+				continue;
+			}
+			int base = gear.basicDamage();
+			if (gear.getWeaponType() == WeaponType.BOW) {
+				int arrow = arrowMultiplier();
+				if (arrow <= 0) {
+					continue;
+				}
+				base *= arrow;
+			}
+			int damage = base + hero.getBackpack().bonusDamage(gear);
+			int units = Math.max(cost, 1);
+			if (damage * bestCost > bestDamage * units) {
+				best = gear;
+				bestDamage = damage;
+				bestCost = units;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Place the pending curse where the placement solver puts it, or refuse it
+	 * and take damage if it fits nowhere.
+	 */
+	public void settleCurse() {
+		if (pendingCurse == null) {
+			return;
+		}
+		var bag = hero.getBackpack();
+		var best = bag.bestPlacement(pendingCurse, PlacementObjective.DEFAULT);
+		if (best != null && bag.placeCurse(pendingCurse, best.line(), best.col())) {
+			applyCurse(hero, pendingCurse);
+		} else {
+			curseRefusalCount++;
+			hero.takeDamage(curseRefusalCount);
+		}
+		pendingCurse = null;
+	}
+
+	/**
+	 * Play the whole fight with the greedy policy.
+	 *
+	 * @param maxTurns maximum number of enemy turns
+	 * @return true if the hero won
+	 */
+	public boolean play(int maxTurns) {
+		if (maxTurns < 0) {
+			throw new IllegalArgumentException();
+		}
+		while (!isOver() && turns < maxTurns) {
+			playHeroTurn();
+			if (isOver()) {
+				break;
+			}
+			enemyTurn();
+			settleCurse();
+		}
+		return isWon();
+	}
+}
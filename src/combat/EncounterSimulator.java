@@ -0,0 +1,255 @@
+package combat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+
+import dungeon.Seed;
+import fighter.Enemy;
+import fighter.EnemyInfo;
+import fighter.Hero;
+
+/**
+ * Monte Carlo estimation of the outcome of an encounter. Each fight starts
+ * from a copy of the same hero and is played by {@link Combat#play(int)}.
+ * Fights are cut in chunks of fixed size, each chunk with its own stream
+ * split from the seed, so a seed always gives the same report whatever the number of
+ * threads.
+ */
+public final class EncounterSimulator {
+	private static final int CHUNK = 1024;
+
+	/**
+	 * Outcome of a batch of fights.
+	 *
+	 * @param fights   number of fights played
+	 * @param wins     number of fights won by the hero
+	 * @param timeouts number of fights stopped by the turn limit
+	 * @param turns    number of fights per hero turns played, index is the
+	 *                 number of turns
+	 * @param hpLost   number of fights per HP lost by the hero, index is the HP
+	 *                 lost
+	 */
+	public record Report(int fights, int wins, int timeouts, long[] turns, long[] hpLost) {
+		public Report {
+			if (fights < 0 || wins < 0 || timeouts < 0 || wins + timeouts > fights) {
+				throw new IllegalArgumentException();
+			}
+			turns = turns.clone();
+			hpLost = hpLost.clone();
+		}
+
+		@Override
+		public long[] turns() {
+			return turns.clone();
+		}
+
+		@Override
+		public long[] hpLost() {
+			return hpLost.clone();
+		}
+
+		public double winRate() {
+			return fights == 0 ? 0 : (double) wins / fights;
+		}
+
+		public double meanTurns() {
+			return mean(turns, fights);
+		}
+
+		public double meanHpLost() {
+			return mean(hpLost, fights);
+		}
+
+		/**
+		 * Smallest number of turns reached by at least the given fraction of the
+		 * fights
+		 */
+		public int turnsPercentile(double fraction) {
+			return percentile(turns, fights, fraction);
+		}
+
+		/**
+		 * Smallest HP loss reached by at least the given fraction of the fights
+		 */
+		public int hpLostPercentile(double fraction) {
+			return percentile(hpLost, fights, fraction);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Report r && fights == r.fights && wins == r.wins && timeouts == r.timeouts
+					&& Arrays.equals(turns, r.turns) && Arrays.equals(hpLost, r.hpLost);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(fights, wins, timeouts, Arrays.hashCode(turns), Arrays.hashCode(hpLost));
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d fights, win %.1f%%, %d timeouts, turns %.2f (p90 %d), HP lost %.2f (p90 %d)",
+					fights, winRate() * 100, timeouts, meanTurns(), turnsPercentile(0.9), meanHpLost(),
+					hpLostPercentile(0.9));
+		}
+	}
+
+	private final int maxTurns;
+	private final boolean parallel;
+
+	/**
+	 * @param maxTurns maximum number of enemy turns of a fight
+	 * @param parallel play the chunks on the common fork-join pool
+	 */
+	public EncounterSimulator(int maxTurns, boolean parallel) {
+		if (maxTurns <= 0) {
+			throw new IllegalArgumentException("maxTurns must be positive");
+		}
+		this.maxTurns = maxTurns;
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Simulate fights against a fixed lineup.
+	 *
+	 * @param hero   hero to copy at the start of each fight, not modified
+	 * @param lineup enemies of each fight
+	 * @param fights number of fights
+	 * @param seed   seed of the whole batch
+	 */
+	public Report run(Hero hero, List<EnemyInfo> lineup, int fights, long seed) {
+		Objects.requireNonNull(lineup);
+		if (lineup.isEmpty()) {
+			throw new IllegalArgumentException("pas d'ennemi");
+		}
+		var infos = List.copyOf(lineup);
+		return run(hero, rand -> {
+			var enemies = new ArrayList<Enemy>(infos.size());
+			for (var info : infos) {
+				enemies.add(new Enemy(info));
+			}
+			return enemies;
+		}, fights, seed);
+	}
+
+	/**
+	 * Simulate fights against enemies drawn for each fight, for example by
+	 * {@link fighter.EnemyCreation#createRandom(RandomGenerator)}.
+	 *
+	 * @param hero      hero to copy at the start of each fight, not modified
+	 * @param encounter draw the enemies of a fight, must be thread safe if the
+	 *                  simulator is parallel
+	 * @param fights    number of fights
+	 * @param seed      seed of the whole batch
+	 */
+	public Report run(Hero hero, Function<RandomGenerator, List<Enemy>> encounter, int fights, long seed) {
+		Objects.requireNonNull(hero);
+		Objects.requireNonNull(encounter);
+		if (fights < 0) {
+			throw new IllegalArgumentException("fights must be positive");
+		}
+		var snapshot = hero.copy(); // l'appelant peut continuer à modifier son héros
+		int chunks = (fights + CHUNK - 1) / CHUNK;
+		var root = Seed.root(seed);
+		var generators = root.splits(chunks).toList(); // dans l'ordre des chunks, pas des threads
+		var range = IntStream.range(0, chunks);
+		if (parallel) {
+			range = range.parallel();
+		}
+		var tally = range
+				.mapToObj(c -> chunk(snapshot, encounter, generators.get(c), Math.min(CHUNK, fights - c * CHUNK)))
+				.reduce(new Tally(snapshot.getCurrentHp()), Tally::merge);
+		return tally.report();
+	}
+
+	private Tally chunk(Hero snapshot, Function<RandomGenerator, List<Enemy>> encounter, RandomGenerator rand,
+			int fights) {
+		var tally = new Tally(snapshot.getCurrentHp());
+		for (int i = 0; i < fights; i++) {
+			var hero = snapshot.copy();
+			var combat = new Combat(hero, encounter.apply(rand), rand);
+			combat.start();
+			boolean won = combat.play(maxTurns);
+			// le héros joue avant les ennemis : un combat gagné a un tour de héros de plus
+			int turns = combat.turns() + (won ? 1 : 0);
+			tally.add(won, !combat.isOver(), turns, snapshot.getCurrentHp() - hero.getCurrentHp());
+		}
+		return tally;
+	}
+
+	/**
+	 * Counters of a chunk, merged in any order since they are sums.
+	 */
+	private final class Tally {
+		private int fights;
+		private int wins;
+		private int timeouts;
+		private final long[] turns = new long[maxTurns + 2];
+		private final long[] hpLost;
+
+		Tally(int maxHpLost) {
+			hpLost = new long[maxHpLost + 1];
+		}
+
+		void add(boolean won, boolean timeout, int turnCount, int lost) {
+			fights++;
+			if (won) {
+				wins++;
+			}
+			if (timeout) {
+				timeouts++;
+			}
+			turns[turnCount]++;
+			hpLost[Math.clamp(lost, 0, hpLost.length - 1)]++; // un soin peut finir au-dessus du départ
+		}
+
+		Tally merge(Tally other) {
+			var merged = new Tally(hpLost.length - 1);
+			merged.fights = fights + other.fights;
+			merged.wins = wins + other.wins;
+			merged.timeouts = timeouts + other.timeouts;
+			for (int i = 0; i < turns.length; i++) {
+				merged.turns[i] = turns[i] + other.turns[i];
+			}
+			for (int i = 0; i < hpLost.length; i++) {
+				merged.hpLost[i] = hpLost[i] + other.hpLost[i];
+			}
+			return merged;
+		}
+
+		Report report() {
+			return new Report(fights, wins, timeouts, turns, hpLost);
+		}
+	}
+
+	private static double mean(long[] histogram, int count) {
+		if (count == 0) {
+			return 0;
+		}
+		long sum = 0;
+		for (int i = 0; i < histogram.length; i++) {
+			sum += i * histogram[i];
+		}
+		return (double) sum / count;
+	}
+
+	private static int percentile(long[] histogram, int count, double fraction) {
+		if (fraction < 0 || fraction > 1) {
+			throw new IllegalArgumentException();
+		}
+		long target = (long) Math.ceil(fraction * count);
+		long seen = 0;
+		for (int i = 0; i < histogram.length; i++) {
+			seen += histogram[i];
+			if (seen >= target && seen > 0) {
+				return i;
+			}
+		}
+		return histogram.length - 1;
+	}
+}
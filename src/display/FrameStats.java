@@ -0,0 +1,182 @@
+package display;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Times of the phases of the game loop, to find where a frame is slow.
+ * <p>
+ * Each phase keeps a {@link LatencyHistogram} of its times. With the JFR mode
+ * every timed phase is also a {@code backpackhero.Phase} event of Java Flight
+ * Recorder, recorded with the rest of the JVM when a recording runs, for
+ * example with {@code -XX:StartFlightRecording}. A phase is started and
+ * stopped on the game loop thread and must be stopped before it is started
+ * again, different phases can be nested.
+ */
+public final class FrameStats {
+	/**
+	 * Phases timed by the game.
+	 */
+	public enum Phase {
+		/** Handling of an event, drawing included. */
+		EVENT("événement"),
+		/** Changes of the game data by an event, the handling without the drawing. */
+		UPDATE("mise à jour"),
+		/** A whole frame. */
+		DRAW("dessin"),
+		BACKPACK("sac"),
+		DUNGEON("donjon"),
+		COMBAT("combat"),
+		MERCHANT("marchand");
+
+		private final String label;
+
+		Phase(String label) {
+			this.label = label;
+		}
+
+		public String label() {
+			return label;
+		}
+	}
+
+	@Name("backpackhero.Phase")
+	@Label("Phase de jeu")
+	@Category("Backpack Hero")
+	@Description("Temps d'une phase de la boucle de jeu")
+	static final class PhaseEvent extends Event {
+		@Label("Phase")
+		String phase;
+
+		@Label("Temps")
+		@Timespan(Timespan.NANOSECONDS)
+		long time; // la mise à jour est calculée, elle n'a pas de début propre
+	}
+
+	private static final Phase[] PHASES = Phase.values();
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+	private final Map<Phase, LatencyHistogram> histograms = new EnumMap<>(Phase.class);
+	private final long[] starts = new long[PHASES.length];
+	private final PhaseEvent[] events = new PhaseEvent[PHASES.length];
+	private final boolean jfr;
+
+	/**
+	 * Create the times of a game.
+	 *
+	 * @param jfr also give each phase to Java Flight Recorder
+	 */
+	public FrameStats(boolean jfr) {
+		this.jfr = jfr;
+		for (var phase : PHASES) {
+			histograms.put(phase, new LatencyHistogram());
+		}
+	}
+
+	public boolean jfr() {
+		return jfr;
+	}
+
+	/**
+	 * Start timing a phase.
+	 */
+	public void start(Phase phase) {
+		if (jfr) {
+			var event = new PhaseEvent();
+			event.begin();
+			events[phase.ordinal()] = event;
+		}
+		starts[phase.ordinal()] = System.nanoTime();
+	}
+
+	/**
+	 * Stop timing a phase and count its time.
+	 *
+	 * @return long the time of the phase in nanoseconds
+	 */
+	public long stop(Phase phase) {
+		long nanos = System.nanoTime() - starts[phase.ordinal()];
+		histograms.get(phase).record(nanos);
+		if (jfr) {
+			var event = events[phase.ordinal()];
+			events[phase.ordinal()] = null;
+			if (event != null && event.shouldCommit()) {
+				event.phase = phase.label();
+				event.time = nanos;
+				event.commit();
+			}
+		}
+		return nanos;
+	}
+
+	/**
+	 * Count a time measured another way, like a phase computed from two others.
+	 */
+	public void record(Phase phase, long nanos) {
+		histograms.get(phase).record(nanos);
+		if (jfr) {
+			var event = new PhaseEvent();
+			if (event.shouldCommit()) {
+				event.phase = phase.label();
+				event.time = nanos;
+				event.commit();
+			}
+		}
+	}
+
+	/**
+	 * Sum of the times of a phase, in nanoseconds.
+	 */
+	public long total(Phase phase) {
+		return histograms.get(phase).total();
+	}
+
+	public LatencyHistogram histogram(Phase phase) {
+		return histograms.get(phase);
+	}
+
+	/**
+	 * Forget every time.
+	 */
+	public void reset() {
+		for (var histogram : histograms.values()) {
+			histogram.reset();
+		}
+	}
+
+	/**
+	 * Give one line for each phase already timed: count, percentiles and
+	 * maximum, in milliseconds.
+	 */
+	public List<String> summary() {
+		var lines = new ArrayList<String>();
+		for (var phase : PHASES) {
+			var histogram = histograms.get(phase);
+			if (histogram.count() == 0) {
+				continue;
+			}
+			var line = new StringBuilder(String.format(Locale.ROOT, "%-12s %7d", phase.label(), histogram.count()));
+			for (var percentile : PERCENTILES) {
+				line.append(String.format(Locale.ROOT, "  p%s %7.3f", percentile == (int) percentile
+						? String.valueOf((int) percentile) : String.valueOf(percentile), millis(histogram.percentile(percentile))));
+			}
+			line.append(String.format(Locale.ROOT, "  max %7.3f ms", millis(histogram.max())));
+			lines.add(line.toString());
+		}
+		return lines;
+	}
+
+	private static double millis(long nanos) {
+		return nanos / 1_000_000.0;
+	}
+}
@@ -1,36 +1,43 @@
 package display;
 
-import java.util.random.RandomGenerator;
-
 import com.github.forax.zen.ApplicationContext;
 import com.github.forax.zen.KeyboardEvent;
 import com.github.forax.zen.PointerEvent;
 import backpack.Position;
-import backpack.object.Curse;
-import backpack.object.Equipment;
-import dungeon.Coord;
-import dungeon.Room;
 
 import java.util.Objects;
 
 public class GameController {
 	private boolean rotation = false;
+	private long waited; // temps passé à attendre un second clic pendant l'événement en cours
+
+	/**
+	 * Handle the next event, if one comes within 10 ms. The handling is timed in
+	 * the stats of the view: the whole event, and the update of the data alone,
+	 * which is the event without its drawing.
+	 * 
+	 * @return boolean false to stop the game
+	 */
 	public boolean gameLoop(ApplicationContext context, GameData data, GameView view) {
 		Objects.requireNonNull(context);
 		Objects.requireNonNull(data);
 		Objects.requireNonNull(view);
 		var event = context.pollOrWaitEvent(10);
-		switch (event) {
-		case null -> {
+		if (event == null) {
 			return true;
 		}
-		case KeyboardEvent ke -> {
-			return handleKeyboard(ke, data, view, context);
-		}
-		case PointerEvent pe -> {
-			return handlePointer(pe, data, view, context);
-		}
-		}
+		var stats = view.stats();
+		long start = System.nanoTime();
+		long drawn = stats.total(FrameStats.Phase.DRAW);
+		waited = 0;
+		var running = switch (event) {
+		case KeyboardEvent ke -> handleKeyboard(ke, data, view, context);
+		case PointerEvent pe -> handlePointer(pe, data, view, context);
+		};
+		long nanos = System.nanoTime() - start - waited; // le joueur qui réfléchit n'est pas une lenteur
+		stats.record(FrameStats.Phase.EVENT, nanos);
+		stats.record(FrameStats.Phase.UPDATE, nanos - (stats.total(FrameStats.Phase.DRAW) - drawn));
+		return running;
 	}
 	/**
 	 * Handle mouse pointer events for all game interactions.
@@ -106,6 +113,15 @@ public class GameController {
 	 */
 	private Position waitSecondClick(ApplicationContext context) {
 		Objects.requireNonNull(context, "context");
+		long start = System.nanoTime();
+		try {
+			return nextClick(context);
+		} finally {
+			waited += System.nanoTime() - start;
+		}
+	}
+
+	private Position nextClick(ApplicationContext context) {
 		for (;;) {
 			var e = context.pollOrWaitEvent(16);
 			if (e == null) {
@@ -145,6 +161,10 @@ public class GameController {
 			System.exit(0);
 			return false;
 		}
+		case T -> {
+			view.toggleStats();
+			GameView.draw(context, data, view);
+		}
 		case D -> {
 			data.changeShowDungeon(); // on laisse pouvoir voir le dongon même en combat si jamais on veut voir si on
 																// a d'autre ennemi à venir etc par ex
@@ -162,6 +182,10 @@ public class GameController {
 		case C -> {
 			dropItem(data, view, context);
 		}
+		case P -> {
+			data.autoPlace();
+			GameView.draw(context, data, view);
+		}
 		case A -> {
 			if (data.inFight()) {
 				data.selectEnemy(0);
@@ -190,7 +214,7 @@ public class GameController {
 			// Si on a un trésor et qu'on clique dessus
 			if (data.hasPendingItem() && InteractionArea(location, view)) {
 				if (view.isClickingOnTreasureItem(location, data)) {
-					data.startDragging(data.pendingItem(), location, rotation);
+					data.dragPendingItem(location, rotation);
 					return;
 				}
 			}
@@ -212,33 +236,11 @@ public class GameController {
 			if (cell == null || data.backpack().detection(cell.line(), cell.col()) == null) {
 				return;
 			}
-			var item = data.backpack().detection(cell.line(), cell.col());
-			switch (item) {
-			case Curse _ -> {
-				data.hero().clearCombatMaluses();
-				data.penalize();
-			}
-			default -> {
-			}
-			}
-			data.backpack().withdraw(cell.line(), cell.col());
+			data.discardItem(cell);
 			GameView.draw(context, data, view);
 		}
 	}
 
-	private Position originCell(GameData data, Equipment item) {
-		var pos = data.backpack().getPos(item);
-		int minLine = Integer.MAX_VALUE;
-		int minCol = Integer.MAX_VALUE;
-		for (var p : pos) {
-			if (p.line() < minLine)
-				minLine = p.line();
-			if (p.col() < minCol)
-				minCol = p.col();
-		}
-		return new Position(minLine, minCol);
-	}
-
 	/**
 	 * Start dragging an item from the backpack or rewards area.
 	 */
@@ -251,8 +253,7 @@ public class GameController {
 		if (!data.combatRewards().isEmpty()) {
 			int idx = view.screenToRewardIndex(location, data.combatRewards().size());
 			if (idx != -1) {
-				Equipment item = data.combatRewards().get(idx);
-				data.startDragging(item, location, rotation);
+				data.dragReward(idx, location, rotation);
 				GameView.draw(context, data, view);
 				return true;
 			}
@@ -262,12 +263,7 @@ public class GameController {
 			if (cell == null || data.backpack().detection(cell.line(), cell.col()) == null) {
 				return false;
 			}
-			Equipment temp = data.backpack().detection(cell.line(), cell.col());// pour voir on a quel item à la position
-			Position origin = originCell(data, temp);
-			var oldRotation = data.backpack().getRotation(temp);
-			data.backpack().withdraw(cell.line(), cell.col()); // on retire l'item du backpack quand on le déplace sinon sa
-																													// bloquerait les cases alors qu'on veut le bouger
-			data.startDraggingFromBackpack(temp, location, origin, oldRotation);
+			data.dragFromBackpack(cell, location);
 			GameView.draw(context, data, view);
 			return true;
 		}
@@ -277,35 +273,13 @@ public class GameController {
 	 * Handle clicks on the dungeon map to move the hero.
 	 */
 	private void handleDungeonClick(Position location, GameData data, GameView view, ApplicationContext context) {
-		var dungeonCoord = view.screenToDungeonCell(location);
-		if (dungeonCoord == null) {
-			return;
-		}
-		Room clickedRoom = data.floor().room(dungeonCoord.line(), dungeonCoord.col());
-		if (clickedRoom == null) { // qu'on appuie sur une case vide
+		var dungeonCoord = view.screenToDungeonCell(location, data);
+		if (dungeonCoord == null || data.floor().room(dungeonCoord.line(), dungeonCoord.col()) == null) { // case vide
 			return;
 		}
-		Coord heroPos = data.hero().pos();
-		if (!isAdjacent(heroPos, dungeonCoord)) { // on vérifie si on se déplace à c$ôté
-			return;
+		if (data.moveHero(dungeonCoord)) { // faux si aucun passage ne mène à cette salle
+			data.changeShowDungeon(); // une fois qu'on a appuyé sur notre salle on ferme le donjon
 		}
-		// Se déplacer vers la case adjacente
-		data.hero().initPos(dungeonCoord);
-		clickedRoom.toVisit();
-		if (data.hasPendingItem()) { // comme on bouge on retire l'item qu'on avait en attente
-			data.clearPendingItem();
-		}
-		data.enterRoom(clickedRoom.roomType());
-		data.handleRoomEntry();
-		data.changeShowDungeon(); // une fois qu'on a appuyé sur notre salle on ferme le donjon
-	}
-	/**
-	 * Check if two positions are adjacent in the dungeon.
-	 */
-	private boolean isAdjacent(Coord heroPos, Coord targetPos) {
-		int lineDiff = Math.abs(heroPos.line() - targetPos.line());
-		int colDiff = Math.abs(heroPos.col() - targetPos.col());
-		return (lineDiff == 1 && colDiff == 0) || (lineDiff == 0 && colDiff == 1);
 	}
 
 	private void handleInteractionClick(Position location, GameData data, GameView view, ApplicationContext context) {
@@ -319,22 +293,15 @@ public class GameController {
 		if (InteractionArea(location, view)) {
 			int choice = view.screenToHealerchoice(location);
 			switch (choice) {
-			case 0 -> { // heal de 25hp
-				if (data.hero().getCurrentHp() == data.hero().getMaxHp()) { // déjà full vie
-					return;
-				}
-				if (!data.backpack().pay(4)) { // pas assez d'or
-					return;
+			case 0 -> { // heal de 25hp, rien si déjà full vie ou pas assez d'or
+				if (data.healerHeal()) {
+					GameView.draw(context, data, view);
 				}
-				data.hero().heal(25);
-				GameView.draw(context, data, view);
 			}
 			case 1 -> { // augmente les hp max de 5
-				if (!data.backpack().pay(10)) {
-					return;
+				if (data.healerRaiseMaxHp()) {
+					GameView.draw(context, data, view);
 				}
-				data.hero().increaseMaxHp(5);
-				GameView.draw(context, data, view);
 			}
 			case 2 -> { // pour sortir
 				data.endHealer();
@@ -351,24 +318,19 @@ public class GameController {
 	 */
 	private void handleRewards(Position location, GameData data, GameView view, ApplicationContext context) {
 		if (view.isClickingRewardLeave(location)) {
-			data.clearCombatRewards();
-			data.clearMerchantSelection();
-			data.endDragging();
+			data.leaveRewards();
 			return;
 		}
 		int i = view.screenToRewardIndex(location, data.combatRewards().size());
 		if (i != -1) {
-			Equipment item = data.combatRewards().get(i);
-			data.startDragging(item, location, rotation);
+			data.dragReward(i, location, rotation);
 			GameView.draw(context, data, view);
 		}
 	}
 
 	private boolean leaveMerchant(Position location, GameData data, GameView view) {
 		if (view.isClickingMerchantLeave(location)) {
-			data.endMerchant();
-			data.clearMerchantSelection();
-			data.endDragging();
+			data.leaveMerchant();
 			return true;
 		}
 		return false;
@@ -376,16 +338,8 @@ public class GameController {
 
 	private void selectItemMerchant(Position location, GameData data, GameView view) {
 		int idx = view.screenToMerchantIndex(location, data.merchantSlot().size());
-		if (idx != -1) {
-			Equipment item = data.merchantSlot().get(idx);
-			int price = data.getPriceFromRarity(item.rarity());
-			// check Gold
-			if (data.backpack().getGold() < price) {
-				System.out.println("Pas assez d'or");
-				return;
-			}
-			data.setMerchantSelectedIndex(idx);
-			data.startDragging(item, location, rotation);
+		if (idx != -1 && !data.dragMerchantItem(idx, location, rotation)) {
+			System.out.println("Pas assez d'or");
 		}
 	}
 
@@ -401,22 +355,9 @@ public class GameController {
 			Position cell = view.screenToBackpackCell(location, data.backpack());
 			if (cell == null)
 				return;
-			Equipment item = data.draggingItem();
-			// Vérif placement
-			if (!data.backpack().canPlace(item, cell.line(), cell.col(), data.originalRotation())) {
-				return;
-			}
-			// Vérif + paiement
-			int price = data.getPriceFromRarity(item.rarity());
-			if (data.backpack().getGold() < price) {
-				return;
+			if (data.buyDraggedItem(cell)) { // vérif placement + paiement
+				GameView.draw(context, data, view);
 			}
-			data.backpack().pay(price);
-			data.backpack().place(item, cell.line(), cell.col(), data.originalRotation());
-			data.merchantSlot().set(data.merchantSelectedIndex(), null); // retirer du marchand
-			data.clearMerchantSelection();
-			data.endMerchant();
-			GameView.draw(context, data, view);
 		}
 	}
 
@@ -447,7 +388,7 @@ public class GameController {
 			return false;
 		}
 		if (view.isClickingCurseAccept(location)) {
-			data.startDragging(data.pendingCurse(), location, false);
+			data.dragPendingCurse(location);
 			return true;
 		}
 		if (view.isClickingCurseRefuse(location)) {
@@ -495,77 +436,23 @@ public class GameController {
 		if (cell == null) {
 			return false;
 		}
-		var item = data.backpack().detection(cell.line(), cell.col());
-		if (item != null) {
-			data.useItemInCombat(item);
+		if (data.backpack().detection(cell.line(), cell.col()) != null) {
+			data.useItemAt(cell);
 		} else {
-			performMeleeAttack(data, view);
+			data.meleeAttack();
 		}
 		return true;
 	}
 
-	/**
-	 * Perform a melee attack on the selected enemy.
-	 */
-	private void performMeleeAttack(GameData data, GameView view) {
-		var hero = data.hero();
-		var enemy = data.selectedEnemy();
-		if (enemy != null && hero.useEnergy(1)) {
-			int degats = hero.applyOutgoingDamage(4);
-			enemy.takeDamage(degats);
-			if (!enemy.isAlive()) {
-				handleEnemyDeath(data);
-			}
-		}
-	}
-
-	/**
-	 * Handle enemy death and select next alive enemy.
-	 */
-	private void handleEnemyDeath(GameData data) {
-		boolean allDead = data.enemies().stream().allMatch(e -> !e.isAlive());
-		if (allDead) {
-			data.endCombat(RandomGenerator.getDefault());
-		} else {
-			for (int i = 0; i < data.enemies().size(); i++) {
-				if (data.enemies().get(i).isAlive()) {
-					data.selectEnemy(i);
-					break;
-				}
-			}
-		}
-	}
-
 	private void handleDrop(Position location, GameData data, GameView view, ApplicationContext context) {
-		Equipment item = data.draggingItem();
-		boolean dropSuccess = false; // qu'on a réussi a bien placer l'item ou non
+		Position cell = null; // null : lâché hors du sac
 		if (BackpackArea(location, view)) {
-			Position cell = view.screenToBackpackCell(location, data.backpack());
-			if (cell != null && cell.line() != -1) {
-				switch (item) {
-				case Curse curse -> { // pour le cas des malédictions
-					if (data.backpack().placeCurse(curse, cell.line(), cell.col())) { // on place la malédiction dans le sac
-						data.applyCurse(curse);
-						data.clearPendingCurse();
-						dropSuccess = true;
-					}
-				}
-				default -> {
-					boolean rotationToUse = (data.originalPosition() != null) ? data.originalRotation() : rotation;
-					dropSuccess = data.tryPlaceItem(item, cell.line(), cell.col(), rotationToUse);
-				}
-				}
-			}
-		}
-		if (!dropSuccess && data.originalPosition() != null) { // le cas où on a pas réussi à le drop et qu'on l'avait pris
-																														// du backpack
-			Position posOriginal = data.originalPosition();
-			boolean originalRotation = data.originalRotation();
-			if (data.backpack().canPlace(item, posOriginal.line(), posOriginal.col(), originalRotation)) {
-				data.backpack().place(item, posOriginal.line(), posOriginal.col(), originalRotation);
+			cell = view.screenToBackpackCell(location, data.backpack());
+			if (cell != null && cell.line() == -1) {
+				cell = null;
 			}
 		}
-		data.endDragging();
+		data.drop(cell, rotation);
 		GameView.draw(context, data, view);
 	}
 
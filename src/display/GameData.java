@@ -1,45 +1,59 @@
 package display;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 import java.util.random.RandomGenerator;
 import java.util.Objects;
 import actions.Action;
 import backpack.BackPack;
+import backpack.Placement;
+import backpack.PlacementObjective;
 import backpack.Position;
-import backpack.object.Armor;
-import backpack.object.Consumable;
 import backpack.object.Curse;
 import backpack.object.Equipment;
 import backpack.object.Gear;
-import backpack.object.ManaStone;
 import backpack.object.Rarity;
-import backpack.object.WeaponType;
+import combat.Combat;
 import dungeon.BaladeDonjon;
 import dungeon.Coord;
+import dungeon.CountingRandom;
 import dungeon.Dungeon;
 import dungeon.Floor;
+import dungeon.GameTables;
 import dungeon.GenerationItem;
-import dungeon.RandomArmor;
-import dungeon.RandomArrow;
-import dungeon.RandomGear;
-import dungeon.RandomGem;
-import dungeon.RandomManaStone;
-import dungeon.RandomPotion;
+import dungeon.LootTables;
 import dungeon.Room;
 import dungeon.RoomType;
+import dungeon.Seed;
 import fighter.Enemy;
-import fighter.EnemyCreation;
 import fighter.Hero;
 
 public class GameData {
+	/**
+	 * Parts of the screen a change of the run can show on, for the view to draw
+	 * only those again.
+	 */
+	public enum Change {
+		/** Grid or items of the backpack. */
+		BACKPACK,
+		/** Interaction panel: fight, rewards, rooms, dungeon map. */
+		HUD,
+		/** Item dragged under the mouse. */
+		CURSOR
+	}
+
 	private final Hero hero;
 	private final Dungeon dungeon;
+	private final long seed;
+	private final GameTables tables;
+	// un flux par sous-système : tirer plus dans l'un ne décale pas les autres
+	private final CountingRandom encounterRand;
+	private final CountingRandom combatRand;
+	private final CountingRandom lootRand;
+	private final CountingRandom eventRand;
 	private Gear pendingItem;
 	private BaladeDonjon balade;
 	private Curse pendingCurse;
@@ -47,9 +61,7 @@ public class GameData {
 	private boolean inFight = false;
 	private boolean inHealer = false;
 	private boolean inMerchant = false;
-	private List<Enemy> enemies = new ArrayList<>();
-	private int selectedEnemyIndex = 0;
-	private List<Action> nextEnemyActions = new ArrayList<>();
+	private Combat combat;
 	private RoomType currentRoom;
 	private boolean showDungeon = false; // mettre true pour forcer l'afficahage et voir ça ressemble à quoi
 	private Equipment draggingItem; // Item en cours de drag
@@ -59,6 +71,9 @@ public class GameData {
 	private boolean originalRotation; // Rotation d'origine de l'item
 	private boolean unlockingSlots = false;
 	private int slotsToUnlock = 0;
+	private ReplayLog.Writer replayLog; // null si la partie n'est pas enregistrée
+	private ScoreBoard scores; // null si le score n'est pas gardé, Main donne le tableau des scores
+	private SaveGame autosave; // null sans sauvegarde automatique
 	private List<Position> selectedSlots = new ArrayList<>();
 	private boolean gameOver = false;
 	private boolean victory = false;
@@ -69,14 +84,186 @@ public class GameData {
 	private int merchantSelectedIndex = -1;
 	private List<Equipment> merchantSlots = List.of();
 	private List<Equipment> combatRewards = List.of();
+	private final EnumSet<Change> changes = EnumSet.allOf(Change.class); // tout est à dessiner au début
 
 	public GameData() {
+		this(Seed.random());
+	}
+
+	/**
+	 * Create a run from a master seed, the same seed and the same moves replay
+	 * the same run.
+	 */
+	public GameData(long seed) {
+		this(seed, GameTables.standard());
+	}
+
+	/**
+	 * Create a run from a master seed, drawing gear and enemies from the given
+	 * tables.
+	 */
+	public GameData(long seed, GameTables tables) {
+		Objects.requireNonNull(tables);
+		this.seed = seed;
+		this.tables = tables;
+		var root = Seed.root(seed);
 		hero = new Hero(40);
-		dungeon = new Dungeon();
+		dungeon = new Dungeon(root.nextLong());
+		encounterRand = new CountingRandom(root.split());
+		combatRand = new CountingRandom(root.split());
+		lootRand = new CountingRandom(root.split());
+		eventRand = new CountingRandom(root.split());
 		hero.initPos(dungeon.posHero());
 		balade = new BaladeDonjon(dungeon.currentFloor(), hero);
 	}
 
+	public long seed() {
+		return seed;
+	}
+
+	/**
+	 * Record every command of the player from now on, the log and the seed replay
+	 * the run.
+	 */
+	public void recordTo(ReplayLog.Writer writer) {
+		Objects.requireNonNull(writer);
+		replayLog = writer;
+	}
+
+	/**
+	 * Save the run before each move to another room, null to stop.
+	 */
+	public void setAutosave(SaveGame save) {
+		autosave = save;
+	}
+
+	/**
+	 * Tell if the run can be saved now: not during a fight nor while an item is
+	 * dragged, and not once the run is over.
+	 */
+	public boolean canSave() {
+		return !inFight && !isDragging && !gameOver && !victory;
+	}
+
+	/**
+	 * Everything a save keeps of a run. The floors are generated again from the
+	 * seed, only the flags of their rooms are kept, and each random stream is
+	 * kept as its number of draws.
+	 */
+	record State(long seed, long[] draws, Hero.Stats hero, BackPack backpack, Coord pos, int floor,
+			List<long[]> visitedRooms, List<long[]> completedRooms, Gear pendingItem, Curse pendingCurse,
+			int curseRefusalCount, boolean inHealer, boolean inMerchant, RoomType currentRoom,
+			List<Equipment> merchantSlots, List<Equipment> combatRewards, boolean unlockingSlots, int slotsToUnlock,
+			List<Position> selectedSlots) {
+		State {
+			Objects.requireNonNull(draws);
+			Objects.requireNonNull(hero);
+			Objects.requireNonNull(backpack);
+			Objects.requireNonNull(pos);
+			if (draws.length != 4 || floor < 0 || visitedRooms.size() != floor + 1
+					|| completedRooms.size() != floor + 1) {
+				throw new IllegalArgumentException("état de partie invalide");
+			}
+			merchantSlots = List.copyOf(merchantSlots);
+			combatRewards = List.copyOf(combatRewards);
+			selectedSlots = List.copyOf(selectedSlots);
+		}
+	}
+
+	State state() {
+		if (!canSave()) {
+			throw new IllegalStateException("pas de sauvegarde pendant un combat, un déplacement d'objet ou après la fin");
+		}
+		var visitedRooms = new ArrayList<long[]>();
+		var completedRooms = new ArrayList<long[]>();
+		for (int i = 0; i <= dungeon.fluent(); i++) {
+			visitedRooms.add(dungeon.floor(i).visitedRooms());
+			completedRooms.add(dungeon.floor(i).completedRooms());
+		}
+		return new State(seed, draws(), hero.stats(), backpack(), hero.pos(), dungeon.fluent(), visitedRooms,
+				completedRooms, pendingItem, pendingCurse, curseRefusalCount, inHealer, inMerchant, currentRoom,
+				merchantSlots, combatRewards, unlockingSlots, slotsToUnlock, selectedSlots);
+	}
+
+	/**
+	 * Number of draws of each random stream, in the order of the save.
+	 */
+	long[] draws() {
+		return new long[] { encounterRand.draws(), combatRand.draws(), lootRand.draws(), eventRand.draws() };
+	}
+
+	/**
+	 * Put back a saved state in a run just created from the same seed.
+	 */
+	void restore(State state) {
+		Objects.requireNonNull(state);
+		if (state.seed() != seed || encounterRand.draws() != 0 || combatRand.draws() != 0 || lootRand.draws() != 0
+				|| eventRand.draws() != 0) {
+			throw new IllegalStateException("la partie doit être neuve et avoir la graine de la sauvegarde");
+		}
+		encounterRand.skip(state.draws()[0]);
+		combatRand.skip(state.draws()[1]);
+		lootRand.skip(state.draws()[2]);
+		eventRand.skip(state.draws()[3]);
+		dungeon.resumeAt(state.floor());
+		for (int i = 0; i <= state.floor(); i++) {
+			dungeon.floor(i).restoreRooms(state.visitedRooms().get(i), state.completedRooms().get(i));
+		}
+		hero.restore(state.hero(), state.backpack(), state.pos());
+		balade = new BaladeDonjon(dungeon.currentFloor(), hero);
+		pendingItem = state.pendingItem();
+		pendingCurse = state.pendingCurse();
+		curseRefusalCount = state.curseRefusalCount();
+		inHealer = state.inHealer();
+		inMerchant = state.inMerchant();
+		currentRoom = state.currentRoom();
+		merchantSlots = state.merchantSlots();
+		combatRewards = state.combatRewards();
+		unlockingSlots = state.unlockingSlots();
+		slotsToUnlock = state.slotsToUnlock();
+		selectedSlots = new ArrayList<>(state.selectedSlots());
+		changes.addAll(EnumSet.allOf(Change.class));
+	}
+
+	/**
+	 * Change the board where the final score is added, null to not save it.
+	 */
+	public void setScores(ScoreBoard board) {
+		scores = board;
+	}
+
+	/**
+	 * Give the parts of the screen changed since the last call, and forget them.
+	 */
+	public Set<Change> takeChanges() {
+		var taken = EnumSet.copyOf(changes);
+		changes.clear();
+		return taken;
+	}
+
+	private void changed(ReplayLog.Op op) {
+		switch (op) {
+		case SELECT_ENEMY -> changes.add(Change.HUD);
+		case SELECT_SLOT, DESELECT_SLOT -> changes.add(Change.BACKPACK);
+		case ROTATE_DRAG -> changes.add(Change.CURSOR);
+		// le reste peut toucher le sac (or, objets), le panneau et l'objet déplacé
+		default -> changes.addAll(EnumSet.allOf(Change.class));
+		}
+	}
+
+	private void log(ReplayLog.Op op, int a, int b, int c) {
+		changed(op); // chaque commande acceptée passe par ici, après ses vérifications
+		if (replayLog == null) {
+			return;
+		}
+		try {
+			replayLog.append(op, a, b, c);
+		} catch (IOException e) {
+			System.err.println("Erreur journal, la partie n'est plus enregistrée");
+			replayLog = null;
+		}
+	}
+
 	public Hero hero() {
 		return hero;
 	}
@@ -103,6 +290,7 @@ public class GameData {
 
 	public void changeShowDungeon() {
 		showDungeon = !showDungeon;
+		changes.addAll(EnumSet.allOf(Change.class));
 	}
 
 	public boolean inFight() {
@@ -110,41 +298,36 @@ public class GameData {
 	}
 
 	public List<Enemy> enemies() {
-		return List.copyOf(enemies);
+		return combat == null ? List.of() : combat.enemies();
 	}
 
 	public Enemy selectedEnemy() {
-		if (enemies.isEmpty() || selectedEnemyIndex >= enemies.size()) {
-			return null;
-		}
-		return enemies.get(selectedEnemyIndex);
+		return combat == null ? null : combat.selectedEnemy();
 	}
 
 	public int selectedEnemyIndex() {
-		return selectedEnemyIndex;
+		return combat == null ? 0 : combat.selectedEnemyIndex();
 	}
 
 	public void selectEnemy(int index) {
-		if (index < 0 || index >= enemies.size()) {
+		if (combat == null || index < 0 || index >= combat.enemies().size()) {
 			throw new IllegalArgumentException();
 		}
-		selectedEnemyIndex = index;
+		log(ReplayLog.Op.SELECT_ENEMY, index, 0, 0);
+		combat.selectEnemy(index);
 	}
 
 	public List<Action> nextEnemyActions() {
-		return List.copyOf(nextEnemyActions);
+		return combat == null ? List.of() : combat.nextEnemyActions();
 	}
 
 	/**
-	 * Start a fight with a list of enemies and their actions.
+	 * Start a fight already started by the combat engine.
 	 */
-	public void startFight(List<Enemy> enemyList, List<Action> actions) {
-		Objects.requireNonNull(enemyList);
-		Objects.requireNonNull(actions);
-		enemies = new ArrayList<>(enemyList);
-		selectedEnemyIndex = 0;
+	public void startFight(Combat combat) {
+		Objects.requireNonNull(combat);
+		this.combat = combat;
 		inFight = true;
-		nextEnemyActions = actions;
 	}
 
 	/**
@@ -157,8 +340,7 @@ public class GameData {
 			backpack().withdraw(pos.getFirst().line(), pos.getFirst().col());
 		}
 		inFight = false;
-		enemies.clear();
-		selectedEnemyIndex = 0;
+		combat = null;
 	}
 
 	public void startHealer() {
@@ -166,9 +348,36 @@ public class GameData {
 	}
 
 	public void endHealer() {
+		log(ReplayLog.Op.LEAVE_HEALER, 0, 0, 0);
 		inHealer = false;
 	}
 
+	/**
+	 * Heal 25 HP at the healer for 4 gold.
+	 */
+	public boolean healerHeal() {
+		if (hero.getCurrentHp() == hero.getMaxHp() || backpack().getGold() < 4) {
+			return false;
+		}
+		log(ReplayLog.Op.HEAL, 0, 0, 0);
+		backpack().pay(4);
+		hero.heal(25);
+		return true;
+	}
+
+	/**
+	 * Add 5 max HP at the healer for 10 gold.
+	 */
+	public boolean healerRaiseMaxHp() {
+		if (backpack().getGold() < 10) {
+			return false;
+		}
+		log(ReplayLog.Op.RAISE_MAX_HP, 0, 0, 0);
+		backpack().pay(10);
+		hero.increaseMaxHp(5);
+		return true;
+	}
+
 	public boolean inHealer() {
 		return inHealer;
 	}
@@ -195,12 +404,10 @@ public class GameData {
 	public void initMerchantSlots(RandomGenerator rand) {
 		Objects.requireNonNull(rand);
 		var rarity = GenerationItem.generation(rand);
-		merchantSlots = new ArrayList<>(List.of(GenerationItem.randomByRarity(rand, rarity, List.of(RandomGear.values())),
-				GenerationItem.randomByRarity(rand, rarity, List.of(RandomPotion.values())),
-				GenerationItem.randomByRarity(rand, rarity, List.of(RandomGem.values())),
-				GenerationItem.randomByRarity(rand, rarity, List.of(RandomArrow.values())),
-				GenerationItem.randomByRarity(rand, rarity, List.of(RandomManaStone.values())),
-				GenerationItem.randomByRarity(rand, rarity, List.of(RandomArmor.values()))));
+		merchantSlots = new ArrayList<>(List.of(tables.gear(rand, rarity).create(),
+				LootTables.POTION.sample(rand, rarity).create(), LootTables.GEM.sample(rand, rarity).create(),
+				LootTables.ARROW.sample(rand, rarity).create(), LootTables.MANA_STONE.sample(rand, rarity).create(),
+				LootTables.ARMOR.sample(rand, rarity).create()));
 	}
 
 	public void setMerchantSelectedIndex(int idx) {
@@ -231,6 +438,26 @@ public class GameData {
 		combatRewards = List.of();
 	}
 
+	/**
+	 * Leave the rewards of a fight without taking them.
+	 */
+	public void leaveRewards() {
+		log(ReplayLog.Op.LEAVE_REWARDS, 0, 0, 0);
+		clearCombatRewards();
+		clearMerchantSelection();
+		endDragging();
+	}
+
+	/**
+	 * Leave the merchant room.
+	 */
+	public void leaveMerchant() {
+		log(ReplayLog.Op.LEAVE_MERCHANT, 0, 0, 0);
+		endMerchant();
+		clearMerchantSelection();
+		endDragging();
+	}
+
 	public int getPriceFromRarity(Rarity rare) {
 		Objects.requireNonNull(rare);
 		return switch (rare) {
@@ -242,15 +469,11 @@ public class GameData {
 		};
 	}
 
-	public void updateEnemyActions(List<Action> actions) {
-		Objects.requireNonNull(actions);
-		nextEnemyActions = actions;
-	}
-
 	/**
 	 * Go to the next room or floor if possible.
 	 */
 	public void nextRoom() {
+		log(ReplayLog.Op.NEXT_ROOM, 0, 0, 0);
 		if (balade.nextRoom()) {
 			accesNextFloor();
 			return;
@@ -287,8 +510,7 @@ public class GameData {
 	 * Apply a random penalty to the hero.
 	 */
 	public void penalize() {
-		RandomGenerator rand = RandomGenerator.getDefault();
-		var temp = rand.nextInt(3) + 1;
+		var temp = eventRand.nextInt(3) + 1;
 		switch (temp) {
 		case 1 -> hero.takeDamage(5);
 		case 2 -> backpack().pay(2);
@@ -316,6 +538,7 @@ public class GameData {
 	 * Refuse a curse and take damage.
 	 */
 	public void refuseCurse() {
+		log(ReplayLog.Op.REFUSE_CURSE, 0, 0, 0);
 		curseRefusalCount++;
 		hero.takeDamage(curseRefusalCount);
 		clearPendingCurse();
@@ -376,6 +599,7 @@ public class GameData {
 	public void updateMousePosition(Position mousePos) {
 		Objects.requireNonNull(mousePos);
 		this.mousePosition = mousePos;
+		changes.add(Change.CURSOR);
 	}
 
 	public void endDragging() {
@@ -404,6 +628,7 @@ public class GameData {
 
 	public void rotationDuringDrag() {
 		if (isDragging) {
+			log(ReplayLog.Op.ROTATE_DRAG, 0, 0, 0);
 			this.originalRotation = !this.originalRotation;
 		}
 	}
@@ -434,12 +659,17 @@ public class GameData {
 		if (selectedSlots.size() >= slotsToUnlock) { // on a déjà sélectionné le nombre max de cases qu'on doit choisir
 			return false;
 		}
+		log(ReplayLog.Op.SELECT_SLOT, pos.line(), pos.col(), 0);
 		selectedSlots.add(pos);
 		return true;
 	}
 
 	public boolean deselectSlot(Position pos) {
 		Objects.requireNonNull(pos);
+		if (!selectedSlots.contains(pos)) {
+			return false;
+		}
+		log(ReplayLog.Op.DESELECT_SLOT, pos.line(), pos.col(), 0);
 		return selectedSlots.remove(pos);
 	}
 
@@ -447,6 +677,7 @@ public class GameData {
 	 * Confirm and unlock selected slots in the backpack.
 	 */
 	public void confirmUnlock() {
+		log(ReplayLog.Op.CONFIRM_UNLOCK, 0, 0, 0);
 		for (Position pos : selectedSlots) {
 			backpack().unlockSlot(pos.line(), pos.col());
 		}
@@ -458,25 +689,7 @@ public class GameData {
 	 * Recalculate and add armor protection bonus to the hero.
 	 */
 	public void recomputeArmorBonus() {
-		int sum = 0;
-		var seen = new ArrayList<Equipment>();
-		var backpack = backpack();
-		for (int i = 0; i < backpack.line(); i++) {
-			for (int j = 0; j < backpack.col(); j++) {
-				var eq = backpack.getEquipment(i, j);
-				if (eq != null && !seen.contains(eq)) {
-					switch (eq) {
-						case Armor armor -> {
-							seen.add(eq);
-							sum += armor.protection();
-						}
-						default -> {
-						}
-					}
-				}
-			}
-		}
-		hero.addProtection(sum);
+		hero.addProtection(Combat.armorProtection(backpack()));
 	}
 
 	public boolean isGameOver() {
@@ -493,9 +706,7 @@ public class GameData {
 	public void triggerGameOver() {
 		this.gameOver = true;
 		this.inFight = false;
-		int finalScore = calculateFinalScore();
-		Path file = Path.of(System.getProperty("user.dir"), "data", "save.txt");
-		addFileScore(file, finalScore);
+		saveScore();
 	}
 
 	/**
@@ -504,9 +715,7 @@ public class GameData {
 	public void triggerVictory() {
 		this.victory = true;
 		this.inFight = false;
-		int finalScore = calculateFinalScore();
-		Path file = Path.of(System.getProperty("user.dir"), "data", "save.txt");
-		addFileScore(file, finalScore);
+		saveScore();
 	}
 
 	/**
@@ -515,66 +724,34 @@ public class GameData {
 	public int calculateFinalScore() {
 		int heroLevel = hero.getLevel();
 		int equipmentValue = 0;
-		var seen = new ArrayList<Equipment>();
-		var backpack = backpack();
-		for (int i = 0; i < backpack.line(); i++) {
-			for (int j = 0; j < backpack.col(); j++) {
-				var eq = backpack.getEquipment(i, j);
-				if (eq != null && !seen.contains(eq)) {
-					seen.add(eq);
-					equipmentValue += getPriceFromRarity(eq.rarity());
-				}
-			}
+		for (var eq : backpack().items()) {
+			equipmentValue += getPriceFromRarity(eq.rarity());
 		}
 		int baseScore = heroLevel * 100;
 		return baseScore + equipmentValue;
 	}
 
-	/**
-	 * Add a score to the save file.
-	 */
-	public static void addFileScore(Path path, int score) {
-		Objects.requireNonNull(path);
-		String line = String.valueOf(score);
+	private void saveScore() {
+		if (scores == null) {
+			return;
+		}
 		try {
-			var lst = new ArrayList<String>();
-			if (Files.exists(path)) {
-				lst.addAll(Files.readAllLines(path, StandardCharsets.UTF_8));
-			}
-			lst.add(line);
-
-			try (var writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
-				for (var l : lst) {
-					writer.write(l);
-					writer.newLine();
-				}
-			}
+			scores.add(new ScoreStore.Score(calculateFinalScore(), seed, System.currentTimeMillis(), dungeon.fluent(),
+					victory));
 		} catch (IOException e) {
 			System.err.println("Erreur sauvegarde");
 		}
 	}
 
 	/**
-	 * Get the top 3 scores from the save file.
+	 * Get the best scores of every run, as last read by the board: no file is
+	 * read here.
+	 *
+	 * @param n number of scores
+	 * @return List the best runs, best first
 	 */
-	public List<Integer> top3(Path path) {
-		Objects.requireNonNull(path);
-		var scores = new ArrayList<Integer>();
-		try (var reader = Files.newBufferedReader(path)) {
-			String line;
-			while ((line = reader.readLine()) != null) {
-				line = line.trim();
-				if (line.isEmpty() || line.startsWith("#"))
-					continue;
-				try {
-					scores.add(Integer.parseInt(line));
-				} catch (NumberFormatException e) {
-				}
-			}
-		} catch (IOException e) {
-			return List.of();
-		}
-		return scores.stream().sorted(Comparator.reverseOrder()).limit(3).toList();
+	public List<ScoreStore.Score> topScores(int n) {
+		return scores == null ? List.of() : scores.top(n);
 	}
 
 	/**
@@ -599,7 +776,7 @@ public class GameData {
 			}
 			endFight();
 			backpack().addGold(5);
-			Equipment randomItem = RandomGear.randomGear(rand);
+			Equipment randomItem = tables.randomGear(rand);
 			giveReward(randomItem);
 		}
 	}
@@ -609,141 +786,51 @@ public class GameData {
 	 */
 	public boolean useItemInCombat(Equipment item) {
 		Objects.requireNonNull(item);
-		var hero = hero();
-		var enemy = selectedEnemy();
-		if (enemy == null)
+		var cells = backpack().getPos(item);
+		if (cells.isEmpty()) {
 			return false;
-		switch (item) {
-		case Gear gear -> {
-			return useGearInCombat(gear, hero, enemy);
-		}
-		case ManaStone manaStone -> {
-			useManaStoneInCombat(manaStone);
-		}
-		case Consumable consumable -> {
-			useConsumableInCombat(consumable);
-		}
-		default -> {
-		}
-		}
-		return false; // Combat continue
-	}
-
-	/**
-	 * Use a gear item (weapon or armor) in combat.
-	 */
-	private boolean useGearInCombat(Gear gear, Hero hero, Enemy enemy) {
-		if (gear.basicDamage() > 0) {
-			return useWeaponInCombat(gear, hero, enemy);
-		} else if (gear.protectionBasic() > 0) {
-			return useArmorInCombat(gear, hero);
 		}
-		return false;
-	}
-
-	private int useArrow(Gear gear) {
-		var arrow = backpack().findArrowInBackpack();
-		if (arrow == null) {
-			return -1;
-		}
-		return arrow.damage() / 2;
-
+		return useItemAt(cells.getFirst());
 	}
 
 	/**
-	 * Use a weapon to attack the selected enemy.
+	 * Use in combat the item of the backpack at a cell.
 	 */
-	private boolean useWeaponInCombat(Gear gear, Hero hero, Enemy enemy) {
-		int base = gear.basicDamage();
-		if (gear.getWeaponType() == WeaponType.BOW) {
-			var arrow = useArrow(gear);
-			if (arrow == -1) {
-				return false;
-			}
-			base *= arrow;
-		}
-		if (hero.energyPenalty() != 0) {
-			hero.useEnergy(hero.energyPenalty());
-		}
-		if (!hero.useEnergy(gear.cost())) {
+	public boolean useItemAt(Position cell) {
+		Objects.requireNonNull(cell);
+		var item = backpack().detection(cell.line(), cell.col());
+		if (item == null || combat == null) {
 			return false;
 		}
-		if (!checkManaRequirements(gear, hero)) {
-			hero.addEnergy(gear.cost());
+		log(ReplayLog.Op.USE_ITEM, cell.line(), cell.col(), 0); // un bouclier sert même si useItem rend false
+		if (!combat.useItem(item)) {
 			return false;
 		}
-		int bonus = backpack().bonusDamage(gear);
-		int degats = hero.applyOutgoingDamage(base + bonus);
-		enemy.takeDamage(degats);
-		if (!enemy.isAlive()) {
-			handleEnemyDeathInCombat();
-			return true;
-		}
-		return false;
-	}
-
-	/**
-	 * Check if hero has enough mana for magical gear.
-	 */
-	private boolean checkManaRequirements(Gear gear, Hero hero) {
-		if (gear.typeW() == WeaponType.MAGIC && gear.mana() > 0) {
-			return hero.useMana(gear.mana());
-		}
+		handleEnemyDeathInCombat();
 		return true;
 	}
 
 	/**
-	 * Use armor to gain protection.
+	 * Hit the selected enemy bare-handed.
 	 */
-	private boolean useArmorInCombat(Gear gear, Hero hero) {
-		if (!hero.useEnergy(gear.cost())) {
+	public boolean meleeAttack() {
+		if (combat == null) {
 			return false;
 		}
-		hero.addProtection(gear.protectionBasic());
-		return false;
-	}
-
-	/**
-	 * Use a mana stone to restore mana.
-	 */
-	private void useManaStoneInCombat(ManaStone manaStone) {
-		int manaDisponible = manaStone.getManaFight();
-		if (manaDisponible > 0) {
-			manaStone.useMana(1);
-			hero().addMana(1);
-		}
-	}
-
-	/**
-	 * Use a consumable item.
-	 */
-	private void useConsumableInCombat(Consumable consumable) {
-		var positions = backpack().getPos(consumable);
-		if (!positions.isEmpty()) {
-			consumable.use(hero());
-			Position firstPos = positions.get(0);
-			backpack().withdraw(firstPos.line(), firstPos.col());
+		log(ReplayLog.Op.MELEE, 0, 0, 0);
+		if (!combat.meleeAttack()) {
+			return false;
 		}
+		handleEnemyDeathInCombat();
+		return true;
 	}
 
 	/**
-	 * Handle enemy death and end combat if all are dead.
+	 * End combat if all enemies are dead.
 	 */
 	private void handleEnemyDeathInCombat() {
-		boolean allDead = enemies().stream().allMatch(e -> !e.isAlive());
-		if (allDead) {
-			endCombat(RandomGenerator.getDefault());
-		} else {
-			selectNextAliveEnemy();
-		}
-	}
-
-	private void selectNextAliveEnemy() {
-		for (int i = 0; i < enemies().size(); i++) {
-			if (enemies().get(i).isAlive()) {
-				selectEnemy(i);
-				break;
-			}
+		if (combat.isWon()) {
+			endCombat(lootRand);
 		}
 	}
 
@@ -751,59 +838,20 @@ public class GameData {
 	 * Execute all enemy actions for their turn.
 	 */
 	public void executeEnemyTurn() {
-		RandomGenerator rand = RandomGenerator.getDefault();
-		// Reset protection de tous les ennemis au début du tour
-		for (Enemy enemy : enemies()) {
-			if (enemy.isAlive()) {
-				enemy.resetProtection();
-			}
-		}
-		hero().resetProtection();
-
-		// Chaque ennemi fait ses actions
-		List<Action> allActions = new ArrayList<>();
-		for (Enemy enemy : enemies()) {
-			if (enemy.isAlive()) {
-				allActions.addAll(enemy.randomActions(rand));
-			}
-		}
-		updateEnemyActions(allActions);
-
-		for (Action action : allActions) {
-			executeAction(action);
-		}
-
-		if (!hero().isAlive()) {
-			triggerGameOver();
+		if (combat == null) {
 			return;
 		}
-		hero().resetEnergie();
-	}
-
-	private void executeAction(Action action) {
-		switch (action.getType()) {
-		case ATTACK -> hero().takeDamage(action.getVal());
-		case PROTECTION -> {
-			for (Enemy enemy : enemies()) {
-				if (enemy.isAlive()) {
-					enemy.addProtection(action.getVal());
-					break;
-				}
-			}
-		}
-		case HEAL -> {
-			for (Enemy enemy : enemies()) {
-				if (enemy.isAlive()) {
-					enemy.heal(action.getVal());
-					break;
-				}
-			}
-		}
-		case CURSE -> {
+		log(ReplayLog.Op.END_TURN, 0, 0, 0);
+		combat.enemyTurn();
+		var curse = combat.pendingCurse();
+		if (curse != null) {
 			if (!hasPendingCurse()) {
-				setPendingCurse(action.getGear());
+				setPendingCurse(curse);
 			}
+			combat.clearPendingCurse();
 		}
+		if (combat.isLost()) {
+			triggerGameOver();
 		}
 	}
 
@@ -811,12 +859,36 @@ public class GameData {
 	 * Apply a curse effect to the hero.
 	 */
 	public void applyCurse(Curse curse) {
-		Objects.requireNonNull(curse);
-		switch (curse.malusType()) {
-		case HEAL -> hero().takeDamage(curse.malus());
-		case DAMAGE -> hero().setWeakDamageMalus(curse.malus());
-		case WEAK -> hero().setEnergyPenalty(curse.malus());
+		Combat.applyCurse(hero, curse);
+	}
+
+	/**
+	 * Walk to a neighbour room linked to the room of the hero and enter it.
+	 *
+	 * @return boolean false if there is no room or no passage to it
+	 */
+	public boolean moveHero(Coord coord) {
+		Objects.requireNonNull(coord);
+		var room = floor().room(coord.line(), coord.col());
+		if (room == null || !floor().isLinked(hero.pos(), coord)) {
+			return false;
 		}
+		log(ReplayLog.Op.MOVE, coord.line(), coord.col(), 0);
+		if (autosave != null && canSave()) {
+			try {
+				autosave.write(this);
+			} catch (IOException e) {
+				System.err.println("Erreur sauvegarde automatique");
+			}
+		}
+		hero.initPos(coord);
+		room.toVisit();
+		if (hasPendingItem()) { // comme on bouge on retire l'item qu'on avait en attente
+			clearPendingItem();
+		}
+		enterRoom(room.roomType());
+		handleRoomEntry();
+		return true;
 	}
 
 	/**
@@ -829,12 +901,11 @@ public class GameData {
 		Room room = floor().room(heroPos.line(), heroPos.col());
 		if (room != null && room.isCompleted())
 			return;
-		RandomGenerator rand = RandomGenerator.getDefault();
 		switch (currentRoom) {
-		case ENEMIES -> handleEnemyRoomEntry(rand);
-		case TREASURE -> handleTreasureRoomEntry(room, rand);
+		case ENEMIES -> handleEnemyRoomEntry(encounterRand);
+		case TREASURE -> handleTreasureRoomEntry(room, lootRand);
 		case HEALER -> handleHealerRoomEntry(room);
-		case MERCHANT -> handleMerchantRoomEntry(room, rand);
+		case MERCHANT -> handleMerchantRoomEntry(room, lootRand);
 		case EXIT -> accesNextFloor();
 		case CORRIDOR, START -> {
 		}
@@ -850,13 +921,9 @@ public class GameData {
 			return;
 		}
 		int enemyCount = (rand.nextInt(4) + 1 == 4) ? 2 : 1;
-		List<Enemy> enemies = createEnemies(enemyCount, rand);
-		List<Action> allActions = getEnemyActions(enemies, rand);
-		hero().resetEnergie();
-		hero().resetMana();
-		hero().rechargerManaStones();
-		startFight(enemies, allActions);
-		recomputeArmorBonus();
+		var combat = new Combat(hero, createEnemies(enemyCount, rand), combatRand);
+		combat.start();
+		startFight(combat);
 	}
 
 	/**
@@ -865,27 +932,16 @@ public class GameData {
 	private List<Enemy> createEnemies(int count, RandomGenerator rand) {
 		List<Enemy> enemies = new ArrayList<>();
 		for (int i = 0; i < count; i++) {
-			enemies.add(EnemyCreation.createRandom(rand));
+			enemies.add(tables.randomEnemy(rand));
 		}
 		return enemies;
 	}
 
-	/**
-	 * Get all enemy actions for the round.
-	 */
-	private List<Action> getEnemyActions(List<Enemy> enemies, RandomGenerator rand) {
-		List<Action> allActions = new ArrayList<>();
-		for (var enemy : enemies) {
-			allActions.addAll(enemy.randomActions(rand));
-		}
-		return allActions;
-	}
-
 	/**
 	 * Handle treasure room entry.
 	 */
 	private void handleTreasureRoomEntry(Room room, RandomGenerator rand) {
-		Gear item = RandomGear.randomGear(rand);
+		Gear item = tables.randomGear(rand);
 		setPendingItem(item);
 		if (room != null)
 			room.complete();
@@ -910,6 +966,26 @@ public class GameData {
 			room.complete();
 	}
 
+	/**
+	 * Place an item (treasure, reward, merchant item or curse) on the spot found
+	 * by the backpack placement solver, only through the logged autoPlace.
+	 */
+	private boolean placeAt(Equipment item, Placement best) {
+		switch (item) {
+		case Curse curse -> {
+			if (!backpack().placeCurse(curse, best.line(), best.col())) {
+				return false;
+			}
+			applyCurse(curse);
+			clearPendingCurse();
+			return true;
+		}
+		default -> {
+			return tryPlaceItem(item, best.line(), best.col(), best.rotation());
+		}
+		}
+	}
+
 	/**
 	 * Try to place an item in the backpack at the given position and rotation.
 	 */
@@ -940,4 +1016,189 @@ public class GameData {
 		return false;
 	}
 
+	/**
+	 * Start dragging the treasure waiting to be taken.
+	 */
+	public boolean dragPendingItem(Position mousePos, boolean rotation) {
+		if (pendingItem == null) {
+			return false;
+		}
+		log(ReplayLog.Op.DRAG_PENDING_ITEM, rotation ? 1 : 0, 0, 0);
+		startDragging(pendingItem, mousePos, rotation);
+		return true;
+	}
+
+	/**
+	 * Accept the curse of an enemy and start dragging it.
+	 */
+	public boolean dragPendingCurse(Position mousePos) {
+		if (pendingCurse == null) {
+			return false;
+		}
+		log(ReplayLog.Op.DRAG_PENDING_CURSE, 0, 0, 0);
+		startDragging(pendingCurse, mousePos, false);
+		return true;
+	}
+
+	/**
+	 * Start dragging a reward of the last fight.
+	 */
+	public boolean dragReward(int index, Position mousePos, boolean rotation) {
+		if (index < 0 || index >= combatRewards.size()) {
+			return false;
+		}
+		log(ReplayLog.Op.DRAG_REWARD, index, rotation ? 1 : 0, 0);
+		startDragging(combatRewards.get(index), mousePos, rotation);
+		return true;
+	}
+
+	/**
+	 * Select an item of the merchant and start dragging it, it is paid when
+	 * placed.
+	 *
+	 * @return boolean false if there is no such item or not enough gold
+	 */
+	public boolean dragMerchantItem(int index, Position mousePos, boolean rotation) {
+		if (index < 0 || index >= merchantSlots.size()) {
+			return false;
+		}
+		var item = merchantSlots.get(index);
+		if (backpack().getGold() < getPriceFromRarity(item.rarity())) {
+			return false;
+		}
+		log(ReplayLog.Op.DRAG_MERCHANT, index, rotation ? 1 : 0, 0);
+		setMerchantSelectedIndex(index);
+		startDragging(item, mousePos, rotation);
+		return true;
+	}
+
+	/**
+	 * Take an item out of the backpack to move it, it goes back to its place if
+	 * the drop fails.
+	 */
+	public boolean dragFromBackpack(Position cell, Position mousePos) {
+		Objects.requireNonNull(cell);
+		var item = backpack().detection(cell.line(), cell.col());
+		if (item == null) {
+			return false;
+		}
+		log(ReplayLog.Op.DRAG_BACKPACK, cell.line(), cell.col(), 0);
+		long mask = backpack().footprint(item);
+		var origin = new Position(BackPack.minLine(mask), BackPack.minCol(mask));
+		var oldRotation = backpack().getRotation(item);
+		backpack().withdraw(cell.line(), cell.col()); // on retire l'item pour ne pas bloquer ses propres cases
+		startDraggingFromBackpack(item, mousePos, origin, oldRotation);
+		return true;
+	}
+
+	/**
+	 * Drop the dragged item on a cell of the backpack, or outside with a null
+	 * cell. An item taken from the backpack goes back to its place if it can not
+	 * be dropped.
+	 *
+	 * @param cell     cell under the pointer, null outside the backpack
+	 * @param rotation rotation chosen for an item not taken from the backpack
+	 * @return boolean true if the item was placed on the cell
+	 */
+	public boolean drop(Position cell, boolean rotation) {
+		if (!isDragging) {
+			return false;
+		}
+		if (cell == null) {
+			log(ReplayLog.Op.DROP_OUTSIDE, 0, 0, 0);
+		} else {
+			log(ReplayLog.Op.DROP, cell.line(), cell.col(), rotation ? 1 : 0);
+		}
+		var item = draggingItem;
+		boolean dropped = false;
+		if (cell != null) {
+			switch (item) {
+			case Curse curse -> {
+				if (backpack().placeCurse(curse, cell.line(), cell.col())) {
+					applyCurse(curse);
+					clearPendingCurse();
+					dropped = true;
+				}
+			}
+			default -> {
+				boolean rotationToUse = originalPosition != null ? originalRotation : rotation;
+				dropped = tryPlaceItem(item, cell.line(), cell.col(), rotationToUse);
+			}
+			}
+		}
+		if (!dropped && originalPosition != null && backpack().canPlace(item, originalPosition.line(),
+				originalPosition.col(), originalRotation)) { // retour à sa place dans le sac
+			backpack().place(item, originalPosition.line(), originalPosition.col(), originalRotation);
+		}
+		endDragging();
+		return dropped;
+	}
+
+	/**
+	 * Place the dragged item, or else the pending treasure, at the best spot of
+	 * the backpack.
+	 */
+	public boolean autoPlace() {
+		var item = isDragging ? draggingItem : pendingItem;
+		if (item == null) {
+			return false;
+		}
+		var best = backpack().bestPlacement(item, PlacementObjective.DEFAULT);
+		if (best == null) {
+			return false;
+		}
+		log(ReplayLog.Op.AUTO_PLACE, 0, 0, 0);
+		if (!placeAt(item, best)) {
+			return false;
+		}
+		if (isDragging) {
+			endDragging();
+		}
+		return true;
+	}
+
+	/**
+	 * Throw away the item of the backpack at a cell, throwing a curse costs a
+	 * penalty.
+	 */
+	public boolean discardItem(Position cell) {
+		Objects.requireNonNull(cell);
+		var item = backpack().detection(cell.line(), cell.col());
+		if (item == null) {
+			return false;
+		}
+		log(ReplayLog.Op.DISCARD, cell.line(), cell.col(), 0);
+		if (item instanceof Curse) {
+			hero.clearCombatMaluses();
+			penalize();
+		}
+		backpack().withdraw(cell.line(), cell.col());
+		return true;
+	}
+
+	/**
+	 * Pay the selected merchant item and place it on a cell, then leave the
+	 * merchant.
+	 */
+	public boolean buyDraggedItem(Position cell) {
+		Objects.requireNonNull(cell);
+		if (!isDragging || merchantSelectedIndex == -1
+				|| !backpack().canPlace(draggingItem, cell.line(), cell.col(), originalRotation)) {
+			return false;
+		}
+		int price = getPriceFromRarity(draggingItem.rarity());
+		if (backpack().getGold() < price) {
+			return false;
+		}
+		log(ReplayLog.Op.BUY, cell.line(), cell.col(), 0);
+		backpack().pay(price);
+		backpack().place(draggingItem, cell.line(), cell.col(), originalRotation);
+		var tmp = new ArrayList<Equipment>(merchantSlots);
+		tmp.remove(merchantSelectedIndex);
+		merchantSlots = tmp;
+		clearMerchantSelection();
+		endMerchant();
+		return true;
+	}
+
 }
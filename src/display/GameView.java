@@ -1,15 +1,18 @@
 package display;
 
 import java.awt.Color;
+import java.awt.Font;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
-import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
-import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 import com.github.forax.zen.ApplicationContext;
 
@@ -39,12 +42,46 @@ public class GameView {
 	private final int width;
 	private final int height;
 	private final ImageLoader loader;
+	private float scaledCellSize; // taille de case des images gardées par le loader
+	private BufferedImage scene; // tout l'écran sauf l'objet déplacé, refait par zones
+	private GameData sceneData; // partie dessinée dans la scène
+	private Rectangle overlayBounds; // place de l'objet déplacé et de l'aperçu sur la dernière image, null sinon
+	private BufferedImage bagLayer; // grille et objets du sac, refaits quand le sac change
+	private BagStamp bagStamp; // ce que montre bagLayer
+	private final FrameStats stats;
+	private boolean showStats;
+	private Rectangle statsBounds; // place des temps sur la dernière image, null s'ils sont cachés
 	private final int bHeight;
 	private final int iHeight;
 	private static final int MERCHANT_SLOT_W = 180;
 	private static final int MERCHANT_SLOT_H = 100;
 	private static final int MERCHANT_GAP = 15;
 	private static final int MERCHANT_COLS = 2;
+	private static final int DUNGEON_VIEW_LINES = 9; // les grands étages défilent autour du héros
+	private static final int DUNGEON_VIEW_COLS = 15;
+	private static final int HALL_OF_FAME_SIZE = 10;
+	private static final Font STATS_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+	private static final DateTimeFormatter SCORE_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy")
+			.withZone(ZoneId.systemDefault());
+
+	/**
+	 * What the bag layer shows, the layer is drawn again when it changes.
+	 */
+	private record BagStamp(BackPack bag, int version, List<Position> selectedSlots, float cellSize) {
+	}
+
+	/**
+	 * Cells where the dragged item would go if dropped now, mask 0 if it can't go
+	 * there.
+	 */
+	private record DropPreview(long mask, Rectangle2D.Float area) {
+	}
+
+	/**
+	 * Part of the floor shown on the dungeon map.
+	 */
+	private record DungeonView(int line, int col, int lines, int cols) {
+	}
 
 	/**
 	 * Creates a GameView that fills the entire screen.
@@ -54,76 +91,231 @@ public class GameView {
 	 * @param loader       ImageLoader for game images
 	 */
 	public GameView(int screenWidth, int screenHeight, ImageLoader loader) {
+		this(screenWidth, screenHeight, loader, new FrameStats(false));
+	}
+
+	/**
+	 * Creates a GameView that fills the entire screen and times its drawing.
+	 * 
+	 * @param screenWidth  Width of the screen
+	 * @param screenHeight Height of the screen
+	 * @param loader       ImageLoader for game images
+	 * @param stats        Times of the game loop, shown on the screen on demand
+	 */
+	public GameView(int screenWidth, int screenHeight, ImageLoader loader, FrameStats stats) {
 		Objects.requireNonNull(loader);
+		Objects.requireNonNull(stats);
 		this.xOrigin = 0;
 		this.yOrigin = 0;
 		this.width = screenWidth;
 		this.height = screenHeight;
 		this.loader = loader;
+		this.stats = stats;
 		bHeight = (int) (height * 0.40);// zone d'affichage du backpack 40%
 		iHeight = (int) (height * 0.60);// zone d'affichage interaction 60%
 	}
 
 	/**
-	 * Displays an image in a given part of the display area.
+	 * Displays an image in a given part of the display area. The image is taken
+	 * already scaled from the loader, drawing it is a plain copy.
 	 * 
 	 * @param graphics Graphics engine that will display the image
-	 * @param image    Image to be displayed
+	 * @param key      Key of the image to be displayed
 	 * @param x        Base x coordinate
 	 * @param y        Base y coordinate
 	 * @param dimX     Width of the display area
 	 * @param dimY     Height of the display area
 	 */
-	private void drawImage(Graphics2D graphics, BufferedImage image, float x, float y, float dimX, float dimY) {
+	private void drawImage(Graphics2D graphics, String key, float x, float y, float dimX, float dimY) {
 		Objects.requireNonNull(graphics);
-		Objects.requireNonNull(image);
-		var imageWidth = image.getWidth();
-		var imageHeight = image.getHeight();
-		var scale = Math.min(dimX / imageWidth, dimY / imageHeight);
-		var transform = new AffineTransform(scale, 0, 0, scale, x + (dimX - scale * imageWidth) / 2,
-				y + (dimY - scale * imageHeight) / 2);
-		graphics.drawImage(image, transform, null);
+		Objects.requireNonNull(key);
+		drawCentered(graphics, loader.scaled(key, Math.round(dimX), Math.round(dimY), false), x, y, dimX, dimY);
+	}
+
+	private void drawCentered(Graphics2D graphics, SpriteAtlas.Region region, float x, float y, float dimX,
+			float dimY) {
+		if (region != null) {
+			region.draw(graphics, Math.round(x + (dimX - region.width()) / 2),
+					Math.round(y + (dimY - region.height()) / 2));
+		}
 	}
 
 	/**
-	 * Draws the game board using the Graphics2D object.
+	 * Draw the main game view, including backpack, dungeon, and overlays. Only
+	 * the parts of the screen changed since the last frame are drawn again: the
+	 * screen under the dragged item is kept in a layer, a move of the mouse
+	 * copies back the old place of the item and of the drop preview from it and
+	 * draws them at the new place.
 	 * 
-	 * @param graphics Graphics engine
+	 * @param graphics Graphics engine, drawing on the image kept by the window
+	 *                 from one frame to the next
 	 * @param data     Game data to display
 	 */
-	/**
-	 * Draw the main game view, including backpack, dungeon, and overlays.
-	 */
 	private void draw(Graphics2D graphics, GameData data) {
 		Objects.requireNonNull(graphics);
 		Objects.requireNonNull(data);
+		var changes = data.takeChanges();
+		var dirty = updateScene(data, changes);
+		boolean dragging = data.isDragging() && data.mousePosition() != null;
+		var preview = dragging ? dropPreview(data) : null;
+		Rectangle overlay = null;
+		if (dragging) {
+			overlay = union(draggingArea(data).getBounds(), preview == null ? null : preview.area().getBounds());
+			overlay.grow(2, 2); // le cadre des cases déborde d'un pixel, les arrondis d'un autre
+		}
+		if (changes.contains(GameData.Change.CURSOR)) {
+			dirty = union(union(dirty, overlayBounds), overlay);
+		}
+		overlayBounds = overlay;
+		var statsLines = showStats ? statsLines() : null;
+		var statsArea = showStats ? statsArea(graphics, statsLines) : null;
+		dirty = union(union(dirty, statsBounds), statsArea); // les temps changent à chaque image
+		statsBounds = statsArea;
+		if (dirty == null) {
+			return; // rien n'a changé
+		}
+		graphics.clip(dirty);
+		graphics.drawImage(scene, 0, 0, null);
+		if (preview != null) {
+			drawDropPreview(graphics, data.backpack(), preview);
+		}
+		if (dragging) {
+			drawDraggingItem(graphics, data);
+		}
+		if (statsArea != null) {
+			drawStats(graphics, statsLines, statsArea);
+		}
+	}
 
-		graphics.setColor(Color.BLACK);
-		graphics.fill(new Rectangle2D.Float(xOrigin, yOrigin, width, height));
-		if (data.isVictory()) {
-			drawEndScreen(graphics, data, "Victoire");
-			return;
+	/**
+	 * Show or hide the times of the game loop.
+	 */
+	public void toggleStats() {
+		showStats = !showStats;
+	}
+
+	/**
+	 * Gives the times of the game loop, the view times its own drawing there.
+	 */
+	public FrameStats stats() {
+		return stats;
+	}
+
+	private List<String> statsLines() {
+		var lines = new ArrayList<String>();
+		lines.add("temps en ms" + (stats.jfr() ? ", JFR actif" : "") + " (T pour cacher)");
+		lines.addAll(stats.summary());
+		return lines;
+	}
+
+	private Rectangle statsArea(Graphics2D graphics, List<String> lines) {
+		var metrics = graphics.getFontMetrics(STATS_FONT);
+		int textWidth = 0;
+		for (var line : lines) {
+			textWidth = Math.max(textWidth, metrics.stringWidth(line));
 		}
-		if (data.isGameOver()) {
-			drawEndScreen(graphics, data, "Game Over");
-			return;
+		int w = Math.min(width, textWidth + 20);
+		int h = Math.min(height, lines.size() * metrics.getHeight() + 16);
+		return new Rectangle(xOrigin + width - w, yOrigin, w, h);
+	}
+
+	/**
+	 * Draw the times of the game loop in the top right corner.
+	 */
+	private void drawStats(Graphics2D graphics, List<String> lines, Rectangle area) {
+		graphics.setColor(new Color(0, 0, 0, 200));
+		graphics.fill(area);
+		graphics.setFont(STATS_FONT);
+		graphics.setColor(new Color(180, 255, 180));
+		var metrics = graphics.getFontMetrics();
+		int y = area.y + 8 + metrics.getAscent();
+		for (var line : lines) {
+			graphics.drawString(line, area.x + 10, y);
+			y += metrics.getHeight();
+		}
+	}
+
+	/**
+	 * Draw again the changed parts of the layer under the dragged item.
+	 * 
+	 * @return Rectangle the part drawn again, null if none
+	 */
+	private Rectangle updateScene(GameData data, Set<GameData.Change> changes) {
+		var all = new Rectangle(xOrigin, yOrigin, width, height);
+		boolean backpack = changes.contains(GameData.Change.BACKPACK);
+		boolean hud = changes.contains(GameData.Change.HUD);
+		// les écrans de fin sont toujours refaits, le tableau des scores change sans commande
+		if (scene == null || data != sceneData || data.isVictory() || data.isGameOver()
+				|| (data.showDungeon() && (backpack || hud))) {
+			if (scene == null) {
+				scene = loader.opaqueImage(width, height);
+			}
+			sceneData = data;
+			paintScene(data, all);
+			return all;
 		}
 		if (data.showDungeon()) {
-			drawDungeon(graphics, data);
-		} else {
-			drawBackPack(graphics, data);
-			drawInteraction(graphics, data);
+			return null;
 		}
-		if (data.isDragging() && data.mousePosition() != null) {
-			drawDraggingItem(graphics, data);
+		Rectangle dirty = null;
+		if (backpack) {
+			dirty = new Rectangle(xOrigin, yOrigin, width, bHeight);
+			paintScene(data, dirty);
+		}
+		if (hud) {
+			var panel = new Rectangle(xOrigin, yOrigin + bHeight, width, height - bHeight);
+			paintScene(data, panel);
+			dirty = union(dirty, panel);
+		}
+		return dirty;
+	}
+
+	private void paintScene(GameData data, Rectangle region) {
+		var g = scene.createGraphics();
+		try {
+			g.clip(region);
+			g.setColor(Color.BLACK);
+			g.fill(region);
+			if (data.isVictory()) {
+				drawEndScreen(g, data, "Victoire");
+			} else if (data.isGameOver()) {
+				drawEndScreen(g, data, "Game Over");
+			} else if (data.showDungeon()) {
+				stats.start(FrameStats.Phase.DUNGEON);
+				drawDungeon(g, data);
+				stats.stop(FrameStats.Phase.DUNGEON);
+			} else {
+				if (region.y < yOrigin + bHeight) {
+					stats.start(FrameStats.Phase.BACKPACK);
+					drawBackPack(g, data);
+					stats.stop(FrameStats.Phase.BACKPACK);
+				}
+				if (region.y + region.height > yOrigin + bHeight) {
+					drawInteraction(g, data);
+				}
+			}
+		} finally {
+			g.dispose();
 		}
 	}
 
+	private static Rectangle union(Rectangle a, Rectangle b) {
+		if (a == null) {
+			return b;
+		}
+		return b == null ? a : a.union(b);
+	}
+
 	/**
 	 * Calculate the cell size to fit the backpack grid on screen.
 	 */
 	private float calculateCellSize(BackPack backpack) {
-		return Math.min((float) width / backpack.maxCol(), (float) bHeight / backpack.maxLine());
+		float cellSize = Math.min((float) width / backpack.maxCol(), (float) bHeight / backpack.maxLine());
+		if (cellSize != scaledCellSize) { // le sac a changé de dimensions, les images à l'ancienne taille ne servent plus
+			loader.clearScaled();
+			scaledCellSize = cellSize;
+		}
+		return cellSize;
 	}
 
 	/**
@@ -147,31 +339,24 @@ public class GameView {
 	 */
 	private void drawDraggingItem(Graphics2D graphics, GameData data) {
 		Equipment item = data.draggingItem();
-		Position mousePos = data.mousePosition();
-		// Récupère la forme avec rotation si nécessaire
-		boolean[][] shape = item.getShape();
-		if (data.originalRotation()) {
-			shape = backpack.BackPack.rotation90(shape);
-		}
-
-		int shapeRows = shape.length;
-		int shapeCols = shape[0].length;
-		var backPack = data.backpack();
-		float cellSize = calculateCellSize(backPack);
-		// Centrer l'item sur la souris
-		float itemX = mousePos.line() - (shapeCols * cellSize) / 2;
-		float itemY = mousePos.col() - (shapeRows * cellSize) / 2;
+		// la forme tournée est déjà calculée par Shape
+		var shape = item.shape();
+		boolean rotation = data.originalRotation();
+		int shapeRows = shape.rows(rotation);
+		int shapeCols = shape.cols(rotation);
+		float cellSize = calculateCellSize(data.backpack());
+		var area = draggingArea(data);
+		float itemX = area.x;
+		float itemY = area.y;
 		for (int i = 0; i < shapeRows; i++) {
 			for (int j = 0; j < shapeCols; j++) {
-				if (shape[i][j]) {
+				if (shape.filled(rotation, i, j)) {
 					float x = itemX + j * cellSize;
 					float y = itemY + i * cellSize;
 					// on va dessiner l'image
 					String imageKey = getItemImageKey(item);
-					BufferedImage image = (imageKey == null) ? null : loader.image(imageKey);
-
-					if (image != null) {
-						drawImage(graphics, image, x + 2, y + 2, cellSize - 4, cellSize - 4);
+					if (imageKey != null) {
+						drawImage(graphics, imageKey, x + 2, y + 2, cellSize - 4, cellSize - 4);
 					}
 					graphics.setColor(new Color(255, 255, 255, 180));
 					graphics.draw(new Rectangle2D.Float(x, y, cellSize, cellSize));
@@ -180,6 +365,18 @@ public class GameView {
 		}
 	}
 
+	/**
+	 * Give the area of the item being dragged, centered on the mouse.
+	 */
+	private Rectangle2D.Float draggingArea(GameData data) {
+		var shape = data.draggingItem().shape();
+		float cellSize = calculateCellSize(data.backpack());
+		float w = shape.cols(data.originalRotation()) * cellSize;
+		float h = shape.rows(data.originalRotation()) * cellSize;
+		var mousePos = data.mousePosition();
+		return new Rectangle2D.Float(mousePos.line() - w / 2, mousePos.col() - h / 2, w, h);
+	}
+
 	/**
 	 * Check if clicking on the treasure item display
 	 */
@@ -190,9 +387,8 @@ public class GameView {
 		if (item == null)
 			return false;
 
-		boolean[][] shape = item.shape();
-		int shapeRow = shape.length;
-		int shapeCol = shape[0].length;
+		int shapeRow = item.shape().rows(false);
+		int shapeCol = item.shape().cols(false);
 
 		float cellSize = 80;
 		float itemWidth = shapeCol * cellSize;
@@ -465,9 +661,8 @@ public class GameView {
 			return new Rectangle(0, 0, 0, 0);
 		}
 		int baseY = yOrigin + bHeight;
-		boolean[][] shape = curse.getShape();
-		int rows = shape.length;
-		int cols = shape[0].length;
+		int rows = curse.shape().rows(false);
+		int cols = curse.shape().cols(false);
 		int cellSize = 80;
 		int w = cols * cellSize;
 		int h = rows * cellSize;
@@ -491,19 +686,16 @@ public class GameView {
 		drawCurseButtons(g, baseY);
 		// dessin de la shape
 		Rectangle rect = pendingCurseRect(data);
-		boolean[][] shape = curse.getShape();
-		int cellSize = rect.width / shape[0].length;
-		for (int r = 0; r < shape.length; r++) {
-			for (int c = 0; c < shape[r].length; c++) {
-				if (!shape[r][c])
+		var shape = curse.shape();
+		int cellSize = rect.width / shape.cols(false);
+		for (int r = 0; r < shape.rows(false); r++) {
+			for (int c = 0; c < shape.cols(false); c++) {
+				if (!shape.filled(false, r, c))
 					continue;
 				int x = rect.x + c * cellSize;
 				int y = rect.y + r * cellSize;
 				// image curse
-				BufferedImage img = loader.image("curse");
-				if (img != null) {
-					drawImage(g, img, x + 2, y + 2, cellSize - 4, cellSize - 4);
-				}
+				drawImage(g, "curse", x + 2, y + 2, cellSize - 4, cellSize - 4);
 				g.setColor(new Color(180, 180, 180));
 				g.drawRect(x, y, cellSize, cellSize);
 			}
@@ -543,14 +735,13 @@ public class GameView {
 	 */
 	private void drawDungeon(Graphics2D graphics, GameData data) {
 		Floor floor = data.floor();
-		int dungeonLines = 5;
-		int dungeonCols = 11;
-		float cellWidth = (float) width / dungeonCols;
-		float cellHeight = (float) height / dungeonLines;
+		var view = dungeonView(data);
+		float cellWidth = (float) width / view.cols();
+		float cellHeight = (float) height / view.lines();
 		// Dessiner chaque case du donjon
-		for (int i = 0; i < dungeonLines; i++) {
-			for (int j = 0; j < dungeonCols; j++) {
-				Room room = floor.room(i, j);
+		for (int i = 0; i < view.lines(); i++) {
+			for (int j = 0; j < view.cols(); j++) {
+				Room room = floor.room(view.line() + i, view.col() + j);
 				float x = xOrigin + j * cellWidth;
 				float y = yOrigin + i * cellHeight;
 				if (room == null) {
@@ -566,7 +757,48 @@ public class GameView {
 				graphics.draw(new Rectangle2D.Float(x, y, cellWidth, cellHeight));
 			}
 		}
+		drawDungeonWalls(graphics, floor, view, cellWidth, cellHeight);
+	}
 
+	/**
+	 * Draw a wall between two neighbour rooms without a passage.
+	 */
+	private void drawDungeonWalls(Graphics2D graphics, Floor floor, DungeonView view, float cellWidth,
+			float cellHeight) {
+		graphics.setColor(new Color(20, 15, 10));
+		float thickness = Math.max(2, Math.min(cellWidth, cellHeight) * 0.08f);
+		for (int i = 0; i < view.lines(); i++) {
+			for (int j = 0; j < view.cols(); j++) {
+				var here = new Coord(view.line() + i, view.col() + j);
+				if (floor.room(here.line(), here.col()) == null) {
+					continue;
+				}
+				float x = xOrigin + j * cellWidth;
+				float y = yOrigin + i * cellHeight;
+				var right = new Coord(here.line(), here.col() + 1);
+				if (j + 1 < view.cols() && floor.room(right.line(), right.col()) != null && !floor.isLinked(here, right)) {
+					graphics.fill(new Rectangle2D.Float(x + cellWidth - thickness / 2, y, thickness, cellHeight));
+				}
+				var down = new Coord(here.line() + 1, here.col());
+				if (i + 1 < view.lines() && floor.room(down.line(), down.col()) != null && !floor.isLinked(here, down)) {
+					graphics.fill(new Rectangle2D.Float(x, y + cellHeight - thickness / 2, cellWidth, thickness));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Give the part of the floor to show, centered on the hero when the floor is
+	 * bigger than the map.
+	 */
+	private static DungeonView dungeonView(GameData data) {
+		var floor = data.floor();
+		int lines = Math.min(floor.lines(), DUNGEON_VIEW_LINES);
+		int cols = Math.min(floor.cols(), DUNGEON_VIEW_COLS);
+		var hero = data.hero().pos();
+		int line = Math.clamp(hero.line() - lines / 2, 0, floor.lines() - lines);
+		int col = Math.clamp(hero.col() - cols / 2, 0, floor.cols() - cols);
+		return new DungeonView(line, col, lines, cols);
 	}
 
 	/**
@@ -596,69 +828,32 @@ public class GameView {
 		}
 	}
 
-	private void drawImageAutoRotate(Graphics2D g, BufferedImage img, float x, float y, float w, float h) {
-		int iw = img.getWidth();
-		int ih = img.getHeight();
+	private void drawImageAutoRotate(Graphics2D g, String key, float x, float y, float w, float h) {
+		if (!loader.has(key)) {
+			return;
+		}
 		boolean boxVertical = h > w;
-		boolean imgHorizontal = iw > ih;
+		boolean imgHorizontal = loader.isWide(key);
 		// On tourne si le rectangle est vertical alors que l'image est horizontale (cas
-		// épées 3x1 tournées)
+		// épées 3x1 tournées), l'image tournée est aussi gardée par le loader
 		boolean rotate90 = boxVertical && imgHorizontal;
-		if (!rotate90) {
-			drawImage(g, img, x, y, w, h);
-			return;
-		}
-		var old = g.getTransform();
-		float cx = x + w / 2f;
-		float cy = y + h / 2f;
-		float scale = Math.min(w / ih, h / iw);
-		var at = new AffineTransform();
-		at.translate(cx, cy);
-		at.rotate(Math.PI / 2);
-		at.scale(scale, scale);
-		at.translate(-iw / 2f, -ih / 2f);
-		g.drawImage(img, at, null);
-		g.setTransform(old);
+		drawCentered(g, loader.scaled(key, Math.round(w), Math.round(h), rotate90), x, y, w, h);
 	}
 
 	private List<Equipment> getAllItem(GameData data) {
-		var temp = new ArrayList<Equipment>();
-		var backpack = data.backpack();
-		var line = backpack.line();
-		var col = backpack.col();
-		for (int i = 0; i < line; i++) {
-			for (int j = 0; j < col; j++) {
-				var eq = backpack.getEquipment(i, j);
-				if (eq == null || temp.contains(eq)) {
-					continue;
-				}
-				temp.add(eq);
-			}
-		}
-		return List.copyOf(temp);
+		return data.backpack().items();
 	}
 
 	private void getBound(Graphics2D graphics, Equipment item, GameData data, float cellSize, float offsetX,
 			float offsetY) {
-		var pos = data.backpack().getPos(item);
-		if (pos.isEmpty()) {
+		long mask = data.backpack().footprint(item);
+		if (mask == 0) {
 			return;
 		}
-		var first = pos.get(0);
-		var minLine = first.line();
-		var minCol = first.col();
-		var maxCol = first.col();
-		var maxLine = first.line();
-		for (var p : pos) {
-			if (p.line() < minLine)
-				minLine = p.line();
-			if (p.line() > maxLine)
-				maxLine = p.line();
-			if (p.col() < minCol)
-				minCol = p.col();
-			if (p.col() > maxCol)
-				maxCol = p.col();
-		}
+		var minLine = BackPack.minLine(mask);
+		var minCol = BackPack.minCol(mask);
+		var maxCol = BackPack.maxCol(mask);
+		var maxLine = BackPack.maxLine(mask);
 		float x = offsetX + minCol * cellSize;
 		float y = offsetY + minLine * cellSize;
 		float w = (maxCol - minCol + 1) * cellSize;
@@ -694,18 +889,19 @@ public class GameView {
 	private void drawItemImage(Graphics2D graphics, Equipment item, float x, float y, float width, float height,
 			  GameData data) {
 		String imageKey = getItemImageKey(item);
-		BufferedImage image = loader.image(imageKey);
-		if (image != null) {
-			drawImageAutoRotate(graphics, image, x, y, width, height);
+		if (imageKey != null) {
+			drawImageAutoRotate(graphics, imageKey, x, y, width, height);
 		}
 		switch (item) {
 		case Gold gold -> {
+			var font = graphics.getFont(); // le panneau ne doit pas dépendre de l'or du sac
 			graphics.setColor(Color.WHITE);
-			graphics.setFont(graphics.getFont().deriveFont(14f));
+			graphics.setFont(font.deriveFont(14f));
 			String amount = String.valueOf(gold.amount());
 			var metrics = graphics.getFontMetrics();
 			int textWidth = metrics.stringWidth(amount);
 			graphics.drawString(amount, x + width - textWidth - 3, y + height - 3);
+			graphics.setFont(font);
 		}
 		default -> {
 		}
@@ -719,10 +915,9 @@ public class GameView {
 			GameData data) {
 		// Récupérer l'image correspondant au type de salle
 		String imageKey = getRoomImageKey(room);
-		BufferedImage image = loader.image(imageKey);
-		if (image != null) {
+		if (imageKey != null) {
 			// Dessiner l'image de la salle
-			drawImage(graphics, image, x, y, width, height);
+			drawImage(graphics, imageKey, x, y, width, height);
 		}
 		// Marquer la position du héros
 		Coord heroPos = data.hero().pos();
@@ -757,16 +952,103 @@ public class GameView {
 	private void drawBackPack(Graphics2D graphics, GameData data) {
 		var backPack = data.backpack();
 		float cellSize = calculateCellSize(backPack);
-		float offsetX = calculateOffsetX(backPack, cellSize);
-		float offsetY = calculateOffsetY(backPack, cellSize);
-		drawBackpackBackground(graphics, backPack, cellSize, offsetX, offsetY);
-		drawBackpackCells(graphics, data, backPack, cellSize, offsetX, offsetY);
-		printImage(graphics, data, cellSize, offsetX, offsetY);
+		var stamp = new BagStamp(backPack, backPack.version(),
+				data.isUnlockingSlots() ? List.copyOf(data.selectedSlots()) : List.of(), cellSize);
+		int layerX = (int) Math.floor(calculateOffsetX(backPack, cellSize));
+		int layerY = (int) Math.floor(calculateOffsetY(backPack, cellSize));
+		if (!stamp.equals(bagStamp)) { // sinon une simple copie suffit
+			paintBagLayer(data, cellSize, layerX, layerY);
+			bagStamp = stamp;
+		}
+		graphics.drawImage(bagLayer, layerX, layerY, null);
 		if (data.isUnlockingSlots()) {
 			drawUnlockInstructions(graphics, data);
 		}
 	}
 
+	/**
+	 * Draw the grid and the items of the bag in the bag layer, an image as large
+	 * as the grid placed at (layerX, layerY) on the screen.
+	 */
+	private void paintBagLayer(GameData data, float cellSize, int layerX, int layerY) {
+		var backPack = data.backpack();
+		float offsetX = calculateOffsetX(backPack, cellSize);
+		float offsetY = calculateOffsetY(backPack, cellSize);
+		// le trait des dernières cases déborde d'un pixel
+		int layerWidth = (int) Math.ceil(offsetX + cellSize * backPack.maxCol()) + 1 - layerX;
+		int layerHeight = (int) Math.ceil(offsetY + cellSize * backPack.maxLine()) + 1 - layerY;
+		if (bagLayer == null || bagLayer.getWidth() != layerWidth || bagLayer.getHeight() != layerHeight) {
+			bagLayer = loader.opaqueImage(layerWidth, layerHeight);
+		}
+		var g = bagLayer.createGraphics();
+		try {
+			g.setColor(Color.BLACK);
+			g.fillRect(0, 0, layerWidth, layerHeight);
+			g.translate(-layerX, -layerY); // mêmes coordonnées que l'écran
+			drawBackpackBackground(g, backPack, cellSize, offsetX, offsetY);
+			drawBackpackCells(g, data, backPack, cellSize, offsetX, offsetY);
+			printImage(g, data, cellSize, offsetX, offsetY);
+		} finally {
+			g.dispose();
+		}
+	}
+
+	/**
+	 * Give the cells where the dragged item would go if dropped now, with the
+	 * rule of drop: the top left corner of the item on the cell under the mouse.
+	 * 
+	 * @return DropPreview the cells, null if the mouse is not over the bag
+	 */
+	private DropPreview dropPreview(GameData data) {
+		var mouse = data.mousePosition();
+		if (data.showDungeon() || mouse.col() < yOrigin || mouse.col() >= yOrigin + bHeight) {
+			return null;
+		}
+		var backPack = data.backpack();
+		var cell = screenToBackpackCell(mouse, backPack);
+		if (cell == null) {
+			return null;
+		}
+		float cellSize = calculateCellSize(backPack);
+		float offsetX = calculateOffsetX(backPack, cellSize);
+		float offsetY = calculateOffsetY(backPack, cellSize);
+		long mask = backPack.dropMask(data.draggingItem(), cell.line(), cell.col(), data.originalRotation());
+		if (mask == 0) { // seulement la case visée
+			return new DropPreview(0, new Rectangle2D.Float(offsetX + cell.col() * cellSize,
+					offsetY + cell.line() * cellSize, cellSize, cellSize));
+		}
+		int minLine = BackPack.minLine(mask);
+		int minCol = BackPack.minCol(mask);
+		return new DropPreview(mask, new Rectangle2D.Float(offsetX + minCol * cellSize, offsetY + minLine * cellSize,
+				(BackPack.maxCol(mask) - minCol + 1) * cellSize, (BackPack.maxLine(mask) - minLine + 1) * cellSize));
+	}
+
+	/**
+	 * Draw the cells of the drop preview, green where the item fits, red on the
+	 * aimed cell if it doesn't.
+	 */
+	private void drawDropPreview(Graphics2D g, BackPack backPack, DropPreview preview) {
+		var area = preview.area();
+		long mask = preview.mask();
+		if (mask == 0) {
+			g.setColor(new Color(200, 60, 60, 110));
+			g.fill(area);
+			return;
+		}
+		float cellSize = calculateCellSize(backPack);
+		int minLine = BackPack.minLine(mask);
+		int minCol = BackPack.minCol(mask);
+		g.setColor(new Color(60, 200, 60, 90));
+		for (int i = minLine; i <= BackPack.maxLine(mask); i++) {
+			for (int j = minCol; j <= BackPack.maxCol(mask); j++) {
+				if ((mask >>> (i * backPack.maxCol() + j) & 1) != 0) { // une case = un bit, comme dans le sac
+					g.fill(new Rectangle2D.Float(area.x + (j - minCol) * cellSize, area.y + (i - minLine) * cellSize,
+							cellSize, cellSize));
+				}
+			}
+		}
+	}
+
 	private void drawBackpackBackground(Graphics2D g, BackPack backPack, float cellSize, float offsetX, float offsetY) {
 		int maxCols = backPack.maxCol();
 		int maxLines = backPack.maxLine();
@@ -816,13 +1098,17 @@ public class GameView {
 		if (data.hasPendingItem()) {
 			drawTreasureItem(graphics, data);
 		} else if (data.inFight()) {
+			stats.start(FrameStats.Phase.COMBAT);
 			drawCombat(graphics, data);
+			stats.stop(FrameStats.Phase.COMBAT);
 		} else if (!data.combatRewards().isEmpty()) {
 			drawCombatRewards(graphics, data);
 		} else if (data.inHealer()) {
 			drawHealer(graphics, data);
 		} else if (data.inMerchant()) {
+			stats.start(FrameStats.Phase.MERCHANT);
 			drawMerchant(graphics, data);
+			stats.stop(FrameStats.Phase.MERCHANT);
 		}
 	}
 
@@ -840,18 +1126,15 @@ public class GameView {
 	 * Draw the shape and image of the treasure item.
 	 */
 	private void drawTreasureItemShape(Graphics2D graphics, Gear item, int startY) {
-		boolean[][] shape = item.shape();
+		var shape = item.shape();
 		float cellSize = 80;
-		float itemX = width / 2 - (shape[0].length * cellSize) / 2;
-		for (int i = 0; i < shape.length; i++) {
-			for (int j = 0; j < shape[0].length; j++) {
-				if (shape[i][j]) {
+		float itemX = width / 2 - (shape.cols(false) * cellSize) / 2;
+		for (int i = 0; i < shape.rows(false); i++) {
+			for (int j = 0; j < shape.cols(false); j++) {
+				if (shape.filled(false, i, j)) {
 					float x = itemX + j * cellSize;
 					float y = startY + i * cellSize;
-					BufferedImage image = loader.image(getItemImageKey(item));
-					if (image != null) {
-						drawImage(graphics, image, x + 2, y + 2, cellSize - 4, cellSize - 4);
-					}
+					drawImage(graphics, getItemImageKey(item), x + 2, y + 2, cellSize - 4, cellSize - 4);
 					graphics.setColor(new Color(100, 100, 100));
 					graphics.draw(new Rectangle2D.Float(x, y, cellSize, cellSize));
 				}
@@ -863,7 +1146,7 @@ public class GameView {
 	 * Draw the stats of the treasure item.
 	 */
 	private void drawTreasureStats(Graphics2D graphics, Gear item, int startY) {
-		float statsY = startY + item.shape().length * 80 + 20;
+		float statsY = startY + item.shape().rows(false) * 80 + 20;
 		graphics.setColor(Color.WHITE);
 		graphics.drawString(item.name(), width / 2 - 50, (int) statsY);
 		graphics.drawString("Dégâts: " + item.basicDamage(), width / 2 - 50, (int) statsY + 20);
@@ -912,9 +1195,8 @@ public class GameView {
 		int maxImageHeight = (int) (combatHeight * 0.80);
 		int imageSize = Math.min(heroWidth - 40, maxImageHeight - 150); // -150 pour laisser de la place aux stats
 		// Image du héro
-		BufferedImage heroImage = loader.image("hero");
-		if (heroImage != null) {
-			drawImage(graphics, heroImage, heroX, heroY, imageSize, imageSize);
+		if (loader.has("hero")) {
+			drawImage(graphics, "hero", heroX, heroY, imageSize, imageSize);
 			heroY += imageSize + 15;
 		}
 		// Stats en dessous de l'image
@@ -947,9 +1229,8 @@ public class GameView {
 			int maxImageHeight = (int) (combatHeight * 0.50); // calculer la hauteur maximale pour l'image
 			int imageSize = Math.min(enemyWidth - 40, maxImageHeight);
 			String enemyImageKey = enemy.enemyInfo().name().toLowerCase().replace(" ", "_").replace("-", "_"); // image de l'ennemi
-			BufferedImage enemyImage = loader.image(enemyImageKey);
-			if (enemyImage != null) {
-				drawImage(graphics, enemyImage, enemyX, enemyY, imageSize, imageSize);
+			if (loader.has(enemyImageKey)) {
+				drawImage(graphics, enemyImageKey, enemyX, enemyY, imageSize, imageSize);
 				enemyY += imageSize + 15;
 			} // stats en dessous de l'image
 			graphics.setColor(Color.WHITE);
@@ -1016,10 +1297,7 @@ public class GameView {
 		int buttonHeight = 80;
 		int buttonX = width / 2 - buttonWidth / 2;
 		int buttonY = combatY + combatHeight / 2 - buttonHeight / 2;
-		BufferedImage buttonImage = loader.image("endturn");
-		if (buttonImage != null) {
-			drawImage(graphics, buttonImage, buttonX, buttonY, buttonWidth, buttonHeight);
-		}
+		drawImage(graphics, "endturn", buttonX, buttonY, buttonWidth, buttonHeight);
 	}
 
 	/**
@@ -1033,7 +1311,9 @@ public class GameView {
 		Objects.requireNonNull(context);
 		Objects.requireNonNull(data);
 		Objects.requireNonNull(view);
+		view.stats.start(FrameStats.Phase.DRAW); // copie à l'écran comprise
 		context.renderFrame(graphics -> view.draw(graphics, data));
+		view.stats.stop(FrameStats.Phase.DRAW);
 	}
 
 	public Position screenToBackpackCell(Position m, BackPack b) {
@@ -1090,20 +1370,21 @@ public class GameView {
 	 * Converts screen coordinates to dungeon grid coordinates.
 	 * 
 	 * @param screenPos Screen position
+	 * @param data      Game data, for the shown part of the floor
 	 * @return Dungeon coordinates or null if outside
 	 */
-	public Coord screenToDungeonCell(Position screenPos) {
+	public Coord screenToDungeonCell(Position screenPos, GameData data) {
 		Objects.requireNonNull(screenPos);
-		int dungeonLines = 5;
-		int dungeonCols = 11;
-		float cellWidth = (float) width / dungeonCols;
-		float cellHeight = (float) height / dungeonLines;
+		Objects.requireNonNull(data);
+		var view = dungeonView(data);
+		float cellWidth = (float) width / view.cols();
+		float cellHeight = (float) height / view.lines();
 		int col = (int) (screenPos.line() / cellWidth);
 		int line = (int) (screenPos.col() / cellHeight);
-		if (line < 0 || line >= dungeonLines || col < 0 || col >= dungeonCols) {
+		if (line < 0 || line >= view.lines() || col < 0 || col >= view.cols()) {
 			return null;
 		}
-		return new Coord(line, col);
+		return new Coord(view.line() + line, view.col() + col);
 	}
 
 	/**
@@ -1125,21 +1406,28 @@ public class GameView {
 		g.setFont(g.getFont().deriveFont(40f));
 		int textWidth = g.getFontMetrics().stringWidth(title);
 		g.drawString(title, width / 2 - textWidth / 2, 80);
-		Path path = Path.of(System.getProperty("user.dir"), "data", "save.txt");
-		hallOfFame(g, data, path);
+		hallOfFame(g, data);
 	}
 
-	private void hallOfFame(Graphics2D g, GameData data, Path path) {
-		var list = data.top3(path);
-		System.out.println(list);
+	private void hallOfFame(Graphics2D g, GameData data) {
+		var list = data.topScores(HALL_OF_FAME_SIZE); // déjà en mémoire, pas de lecture de fichier ici
 		int x = 50;
 		int y = 120;
 		int dy = 30;
-		g.drawString("HALL OF FAME TOP 3", x, y);
-		y += dy;
-		for (int i = 0; i < 3; i++) {
-			int xp = (i < list.size()) ? list.get(i) : 0; // si moins de 3 scores
-			g.drawString((i + 1) + xp + " XP", x, y);
+		g.drawString("HALL OF FAME TOP " + HALL_OF_FAME_SIZE, x, y);
+		g.setFont(g.getFont().deriveFont(22f));
+		y += dy + 10;
+		for (int i = 0; i < HALL_OF_FAME_SIZE; i++) {
+			var line = (i + 1) + ". ";
+			if (i < list.size()) {
+				var score = list.get(i);
+				line += score.points() + " XP   étage " + (score.floor() + 1)
+						+ (score.victory() ? "   victoire" : "")
+						+ (score.time() == 0 ? "" : "   " + SCORE_DATE.format(Instant.ofEpochMilli(score.time())));
+			} else {
+				line += "-"; // moins de scores que de places
+			}
+			g.drawString(line, x, y);
 			y += dy;
 		}
 	}
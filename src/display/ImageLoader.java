@@ -1,28 +1,74 @@
 package display;
 
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.imageio.ImageIO;
 
 /**
  * The ImageLoader class deals with retrieving and storing images from files.
  * Uses a Map for flexible image management with string keys.
+ * <p>
+ * Images are also given already scaled to the size they are drawn at, in the
+ * format of the screen, so drawing them is a plain copy. The scaled images are
+ * packed in the pages of a {@link SpriteAtlas}: most sprites of a frame come
+ * from the same page. When the pages are full they are all emptied and the
+ * sprites in use are scaled again.
+ * <p>
+ * When the directory has an atlas prepared by {@link SpriteAtlas#pack}, its
+ * few small pages are read at start instead of the full size files. A full
+ * size file is then only read for a sprite drawn larger than its copy in the
+ * atlas, or changed since the atlas was prepared.
  */
 public class ImageLoader {
+	private static final int PAGE_SIZE = 1024;
+	private static final int MAX_PAGES = 4;
+	private static final int MAX_DECODERS = 4;
+
 	/**
-	 * Map in which retrieved images are stored with their keys.
+	 * Map in which the decoding of each full size image is stored with its key.
 	 */
-	private final Map<String, BufferedImage> images;
+	private final Map<String, FutureTask<BufferedImage>> images;
+	private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+
+	/**
+	 * A sprite of the prepared atlas, with the decoding of its page.
+	 */
+	private record Packed(FutureTask<BufferedImage> page, SpriteAtlas.Entry entry) {
+	}
+
+	private final Map<String, Packed> packed = new HashMap<>();
+
+	private record ScaledKey(String key, int width, int height, boolean rotated) {
+	}
+
+	private final HashMap<ScaledKey, SpriteAtlas.Region> scaled = new HashMap<>();
+	private SpriteAtlas atlas; // créé au premier dessin, ses pages sont au format de l'écran
+	private GraphicsConfiguration screen; // null hors écran
 
 	/**
-	 * Creates a new ImageLoader that will retrieve images from files.
+	 * Creates a new ImageLoader that will retrieve images from files. The files
+	 * are decoded in the background by a few threads, the constructor returns at
+	 * once.
 	 * 
 	 * @param dir Directory name where the files are located
 	 * @param imageFiles File names where the images are located
@@ -31,43 +77,267 @@ public class ImageLoader {
 		Objects.requireNonNull(dir);
 		Objects.requireNonNull(imageFiles);
 
-		images = new HashMap<>();
+		var directory = Path.of(dir);
+		images = new LinkedHashMap<>();
+		var paths = new HashMap<String, Path>();
 		for (var imageFile : imageFiles) {
-			loadImage(dir, imageFile);
+			var path = directory.resolve(imageFile);
+			// Use filename without extension as key
+			var key = imageFile.substring(0, imageFile.lastIndexOf('.'));
+			images.put(key, new FutureTask<>(() -> readImage(path)));
+			paths.put(key, path);
+		}
+		var pages = new LinkedHashMap<Integer, FutureTask<BufferedImage>>();
+		for (var entry : atlasEntries(directory)) {
+			var path = paths.get(entry.key());
+			if (path == null || lastModified(path) != entry.lastModified()) { // image changée depuis l'atlas
+				continue;
+			}
+			var page = pages.computeIfAbsent(entry.page(),
+					index -> new FutureTask<>(() -> readImage(SpriteAtlas.pageFile(directory, index))));
+			packed.put(entry.key(), new Packed(page, entry));
+		}
+		// l'arrière-plan lit les pages de l'atlas puis les images qui n'y sont pas
+		var background = new ArrayList<FutureTask<BufferedImage>>(pages.values());
+		images.forEach((key, task) -> {
+			if (!packed.containsKey(key)) {
+				background.add(task);
+			}
+		});
+		if (background.isEmpty()) {
+			loaded.complete(null);
+			return;
+		}
+		var remaining = new AtomicInteger(background.size());
+		int threads = Math.clamp(Runtime.getRuntime().availableProcessors(), 1, MAX_DECODERS);
+		var executor = Executors.newFixedThreadPool(threads, Thread.ofPlatform().daemon().name("image-", 0).factory());
+		for (var task : background) { // dans l'ordre des fichiers
+			executor.execute(() -> {
+				task.run(); // ne fait rien si le dessin l'a déjà lue
+				if (remaining.decrementAndGet() == 0) {
+					loaded.complete(null);
+				}
+			});
+		}
+		executor.shutdown(); // les fils s'arrêtent une fois la file vide
+	}
+
+	private static List<SpriteAtlas.Entry> atlasEntries(Path directory) {
+		try {
+			return SpriteAtlas.readIndex(directory);
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println("Atlas ignoré : " + e.getMessage());
+			return List.of();
+		}
+	}
+
+	private static long lastModified(Path path) {
+		try {
+			return Files.getLastModifiedTime(path).toMillis();
+		} catch (IOException e) {
+			return -1;
 		}
 	}
 
 	/**
-	 * Retrieve a new image from a file, and stores it into the map.
+	 * Retrieve a new image from a file.
 	 * 
-	 * @param dirPath Directory name
-	 * @param imagePath File name
+	 * @param path File of the image
+	 * @return the image, null if no reader knows its format
 	 */
-	private void loadImage(String dirPath, String imagePath) {
-		Objects.requireNonNull(dirPath);
-		Objects.requireNonNull(imagePath);
-		var path = Path.of(dirPath + "/" + imagePath);
-		try (var input = Files.newInputStream(path)) {
-			var image = ImageIO.read(input);
-			// Use filename without extension as key
-			var key = imagePath.substring(0, imagePath.lastIndexOf('.'));
-			images.put(key, image);
-		} catch (IOException e) {
-			throw new RuntimeException(e);
+	private static BufferedImage readImage(Path path) throws IOException {
+		Objects.requireNonNull(path);
+		return ImageIO.read(path.toFile()); // depuis un fichier ImageIO n'a pas besoin de cache disque
+	}
+
+	private static BufferedImage get(FutureTask<BufferedImage> task) {
+		task.run(); // ne fait rien si la tâche tourne déjà ou a fini, get attend alors
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
 		}
 	}
-	
+
 	/**
-	 * Gets an image by its key (filename without extension).
+	 * Gets an image by its key (filename without extension), at full size. An
+	 * image not decoded yet is decoded now by the caller if no thread has started
+	 * it, else the caller waits for it.
 	 * 
 	 * @param key Key of the image
 	 * @return Image corresponding to the key
 	 */
 	public BufferedImage image(String key) {
+		Objects.requireNonNull(key);
+		var task = images.get(key);
+		return task == null ? null : get(task);
+	}
+
+	/**
+	 * Tell if an image was given for a key, without reading it.
+	 */
+	public boolean has(String key) {
+		Objects.requireNonNull(key);
+		return images.containsKey(key);
+	}
+
+	/**
+	 * Tell if an image is wider than high, from the atlas when it has the image.
+	 */
+	public boolean isWide(String key) {
+		Objects.requireNonNull(key);
+		var sprite = packed.get(key);
+		if (sprite != null) {
+			return sprite.entry().sourceWidth() > sprite.entry().sourceHeight();
+		}
+		var image = image(key);
+		return image != null && image.getWidth() > image.getHeight();
+	}
+
+	/**
+	 * Gets the decoding of a full size image, to wait for it or check it without
+	 * blocking.
+	 * 
+	 * @param key Key of the image
+	 * @return Future of the image, null if the key is unknown
+	 */
+	public Future<BufferedImage> future(String key) {
 		Objects.requireNonNull(key);
 		return images.get(key);
 	}
 
+	/**
+	 * Gets a future completed when every image read in the background is
+	 * decoded.
+	 */
+	public CompletableFuture<Void> loaded() {
+		return loaded.copy();
+	}
+
+	/**
+	 * Gets an image scaled to fit in a box with its ratio kept, turned a quarter
+	 * clockwise if asked. The image is made once for each size in a page of the
+	 * atlas, then taken from the cache.
+	 * 
+	 * @param key     Key of the image
+	 * @param width   Width of the box
+	 * @param height  Height of the box
+	 * @param rotated Turn the image before fitting it
+	 * @return Region of the image at the size it is drawn at, or null if there is
+	 *         no image or the box is empty
+	 */
+	public SpriteAtlas.Region scaled(String key, int width, int height, boolean rotated) {
+		Objects.requireNonNull(key);
+		if (width <= 0 || height <= 0 || !images.containsKey(key)) {
+			return null;
+		}
+		var scaledKey = new ScaledKey(key, width, height, rotated);
+		var region = scaled.get(scaledKey);
+		if (region == null) {
+			region = scale(key, width, height, rotated);
+			if (region != null) {
+				scaled.put(scaledKey, region);
+			}
+		}
+		return region;
+	}
+
+	/**
+	 * Forget the scaled images, to call when the sizes they were made for change.
+	 */
+	public void clearScaled() {
+		scaled.clear();
+		if (atlas != null) {
+			atlas.clear();
+		}
+	}
+
+	private SpriteAtlas.Region scale(String key, int width, int height, boolean rotated) {
+		var sprite = packed.get(key);
+		BufferedImage source = null; // avec un atlas, choisie une fois la taille connue
+		int sourceWidth;
+		int sourceHeight;
+		if (sprite != null) {
+			sourceWidth = sprite.entry().sourceWidth();
+			sourceHeight = sprite.entry().sourceHeight();
+		} else {
+			source = image(key);
+			if (source == null) {
+				return null;
+			}
+			sourceWidth = source.getWidth();
+			sourceHeight = source.getHeight();
+		}
+		int imageWidth = rotated ? sourceHeight : sourceWidth;
+		int imageHeight = rotated ? sourceWidth : sourceHeight;
+		double factor = Math.min((double) width / imageWidth, (double) height / imageHeight);
+		int w = Math.max(1, (int) Math.round(imageWidth * factor));
+		int h = Math.max(1, (int) Math.round(imageHeight * factor));
+		if (sprite != null) {
+			var entry = sprite.entry();
+			// la copie réduite suffit tant qu'on ne l'agrandit pas
+			source = entry.width() >= Math.round(sourceWidth * factor)
+					? get(sprite.page()).getSubimage(entry.x(), entry.y(), entry.width(), entry.height())
+					: image(key);
+		}
+		var region = allocate(w, h);
+		var g = region.page().createGraphics();
+		try {
+			// une seule fois par taille, on peut se payer une interpolation soignée
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+			g.translate(region.x(), region.y());
+			if (rotated) {
+				g.translate(w, 0);
+				g.rotate(Math.PI / 2);
+				g.drawImage(source, 0, 0, h, w, null);
+			} else {
+				g.drawImage(source, 0, 0, w, h, null);
+			}
+		} finally {
+			g.dispose();
+		}
+		return region;
+	}
+
+	private SpriteAtlas.Region allocate(int width, int height) {
+		if (atlas == null) {
+			atlas = new SpriteAtlas(PAGE_SIZE, MAX_PAGES, this::compatibleImage);
+		}
+		var region = atlas.allocate(width, height);
+		if (region == null) { // pages pleines, les sprites encore utilisés seront refaits
+			clearScaled();
+			region = atlas.allocate(width, height);
+		}
+		return region;
+	}
+
+	private BufferedImage compatibleImage(int width, int height) {
+		return compatibleImage(width, height, Transparency.TRANSLUCENT);
+	}
+
+	/**
+	 * Create an opaque image in the format of the screen, for a layer of the view
+	 * copied to the screen as it is.
+	 */
+	BufferedImage opaqueImage(int width, int height) {
+		return compatibleImage(width, height, Transparency.OPAQUE);
+	}
+
+	private BufferedImage compatibleImage(int width, int height, int transparency) {
+		if (screen == null && !GraphicsEnvironment.isHeadless()) {
+			screen = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+					.getDefaultConfiguration();
+		}
+		if (screen == null) {
+			return new BufferedImage(width, height, transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB
+					: BufferedImage.TYPE_INT_ARGB_PRE);
+		}
+		return screen.createCompatibleImage(width, height, transparency);
+	}
+
 	/**
 	 * Gets the number of images stored.
 	 * 
@@ -0,0 +1,103 @@
+package display;
+
+import java.util.Arrays;
+
+/**
+ * Counts of measured times, in nanoseconds, to give their percentiles.
+ * <p>
+ * The buckets are laid out like HdrHistogram: exact below {@value #SUB_COUNT}
+ * ns, then each power of two is cut in {@value #HALF} buckets of the same
+ * width, so a value is known within 1/{@value #HALF} of itself whatever its
+ * size. Recording is a few operations and never allocates, the memory is
+ * fixed. Not thread safe, the game loop is the only writer.
+ */
+public final class LatencyHistogram {
+	private static final int SUB_BITS = 7;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	private static final int HALF = SUB_COUNT / 2;
+	private static final int BUCKETS = (Long.SIZE - SUB_BITS + 1) * HALF + HALF;
+
+	private final long[] counts = new long[BUCKETS];
+	private long count;
+	private long total;
+	private long max;
+
+	/**
+	 * Add a measured time.
+	 *
+	 * @param nanos time in nanoseconds, a negative time counts as 0
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos); // nanoTime recule parfois d'un cheveu sur certaines machines
+		counts[index(value)]++;
+		count++;
+		total += value;
+		max = Math.max(max, value);
+	}
+
+	private static int index(long value) {
+		int exponent = Math.max(0, Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BITS);
+		return exponent * HALF + (int) (value >>> exponent);
+	}
+
+	/**
+	 * Highest value counted in a bucket.
+	 */
+	private static long highest(int index) {
+		if (index < SUB_COUNT) {
+			return index;
+		}
+		int exponent = index / HALF - 1;
+		long low = (long) (index - exponent * HALF) << exponent;
+		return low + (1L << exponent) - 1;
+	}
+
+	/**
+	 * Give the time under which a part of the recorded times are.
+	 *
+	 * @param percentile part of the times, from 0 to 100
+	 * @return long the time in nanoseconds, 0 if nothing was recorded
+	 */
+	public long percentile(double percentile) {
+		if (!(percentile >= 0 && percentile <= 100)) {
+			throw new IllegalArgumentException("centile hors de [0, 100] : " + percentile);
+		}
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(highest(i), max);
+			}
+		}
+		return max;
+	}
+
+	public long count() {
+		return count;
+	}
+
+	/**
+	 * Sum of the recorded times, in nanoseconds.
+	 */
+	public long total() {
+		return total;
+	}
+
+	public long max() {
+		return max;
+	}
+
+	/**
+	 * Forget every recorded time.
+	 */
+	public void reset() {
+		Arrays.fill(counts, 0);
+		count = 0;
+		total = 0;
+		max = 0;
+	}
+}
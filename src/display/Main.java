@@ -1,43 +1,109 @@
 package display;
 
 import java.awt.Color;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
 import java.util.Objects;
 import java.nio.file.Path;
 
 import com.github.forax.zen.Application;
 
+import dungeon.GameTables;
+
 public class Main {
-	public static void main(String[] args) {
+	private static final Path REPLAY_FILE = Path.of("data", "last-run.replay");
+	private static final Path SAVE_FILE = Path.of("data", "autosave.sav");
+	private static final Path IMAGE_DIR = Path.of("data", "image");
+	// -Dbackpackhero.jfr=true avec -XX:StartFlightRecording donne les temps de chaque phase à JFR
+	private static final String JFR_PROPERTY = "backpackhero.jfr";
+	private static final String[] IMAGES = {
+			"reine_abeilles.png", "sorcier_grenouille.png", "ombre_vivante.png", "battle_axe.png", "bleed_bar.png",
+			"bleed_plate.png", "block_bar_gem.png", "start.png", "block_crown_gem.png", "block_plate_gem.png",
+			"charged_stone.png", "corridor.png", "crossbow.png", "dagger.png", "damage_bar_gem.png",
+			"damage_crown_gem.png", "damage_plate_gem.png", "dragon_scale_armor.png", "enchanted_staff.png",
+			"endturn.png", "enemies.png", "exit.png", "gold.png", "grand_bleed_curse.png",
+			"grand_sickness_curse.png", "grand_tonique_dénergie.png", "grand_weakness_curse.png",
+			"grand_élixir_de_mana.png", "grande_potion_de_soin.png", "healer.png", "heart_bar_gem.png",
+			"heart_crown_gem.png", "heart_plate_gem.png", "hero.png", "heropiece.png", "iron_shield.png",
+			"jagged_blade.png", "leather_armor.png", "magic_wand.png", "mana_core.png", "mana_crystal.png",
+			"mana_pebble.png", "mana_stone.png", "merchant.png", "paladins_sword.png", "petit_rat_loup.png",
+			"petit_tonique_dénergie.png", "petit_élixir_de_mana.png", "petite_potion_de_soin.png",
+			"potion_de_soin.png", "rat_loup.png", "short_bow.png", "sickness_bar.png", "sickness_plate.png",
+			"small_block_gem.png", "small_damage_gem.png", "small_heart_gem.png", "small_mana_stone.png",
+			"steel_sword.png", "tiny_bleed.png", "tiny_sickness.png", "tiny_weakness.png", "tonique_dénergie.png",
+			"tower_shield.png", "treasure.png", "weakness_bar.png", "weakness_plate.png", "wooden_shield.png",
+			"wooden_sword.png", "élixir_arcanique.png", "élixir_de_mana.png", "élixir_de_vie.png",
+			"élixir_de_vitesse.png", "troll_armor.png", "chainmail_armor.png", "knight_plate_armor.png",
+			"dragon_scale_armor_minimal.png", "arrow_common.png", "arrow_uncommon.png", "arrow_rare.png",
+			"arrow_legendary.png" };
+
+	public static void main(String[] args) throws IOException {
 		Objects.requireNonNull(args);
+		long start = System.nanoTime();
+		if (args.length > 0 && args[0].equals("--replay")) { // --replay fichier [nombre de commandes]
+			replay(Path.of(args.length > 1 ? args[1] : REPLAY_FILE.toString()),
+					args.length > 2 ? Integer.parseInt(args[2]) : Integer.MAX_VALUE);
+			return;
+		}
+		if (args.length > 0 && args[0].equals("--pack-atlas")) { // à relancer quand une image change
+			int pages = SpriteAtlas.pack(IMAGE_DIR, List.of(IMAGES));
+			System.out.println("atlas de " + IMAGES.length + " images en " + pages + " pages");
+			return;
+		}
+		// --resume [fichier] reprend la dernière sauvegarde au lieu d'une nouvelle partie
+		var resume = args.length > 0 && args[0].equals("--resume")
+				? SaveGame.read(Path.of(args.length > 1 ? args[1] : SAVE_FILE.toString()), GameTables.standard())
+				: null;
 		System.out.println(Path.of("").toAbsolutePath());
+		ScoreBoard.standard().start(); // les écrans de fin ne lisent plus les fichiers
 
 		Application.run(Color.BLACK, context -> {
 			var screenInfo = context.getScreenInfo();
-			var loader = new ImageLoader("data/image", "reine_abeilles.png", "sorcier_grenouille.png",
-					"ombre_vivante.png", "battle_axe.png", "bleed_bar.png", "bleed_plate.png", "block_bar_gem.png", "start.png",
-					"block_crown_gem.png", "block_plate_gem.png", "charged_stone.png", "corridor.png", "crossbow.png",
-					"dagger.png", "damage_bar_gem.png", "damage_crown_gem.png", "damage_plate_gem.png", "dragon_scale_armor.png",
-					"enchanted_staff.png", "endturn.png", "enemies.png", "exit.png", "gold.png", "grand_bleed_curse.png",
-					"grand_sickness_curse.png", "grand_tonique_dénergie.png", "grand_weakness_curse.png",
-					"grand_élixir_de_mana.png", "grande_potion_de_soin.png", "healer.png", "heart_bar_gem.png",
-					"heart_crown_gem.png", "heart_plate_gem.png", "hero.png", "heropiece.png", "iron_shield.png",
-					"jagged_blade.png", "leather_armor.png", "magic_wand.png", "mana_core.png", "mana_crystal.png",
-					"mana_pebble.png", "mana_stone.png", "merchant.png", "paladins_sword.png", "petit_rat_loup.png",
-					"petit_tonique_dénergie.png", "petit_élixir_de_mana.png", "petite_potion_de_soin.png", "potion_de_soin.png",
-					"rat_loup.png", "short_bow.png", "sickness_bar.png", "sickness_plate.png", "small_block_gem.png",
-					"small_damage_gem.png", "small_heart_gem.png", "small_mana_stone.png", "steel_sword.png", "tiny_bleed.png",
-					"tiny_sickness.png", "tiny_weakness.png", "tonique_dénergie.png", "tower_shield.png", "treasure.png",
-					"weakness_bar.png", "weakness_plate.png", "wooden_shield.png", "wooden_sword.png", "élixir_arcanique.png",
-					"élixir_de_mana.png", "élixir_de_vie.png", "élixir_de_vitesse.png", "troll_armor.png", "chainmail_armor.png",
-					"knight_plate_armor.png", "dragon_scale_armor_minimal.png","arrow_common.png","arrow_uncommon.png","arrow_rare.png","arrow_legendary.png");
-
-			var data = new GameData();
-			var view = new GameView(screenInfo.width(), screenInfo.height(), loader);
+			var loader = new ImageLoader(IMAGE_DIR.toString(), IMAGES);
+
+			GameData data;
+			if (resume != null) {
+				data = resume; // le journal d'une partie reprise ne serait pas rejouable depuis la graine
+			} else {
+				data = args.length > 0 ? new GameData(Long.parseLong(args[0])) : new GameData();
+				System.out.println("seed " + data.seed()); // relancer avec ce nombre en argument rejoue la même partie
+				try {
+					data.recordTo(ReplayLog.Writer.create(REPLAY_FILE, data.seed()));
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+			data.setAutosave(new SaveGame(SAVE_FILE));
+			data.setScores(ScoreBoard.standard()); // seule la partie jouée écrit ses scores
+			loader.loaded().thenRun(() -> System.out.println("images décodées en " + millisSince(start) + " ms"));
+			var stats = new FrameStats(Boolean.getBoolean(JFR_PROPERTY));
+			var view = new GameView(screenInfo.width(), screenInfo.height(), loader, stats);
 			var controller = new GameController();
-			GameView.draw(context, data, view);
+			GameView.draw(context, data, view); // n'attend que les images de ce premier écran
+			System.out.println("premier affichage en " + millisSince(start) + " ms");
 			// Game loop
 			while (controller.gameLoop(context, data, view)) {
 			}
 		});
 	}
-}
\ No newline at end of file
+
+	private static long millisSince(long start) {
+		return (System.nanoTime() - start) / 1_000_000;
+	}
+
+	/**
+	 * Replay a recorded run without display and print where it stopped.
+	 */
+	private static void replay(Path file, int maxEvents) throws IOException {
+		long start = System.nanoTime();
+		var data = ReplayLog.replay(file, GameTables.standard(), maxEvents);
+		long time = System.nanoTime() - start;
+		var hero = data.hero();
+		System.out.println("seed " + data.seed() + ", étage " + data.dungeon().fluent() + ", salle " + hero.pos() + ", "
+				+ hero.getCurrentHp() + "/" + hero.getMaxHp() + " PV, " + data.backpack().getGold() + " or, "
+				+ data.backpack().items().size() + " objets" + (data.inFight() ? ", en combat" : "")
+				+ (data.isGameOver() ? ", perdu" : "") + (data.isVictory() ? ", gagné" : ""));
+		System.out.println("rejoué en " + time / 1_000_000 + " ms");
+	}
+}
@@ -0,0 +1,246 @@
+package display;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+import backpack.Position;
+import dungeon.Coord;
+import dungeon.GameTables;
+
+/**
+ * Append-only binary log of the commands of a run. Every random draw of a run
+ * comes from the streams of its master seed, so the seed and the commands in
+ * order are enough to rebuild the exact state: the draws are not stored, they
+ * are drawn again.
+ * <p>
+ * Format: the magic {@code BHRP}, a version byte and the seed on 8 bytes (big
+ * endian), then one record per command: the ordinal of its {@link Op} on one
+ * byte followed by its arguments, each an unsigned LEB128 varint. A record cut
+ * by a crash at the end of the file is ignored. GameData writes a command
+ * only once its checks passed, a refused command changes nothing and is left
+ * out, so the log replays up to the command that crashed the run.
+ * <p>
+ * The replay reads the gear and enemy tables again, it gives the same run only
+ * with the same data files.
+ */
+public final class ReplayLog {
+	public static final int MAGIC = 0x42485250; // "BHRP"
+	public static final int VERSION = 1;
+	private static final int HEADER_SIZE = 4 + 1 + 8;
+
+	/**
+	 * Commands of the player, with their number of arguments.
+	 */
+	public enum Op {
+		SELECT_ENEMY(1), USE_ITEM(2), MELEE(0), END_TURN(0), MOVE(2), NEXT_ROOM(0), SELECT_SLOT(2), DESELECT_SLOT(2),
+		CONFIRM_UNLOCK(0), DRAG_PENDING_ITEM(1), DRAG_PENDING_CURSE(0), DRAG_REWARD(2), DRAG_MERCHANT(2),
+		DRAG_BACKPACK(2), ROTATE_DRAG(0), DROP(3), DROP_OUTSIDE(0), AUTO_PLACE(0), DISCARD(2), BUY(2), HEAL(0),
+		RAISE_MAX_HP(0), LEAVE_HEALER(0), LEAVE_REWARDS(0), LEAVE_MERCHANT(0), REFUSE_CURSE(0);
+
+		private static final Op[] VALUES = values();
+		private final int arity;
+
+		Op(int arity) {
+			this.arity = arity;
+		}
+
+		public int arity() {
+			return arity;
+		}
+	}
+
+	private ReplayLog() {
+	}
+
+	/**
+	 * Writes the records of a run, each record is given to the system as soon as
+	 * it is appended so a crash keeps every command before it.
+	 */
+	public static final class Writer implements Closeable {
+		private final OutputStream out;
+		private final byte[] record = new byte[1 + 3 * 5];
+
+		private Writer(OutputStream out) {
+			this.out = out;
+		}
+
+		/**
+		 * Create a log for a run, an existing file is replaced.
+		 */
+		public static Writer create(Path path, long seed) throws IOException {
+			Objects.requireNonNull(path);
+			var out = new BufferedOutputStream(Files.newOutputStream(path));
+			var header = new byte[HEADER_SIZE];
+			writeInt(header, 0, MAGIC);
+			header[4] = (byte) VERSION;
+			writeInt(header, 5, (int) (seed >>> 32));
+			writeInt(header, 9, (int) seed);
+			out.write(header);
+			out.flush();
+			return new Writer(out);
+		}
+
+		/**
+		 * Append a command, the arguments after the arity of the command are
+		 * ignored.
+		 */
+		public void append(Op op, int a, int b, int c) throws IOException {
+			Objects.requireNonNull(op);
+			int size = 0;
+			record[size++] = (byte) op.ordinal();
+			if (op.arity > 0) {
+				size = writeVarint(record, size, a);
+			}
+			if (op.arity > 1) {
+				size = writeVarint(record, size, b);
+			}
+			if (op.arity > 2) {
+				size = writeVarint(record, size, c);
+			}
+			out.write(record, 0, size);
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+
+		private static void writeInt(byte[] bytes, int offset, int value) {
+			bytes[offset] = (byte) (value >>> 24);
+			bytes[offset + 1] = (byte) (value >>> 16);
+			bytes[offset + 2] = (byte) (value >>> 8);
+			bytes[offset + 3] = (byte) value;
+		}
+
+		private static int writeVarint(byte[] bytes, int offset, int value) {
+			if (value < 0) {
+				throw new IllegalArgumentException("argument négatif " + value);
+			}
+			while ((value & ~0x7F) != 0) {
+				bytes[offset++] = (byte) (value & 0x7F | 0x80);
+				value >>>= 7;
+			}
+			bytes[offset++] = (byte) value;
+			return offset;
+		}
+	}
+
+	/**
+	 * Give the seed of a log.
+	 *
+	 * @throws IllegalArgumentException if the file is not a log of this version
+	 */
+	public static long seed(byte[] log) {
+		Objects.requireNonNull(log);
+		if (log.length < HEADER_SIZE || readInt(log, 0) != MAGIC) {
+			throw new IllegalArgumentException("pas un journal de partie");
+		}
+		if (log[4] != VERSION) {
+			throw new IllegalArgumentException("version de journal " + log[4] + " non supportée");
+		}
+		return (long) readInt(log, 5) << 32 | readInt(log, 9) & 0xFFFFFFFFL;
+	}
+
+	/**
+	 * Rebuild a run from its log without display, no score is saved.
+	 *
+	 * @param file      the log
+	 * @param tables    the tables used by the run
+	 * @param maxEvents number of commands to replay, to stop the run at a turn
+	 * @return GameData the state after the replayed commands
+	 */
+	public static GameData replay(Path file, GameTables tables, int maxEvents) throws IOException {
+		Objects.requireNonNull(file);
+		Objects.requireNonNull(tables);
+		var log = Files.readAllBytes(file);
+		var data = new GameData(seed(log), tables);
+		replay(log, data, maxEvents);
+		return data;
+	}
+
+	/**
+	 * Apply the commands of a log to a run created from its seed.
+	 *
+	 * @return int number of commands applied
+	 */
+	public static int replay(byte[] log, GameData data, int maxEvents) {
+		Objects.requireNonNull(data);
+		if (seed(log) != data.seed()) {
+			throw new IllegalArgumentException("le journal n'est pas celui de cette graine");
+		}
+		if (maxEvents < 0) {
+			throw new IllegalArgumentException();
+		}
+		var args = new int[3];
+		int offset = HEADER_SIZE;
+		int count = 0;
+		while (count < maxEvents && offset < log.length) {
+			int ordinal = log[offset++];
+			if (ordinal < 0 || ordinal >= Op.VALUES.length) {
+				throw new IllegalArgumentException("commande inconnue à l'octet " + (offset - 1));
+			}
+			var op = Op.VALUES[ordinal];
+			for (int i = 0; i < op.arity; i++) {
+				int value = 0;
+				int shift = 0;
+				byte b;
+				do {
+					if (offset == log.length) {
+						return count; // dernier enregistrement coupé
+					}
+					b = log[offset++];
+					value |= (b & 0x7F) << shift;
+					shift += 7;
+				} while (b < 0);
+				args[i] = value;
+			}
+			apply(data, op, args[0], args[1], args[2]);
+			count++;
+		}
+		return count;
+	}
+
+	private static final Position NO_MOUSE = new Position(0, 0); // la souris ne compte pas hors affichage
+
+	private static void apply(GameData data, Op op, int a, int b, int c) {
+		switch (op) {
+		case SELECT_ENEMY -> data.selectEnemy(a);
+		case USE_ITEM -> data.useItemAt(new Position(a, b));
+		case MELEE -> data.meleeAttack();
+		case END_TURN -> data.executeEnemyTurn();
+		case MOVE -> data.moveHero(new Coord(a, b));
+		case NEXT_ROOM -> data.nextRoom();
+		case SELECT_SLOT -> data.selectSlotToUnlock(new Position(a, b));
+		case DESELECT_SLOT -> data.deselectSlot(new Position(a, b));
+		case CONFIRM_UNLOCK -> data.confirmUnlock();
+		case DRAG_PENDING_ITEM -> data.dragPendingItem(NO_MOUSE, a != 0);
+		case DRAG_PENDING_CURSE -> data.dragPendingCurse(NO_MOUSE);
+		case DRAG_REWARD -> data.dragReward(a, NO_MOUSE, b != 0);
+		case DRAG_MERCHANT -> data.dragMerchantItem(a, NO_MOUSE, b != 0);
+		case DRAG_BACKPACK -> data.dragFromBackpack(new Position(a, b), NO_MOUSE);
+		case ROTATE_DRAG -> data.rotationDuringDrag();
+		case DROP -> data.drop(new Position(a, b), c != 0);
+		case DROP_OUTSIDE -> data.drop(null, false);
+		case AUTO_PLACE -> data.autoPlace();
+		case DISCARD -> data.discardItem(new Position(a, b));
+		case BUY -> data.buyDraggedItem(new Position(a, b));
+		case HEAL -> data.healerHeal();
+		case RAISE_MAX_HP -> data.healerRaiseMaxHp();
+		case LEAVE_HEALER -> data.endHealer();
+		case LEAVE_REWARDS -> data.leaveRewards();
+		case LEAVE_MERCHANT -> data.leaveMerchant();
+		case REFUSE_CURSE -> data.refuseCurse();
+		}
+	}
+
+	private static int readInt(byte[] bytes, int offset) {
+		return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16 | (bytes[offset + 2] & 0xFF) << 8
+				| bytes[offset + 3] & 0xFF;
+	}
+}
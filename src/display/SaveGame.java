@@ -0,0 +1,439 @@
+package display;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import backpack.BackPack;
+import backpack.Position;
+import backpack.Shape;
+import backpack.object.Armor;
+import backpack.object.Arrow;
+import backpack.object.Consumable;
+import backpack.object.Curse;
+import backpack.object.Equipment;
+import backpack.object.Gear;
+import backpack.object.Gem;
+import backpack.object.GemType;
+import backpack.object.Gold;
+import backpack.object.MalusType;
+import backpack.object.ManaStone;
+import backpack.object.PotionType;
+import backpack.object.Rarity;
+import backpack.object.ShieldType;
+import backpack.object.WeaponType;
+import dungeon.Coord;
+import dungeon.GameTables;
+import dungeon.RoomType;
+import fighter.Hero;
+
+/**
+ * Binary save of a run outside a fight, to resume it later.
+ * <p>
+ * The file starts with the magic {@code BHSV}, a version on 2 bytes and the
+ * seed, then the state in a fixed order, big endian. Items are written by
+ * value, a save does not depend on the data files. The floors are not written:
+ * they are generated again from the seed, only the flags of their rooms are
+ * kept.
+ * <p>
+ * A save is built in a buffer allocated once, written with one channel to a
+ * temporary file and then renamed over the save, so a crash never leaves half
+ * a save. A load maps the file and reads it in place.
+ */
+public final class SaveGame {
+	public static final int MAGIC = 0x42485356; // "BHSV"
+	public static final int VERSION = 1;
+
+	// étiquettes des objets
+	private static final byte GEAR = 1;
+	private static final byte ARMOR = 2;
+	private static final byte ARROW = 3;
+	private static final byte CONSUMABLE = 4;
+	private static final byte GEM = 5;
+	private static final byte MANA_STONE = 6;
+	private static final byte GOLD = 7;
+	private static final byte CURSE = 8;
+	private static final byte NONE = 0;
+
+	private final Path file;
+	private final Path temporary;
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(16 * 1024);
+
+	/**
+	 * Create the save of a file, the buffer is allocated now so the writes do not
+	 * allocate it again.
+	 */
+	public SaveGame(Path file) {
+		this.file = Objects.requireNonNull(file);
+		this.temporary = file.resolveSibling(file.getFileName() + ".tmp");
+	}
+
+	public Path file() {
+		return file;
+	}
+
+	/**
+	 * Save a run, the previous save stays whole until the new one is complete.
+	 *
+	 * @throws IllegalStateException if the run is in a fight, an item is
+	 *                               dragged or the run is over
+	 */
+	public void write(GameData data) throws IOException {
+		Objects.requireNonNull(data);
+		var state = data.state();
+		for (;;) {
+			try {
+				buffer.clear();
+				encode(state, buffer);
+				break;
+			} catch (BufferOverflowException e) { // très grands étages, on double une fois pour toutes
+				buffer = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+			}
+		}
+		buffer.flip();
+		try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Load a saved run.
+	 *
+	 * @param file   the save
+	 * @param tables tables of the run for what is drawn after the load
+	 * @return GameData the run as it was saved
+	 * @throws IllegalArgumentException if the file is not a valid save
+	 */
+	public static GameData read(Path file, GameTables tables) throws IOException {
+		Objects.requireNonNull(file);
+		Objects.requireNonNull(tables);
+		GameData.State state;
+		try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			var map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			try {
+				state = decode(map);
+			} catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+				throw new IllegalArgumentException("sauvegarde tronquée " + file, e);
+			}
+		}
+		var data = new GameData(state.seed(), tables);
+		data.restore(state);
+		return data;
+	}
+
+	private static void encode(GameData.State state, ByteBuffer out) {
+		out.putInt(MAGIC);
+		out.putShort((short) VERSION);
+		out.putLong(state.seed());
+		for (var draws : state.draws()) {
+			out.putLong(draws);
+		}
+		var hero = state.hero();
+		out.putInt(hero.maxHp()).putInt(hero.currentHp()).putInt(hero.currentEnergy()).putInt(hero.protection());
+		out.putInt(hero.level()).putInt(hero.xp()).putDouble(hero.xpNextLevel()).putInt(hero.maxMana());
+		out.putInt(hero.currentMana()).putInt(hero.gold()).putInt(hero.weakDamageMalus()).putInt(hero.energyPenalty());
+		out.putInt(state.pos().line()).putInt(state.pos().col());
+
+		var bag = state.backpack();
+		out.putLong(bag.unlockedMask());
+		var items = bag.items();
+		out.put((byte) items.size());
+		for (var item : items) {
+			out.putLong(bag.footprint(item));
+			out.put((byte) (bag.getRotation(item) ? 1 : 0));
+			putItem(out, item);
+		}
+
+		out.putInt(state.floor());
+		for (int i = 0; i <= state.floor(); i++) {
+			putLongs(out, state.visitedRooms().get(i));
+			putLongs(out, state.completedRooms().get(i));
+		}
+
+		putItem(out, state.pendingItem());
+		putItem(out, state.pendingCurse());
+		out.putInt(state.curseRefusalCount());
+		out.put(flags(state.inHealer(), state.inMerchant(), state.unlockingSlots()));
+		out.put((byte) (state.currentRoom() == null ? 0 : state.currentRoom().ordinal() + 1));
+		putItems(out, state.merchantSlots());
+		putItems(out, state.combatRewards());
+		out.putInt(state.slotsToUnlock());
+		out.put((byte) state.selectedSlots().size());
+		for (var slot : state.selectedSlots()) {
+			out.put((byte) slot.line()).put((byte) slot.col());
+		}
+	}
+
+	private static GameData.State decode(ByteBuffer in) {
+		if (in.getInt() != MAGIC) {
+			throw new IllegalArgumentException("pas une sauvegarde");
+		}
+		int version = in.getShort();
+		if (version != VERSION) {
+			throw new IllegalArgumentException("version de sauvegarde " + version + " non supportée");
+		}
+		long seed = in.getLong();
+		var draws = new long[4];
+		for (int i = 0; i < draws.length; i++) {
+			draws[i] = in.getLong();
+		}
+		var hero = new Hero.Stats(in.getInt(), in.getInt(), in.getInt(), in.getInt(), in.getInt(), in.getInt(),
+				in.getDouble(), in.getInt(), in.getInt(), in.getInt(), in.getInt(), in.getInt());
+		var pos = new Coord(in.getInt(), in.getInt());
+
+		var bag = BackPack.withUnlocked(in.getLong());
+		int itemCount = in.get();
+		for (int i = 0; i < itemCount; i++) {
+			long mask = in.getLong();
+			boolean rotation = in.get() != 0;
+			bag.restore(Objects.requireNonNull(getItem(in)), mask, rotation);
+		}
+
+		int floor = in.getInt();
+		var visitedRooms = new ArrayList<long[]>();
+		var completedRooms = new ArrayList<long[]>();
+		for (int i = 0; i <= floor; i++) {
+			visitedRooms.add(getLongs(in));
+			completedRooms.add(getLongs(in));
+		}
+
+		var pendingItem = getItem(in);
+		var pendingCurse = getItem(in);
+		if (pendingItem != null && !(pendingItem instanceof Gear) || pendingCurse != null && !(pendingCurse instanceof Curse)) {
+			throw new IllegalArgumentException("objet en attente invalide");
+		}
+		int curseRefusalCount = in.getInt();
+		int flags = in.get();
+		int room = in.get();
+		var merchantSlots = getItems(in);
+		var combatRewards = getItems(in);
+		int slotsToUnlock = in.getInt();
+		int selectedCount = in.get();
+		var selectedSlots = new ArrayList<Position>();
+		for (int i = 0; i < selectedCount; i++) {
+			selectedSlots.add(new Position(in.get(), in.get()));
+		}
+		return new GameData.State(seed, draws, hero, bag, pos, floor, visitedRooms, completedRooms,
+				(Gear) pendingItem, (Curse) pendingCurse, curseRefusalCount, (flags & 1) != 0, (flags & 2) != 0,
+				room == 0 ? null : RoomType.values()[room - 1], merchantSlots, combatRewards, (flags & 4) != 0,
+				slotsToUnlock, selectedSlots);
+	}
+
+	private static byte flags(boolean... values) {
+		int flags = 0;
+		for (int i = 0; i < values.length; i++) {
+			if (values[i]) {
+				flags |= 1 << i;
+			}
+		}
+		return (byte) flags;
+	}
+
+	private static void putLongs(ByteBuffer out, long[] values) {
+		out.putInt(values.length);
+		for (var value : values) {
+			out.putLong(value);
+		}
+	}
+
+	private static long[] getLongs(ByteBuffer in) {
+		var values = new long[in.getInt()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = in.getLong();
+		}
+		return values;
+	}
+
+	private static void putItems(ByteBuffer out, List<Equipment> items) {
+		out.put((byte) items.size());
+		for (var item : items) {
+			putItem(out, item);
+		}
+	}
+
+	private static List<Equipment> getItems(ByteBuffer in) {
+		int count = in.get();
+		var items = new ArrayList<Equipment>(count);
+		for (int i = 0; i < count; i++) {
+			items.add(Objects.requireNonNull(getItem(in)));
+		}
+		return items;
+	}
+
+	private static void putItem(ByteBuffer out, Equipment item) {
+		switch (item) {
+		case null -> out.put(NONE);
+		case Gear gear -> {
+			out.put(GEAR);
+			putString(out, gear.name());
+			putShape(out, gear.shape());
+			out.putInt(gear.basicDamage()).putInt(gear.cost()).putInt(gear.protectionBasic()).putInt(gear.mana());
+			out.put((byte) gear.rarity().ordinal());
+			out.put((byte) (gear.typeW() == null ? -1 : gear.typeW().ordinal()));
+			out.put((byte) (gear.typeS() == null ? -1 : gear.typeS().ordinal()));
+		}
+		case Armor armor -> {
+			out.put(ARMOR);
+			putString(out, armor.name());
+			putShape(out, armor.shape());
+			out.putInt(armor.protection()).put((byte) armor.rarity().ordinal());
+		}
+		case Arrow arrow -> {
+			out.put(ARROW);
+			putString(out, arrow.name());
+			putShape(out, arrow.shape());
+			out.putInt(arrow.damage()).put((byte) arrow.rarity().ordinal());
+		}
+		case Consumable potion -> {
+			out.put(CONSUMABLE);
+			putString(out, potion.name());
+			putShape(out, potion.shape());
+			out.put((byte) potion.type().ordinal()).putInt(potion.amount()).put((byte) potion.rarity().ordinal());
+		}
+		case Gem gem -> {
+			out.put(GEM);
+			putString(out, gem.name());
+			putShape(out, gem.shape());
+			out.put((byte) gem.type().ordinal()).putInt(gem.bonus()).put((byte) gem.rarity().ordinal());
+		}
+		case ManaStone stone -> {
+			out.put(MANA_STONE);
+			putString(out, stone.name());
+			putString(out, stone.type());
+			out.putInt(stone.manaBasic()).putInt(stone.getManaFight()).put((byte) stone.rarity().ordinal());
+		}
+		case Gold gold -> out.put(GOLD).putInt(gold.amount());
+		case Curse curse -> {
+			out.put(CURSE);
+			putString(out, curse.name());
+			putShape(out, curse.shape());
+			out.put((byte) curse.malusType().ordinal()).putInt(curse.malus());
+		}
+		default -> throw new IllegalArgumentException("objet inconnu " + item);
+		}
+	}
+
+	private static Equipment getItem(ByteBuffer in) {
+		var rarities = Rarity.values();
+		int tag = in.get();
+		return switch (tag) {
+		case NONE -> null;
+		case GEAR -> {
+			var name = getString(in);
+			var shape = getShape(in);
+			int damage = in.getInt();
+			int cost = in.getInt();
+			int protection = in.getInt();
+			int mana = in.getInt();
+			var rarity = rarities[in.get()];
+			int weapon = in.get();
+			int shield = in.get();
+			yield new Gear(name, damage, shape, cost, protection, rarity,
+					weapon < 0 ? null : WeaponType.values()[weapon], shield < 0 ? null : ShieldType.values()[shield],
+					mana);
+		}
+		case ARMOR -> {
+			var name = getString(in);
+			var shape = getShape(in);
+			yield new Armor(name, in.getInt(), shape, rarities[in.get()]);
+		}
+		case ARROW -> {
+			var name = getString(in);
+			var shape = getShape(in);
+			yield new Arrow(name, in.getInt(), shape, rarities[in.get()]);
+		}
+		case CONSUMABLE -> {
+			var name = getString(in);
+			var shape = getShape(in);
+			yield new Consumable(name, shape, PotionType.values()[in.get()], in.getInt(), rarities[in.get()]);
+		}
+		case GEM -> {
+			var name = getString(in);
+			var shape = getShape(in);
+			yield new Gem(name, shape, GemType.values()[in.get()], in.getInt(), rarities[in.get()]);
+		}
+		case MANA_STONE -> {
+			var name = getString(in);
+			var type = getString(in);
+			int basic = in.getInt();
+			int fight = in.getInt();
+			var stone = new ManaStone(name, basic, type, rarities[in.get()]);
+			if (fight < 0 || fight > basic) {
+				throw new IllegalArgumentException("mana de combat invalide");
+			}
+			if (fight > 0) { // une pierre neuve n'a pas de mana de combat
+				stone.rechargeMana();
+				stone.useMana(basic - fight);
+			}
+			yield stone;
+		}
+		case GOLD -> new Gold(in.getInt());
+		case CURSE -> {
+			var name = getString(in);
+			var shape = getShape(in);
+			yield new Curse(shape, MalusType.values()[in.get()], name, in.getInt());
+		}
+		default -> throw new IllegalArgumentException("étiquette d'objet inconnue " + tag);
+		};
+	}
+
+	private static void putString(ByteBuffer out, String value) {
+		var bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.putShort((short) bytes.length);
+		out.put(bytes);
+	}
+
+	private static String getString(ByteBuffer in) {
+		var bytes = new byte[Short.toUnsignedInt(in.getShort())];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * A shape on its size and one bit per cell, in line order.
+	 */
+	private static void putShape(ByteBuffer out, Shape shape) {
+		int rows = shape.rows(false);
+		int cols = shape.cols(false);
+		out.put((byte) rows).put((byte) cols);
+		long bits = 0;
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < cols; j++) {
+				if (shape.filled(false, i, j)) {
+					bits |= 1L << (i * cols + j);
+				}
+			}
+		}
+		out.putLong(bits);
+	}
+
+	private static Shape getShape(ByteBuffer in) {
+		int rows = in.get();
+		int cols = in.get();
+		long bits = in.getLong();
+		if (rows <= 0 || cols <= 0 || rows * cols > Long.SIZE) {
+			throw new IllegalArgumentException("forme invalide");
+		}
+		var shape = new boolean[rows][cols];
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < cols; j++) {
+				shape[i][j] = (bits & 1L << (i * cols + j)) != 0;
+			}
+		}
+		return Shape.of(shape);
+	}
+}
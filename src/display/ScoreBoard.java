@@ -0,0 +1,134 @@
+package display;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Best runs shown by the end screens, kept in memory so drawing them does no
+ * I/O.
+ * <p>
+ * The board reads its {@link ScoreStore} once on a background thread, then
+ * watches the directory of the store: when another game writes the journal
+ * the new records are read on that thread. A score added by this game updates
+ * the board as soon as it is written. The drawing only reads the last
+ * published list, it never waits for the files.
+ */
+public final class ScoreBoard {
+	private final ScoreStore store;
+	private volatile List<ScoreStore.Score> best = List.of();
+	private volatile long runs;
+	private Thread watcher;
+
+	public ScoreBoard(ScoreStore store) {
+		this.store = Objects.requireNonNull(store);
+	}
+
+	private static final class Standard {
+		private static final ScoreBoard BOARD = new ScoreBoard(
+				new ScoreStore(Path.of(System.getProperty("user.dir"), "data")));
+	}
+
+	/**
+	 * Give the board of the data directory of the game.
+	 */
+	public static ScoreBoard standard() {
+		return Standard.BOARD;
+	}
+
+	/**
+	 * Load the scores and start watching the files, in the background. Does
+	 * nothing if already started.
+	 */
+	public synchronized void start() {
+		if (watcher != null) {
+			return;
+		}
+		watcher = Thread.ofPlatform().daemon().name("scores").start(this::watch);
+	}
+
+	/**
+	 * Stop watching the files, the board keeps its scores.
+	 */
+	public synchronized void stop() {
+		if (watcher != null) {
+			watcher.interrupt();
+			watcher = null;
+		}
+	}
+
+	/**
+	 * Add the score of a run to the files and to the board.
+	 */
+	public void add(ScoreStore.Score score) throws IOException {
+		store.add(score);
+		publish();
+	}
+
+	/**
+	 * Give the best runs known by the board, without I/O.
+	 *
+	 * @param n number of runs wanted
+	 * @return List the best runs, best first, empty before the first load
+	 */
+	public List<ScoreStore.Score> top(int n) {
+		if (n < 0) {
+			throw new IllegalArgumentException();
+		}
+		var list = best;
+		return list.subList(0, Math.min(n, list.size()));
+	}
+
+	/**
+	 * Number of runs known by the board, without I/O.
+	 */
+	public long runs() {
+		return runs;
+	}
+
+	private void publish() throws IOException {
+		var list = store.top(ScoreStore.CAPACITY); // en mémoire une fois le magasin chargé
+		runs = store.runs();
+		best = list;
+	}
+
+	private void refresh() {
+		try {
+			if (store.refresh()) {
+				publish();
+			}
+		} catch (IOException e) {
+			System.err.println("Erreur lecture des scores");
+		}
+	}
+
+	private void watch() {
+		var directory = store.directory();
+		try (var service = directory.getFileSystem().newWatchService()) {
+			// on s'abonne avant de lire pour ne rien manquer entre les deux
+			directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+			refresh();
+			for (;;) {
+				var key = service.take();
+				boolean changed = false;
+				for (var event : key.pollEvents()) {
+					changed |= event.kind() == StandardWatchEventKinds.OVERFLOW
+							|| ScoreStore.JOURNAL_FILE.equals(String.valueOf(event.context()));
+				}
+				if (changed) {
+					refresh();
+				}
+				if (!key.reset()) {
+					return; // dossier supprimé
+				}
+			}
+		} catch (InterruptedException e) {
+			// arrêt demandé
+		} catch (IOException e) {
+			System.err.println("Erreur surveillance des scores");
+			refresh(); // au moins un chargement
+		}
+	}
+}
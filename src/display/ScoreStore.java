@@ -0,0 +1,355 @@
+package display;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Scores of every finished run, kept in two files of a directory.
+ * <p>
+ * {@code scores.log} is the journal: the magic {@code BHSC} and a version
+ * byte, then one record of fixed size per run. It is only appended, and synced
+ * before {@link #add} returns. {@code scores.top} is the index: the best
+ * {@value #CAPACITY} runs and the length of journal they cover, written to a
+ * temporary file, synced and renamed over the previous one. A crash between
+ * the two only leaves the index behind the journal, the missing records are
+ * read again at the next load. Without a valid index the journal is read once
+ * in full.
+ * <p>
+ * The index is kept sorted in memory: adding a score is a binary search in it
+ * and the best runs are its first entries, whatever the number of runs. The
+ * journal is locked while a score is added, so several games on the same
+ * machine can share the files. The scores of the old {@code save.txt} are
+ * moved to the journal when it is created.
+ */
+public final class ScoreStore {
+	public static final int CAPACITY = 100;
+	public static final String JOURNAL_FILE = "scores.log";
+	public static final String INDEX_FILE = "scores.top";
+	private static final String LEGACY_FILE = "save.txt";
+	private static final int JOURNAL_MAGIC = 0x42485343; // "BHSC"
+	private static final int INDEX_MAGIC = 0x4248544B; // "BHTK"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 4 + 1;
+	private static final int RECORD_SIZE = 4 + 8 + 8 + 4 + 1;
+	// meilleur score d'abord, à égalité la partie la plus ancienne garde sa place
+	private static final Comparator<Score> ORDER = Comparator.comparingInt(Score::points).reversed()
+			.thenComparingLong(Score::time);
+
+	/**
+	 * A finished run.
+	 *
+	 * @param points  final score
+	 * @param seed    seed of the run
+	 * @param time    end of the run in milliseconds since the epoch, 0 when
+	 *                unknown
+	 * @param floor   floor reached, from 0
+	 * @param victory true if the run was won
+	 */
+	public record Score(int points, long seed, long time, int floor, boolean victory) {
+		public Score {
+			if (points < 0 || floor < 0) {
+				throw new IllegalArgumentException("score invalide");
+			}
+		}
+	}
+
+	private final Path journal;
+	private final Path index;
+	private final Path legacy;
+	private final ArrayList<Score> best = new ArrayList<>(CAPACITY + 1);
+	private long covered = -1; // longueur du journal déjà lue, -1 avant le chargement
+	private long runs;
+
+	/**
+	 * Create the store of a directory, nothing is read before the first use.
+	 */
+	public ScoreStore(Path directory) {
+		Objects.requireNonNull(directory);
+		journal = directory.resolve(JOURNAL_FILE);
+		index = directory.resolve(INDEX_FILE);
+		legacy = directory.resolve(LEGACY_FILE);
+	}
+
+	public Path directory() {
+		return journal.getParent();
+	}
+
+	/**
+	 * Add the score of a run, it is on disk when the method returns.
+	 */
+	public synchronized void add(Score score) throws IOException {
+		Objects.requireNonNull(score);
+		locked(channel -> {
+			prepare(channel); // une autre partie a pu écrire depuis
+			var buffer = ByteBuffer.allocate(RECORD_SIZE);
+			put(buffer, score);
+			buffer.flip();
+			long position = covered; // écrase un enregistrement coupé par un crash
+			while (buffer.hasRemaining()) {
+				position += channel.write(buffer, position);
+			}
+			channel.force(false);
+			covered = position;
+			runs++;
+			insert(score);
+			writeIndex();
+		});
+	}
+
+	/**
+	 * Give the best runs, the files are only read the first time.
+	 *
+	 * @param n number of runs wanted, at most {@value #CAPACITY}
+	 * @return List the best runs, best first
+	 */
+	public synchronized List<Score> top(int n) throws IOException {
+		if (n < 0 || n > CAPACITY) {
+			throw new IllegalArgumentException("entre 0 et " + CAPACITY + " scores");
+		}
+		load();
+		return List.copyOf(best.subList(0, Math.min(n, best.size())));
+	}
+
+	/**
+	 * Read the records added by other games since the last read.
+	 *
+	 * @return boolean true if the best runs or the number of runs changed
+	 */
+	public synchronized boolean refresh() throws IOException {
+		long before = covered;
+		locked(this::prepare);
+		return covered != before;
+	}
+
+	/**
+	 * Number of runs in the journal.
+	 */
+	public synchronized long runs() throws IOException {
+		load();
+		return runs;
+	}
+
+	private void load() throws IOException {
+		if (covered >= 0) {
+			return;
+		}
+		locked(this::prepare);
+	}
+
+	private interface JournalAction {
+		void run(FileChannel channel) throws IOException;
+	}
+
+	/**
+	 * Run an action with the journal open and locked against the other games.
+	 */
+	private void locked(JournalAction action) throws IOException {
+		// le verrou de fichier vaut pour tout le processus : deux magasins du même
+		// dossier dans une JVM ne doivent pas le prendre en même temps
+		synchronized (ScoreStore.class) {
+			try (var channel = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE)) {
+				var lock = channel.lock();
+				try {
+					action.run(channel);
+				} finally {
+					lock.release();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Bring the memory up to the end of the journal, the journal must be locked.
+	 */
+	private void prepare(FileChannel channel) throws IOException {
+		if (channel.size() < HEADER_SIZE) { // journal neuf, ou coupé pendant sa création
+			create(channel);
+		} else if (covered < 0) {
+			var header = ByteBuffer.allocate(HEADER_SIZE);
+			readFully(channel, header, 0);
+			if (header.getInt(0) != JOURNAL_MAGIC || header.get(4) != VERSION) {
+				throw new IOException(journal + " n'est pas un journal de scores de cette version");
+			}
+		}
+		long size = channel.size();
+		if (covered > size) { // journal raccourci par quelqu'un d'autre, on relit tout
+			covered = -1;
+		}
+		if (covered < 0 && !readIndex(size)) {
+			covered = HEADER_SIZE;
+			runs = 0;
+			best.clear();
+		}
+		if (catchUp(channel, size)) {
+			writeIndex();
+		}
+	}
+
+	private void create(FileChannel channel) throws IOException {
+		channel.truncate(0);
+		Files.deleteIfExists(index); // l'index d'un ancien journal ne vaut plus
+		var scores = legacyScores();
+		var buffer = ByteBuffer.allocate(HEADER_SIZE + RECORD_SIZE * scores.size());
+		buffer.putInt(JOURNAL_MAGIC).put((byte) VERSION);
+		for (var score : scores) {
+			put(buffer, score);
+		}
+		buffer.flip();
+		long position = 0;
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+		channel.force(false);
+		covered = -1;
+	}
+
+	/**
+	 * Scores of the old text file, one number per line, without the rest of the
+	 * run.
+	 */
+	private List<Score> legacyScores() {
+		var scores = new ArrayList<Score>();
+		try {
+			if (Files.exists(legacy)) {
+				for (var line : Files.readAllLines(legacy, StandardCharsets.UTF_8)) {
+					try {
+						int points = Integer.parseInt(line.strip());
+						if (points >= 0) {
+							scores.add(new Score(points, 0, 0, 0, false));
+						}
+					} catch (NumberFormatException e) { // commentaires et lignes vides
+					}
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("Erreur lecture " + legacy);
+		}
+		return scores;
+	}
+
+	/**
+	 * Read the records after the covered part, a record cut at the end is left
+	 * for the next write.
+	 *
+	 * @return boolean true if a record was read
+	 */
+	private boolean catchUp(FileChannel channel, long size) throws IOException {
+		long end = covered + (size - covered) / RECORD_SIZE * RECORD_SIZE;
+		if (end == covered) {
+			return false;
+		}
+		var buffer = ByteBuffer.allocate(RECORD_SIZE * 2048);
+		for (long position = covered; position < end; position += buffer.limit()) {
+			buffer.clear();
+			buffer.limit((int) Math.min(buffer.capacity(), end - position));
+			readFully(channel, buffer, position);
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				insert(get(buffer));
+				runs++;
+			}
+		}
+		covered = end;
+		return true;
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				throw new IOException("fin de fichier inattendue");
+			}
+			position += read;
+		}
+	}
+
+	private void insert(Score score) {
+		int i = Collections.binarySearch(best, score, ORDER);
+		if (i < 0) {
+			i = -i - 1;
+		}
+		if (i >= CAPACITY) {
+			return;
+		}
+		best.add(i, score);
+		if (best.size() > CAPACITY) {
+			best.remove(CAPACITY);
+		}
+	}
+
+	/**
+	 * Read the index if it matches the journal.
+	 *
+	 * @return boolean false if it is missing or not valid
+	 */
+	private boolean readIndex(long journalSize) throws IOException {
+		if (!Files.exists(index)) {
+			return false;
+		}
+		var buffer = ByteBuffer.wrap(Files.readAllBytes(index));
+		try {
+			if (buffer.getInt() != INDEX_MAGIC || buffer.get() != VERSION) {
+				return false;
+			}
+			long length = buffer.getLong();
+			long count = buffer.getLong();
+			int size = buffer.getInt();
+			if (length < HEADER_SIZE || length > journalSize || (length - HEADER_SIZE) % RECORD_SIZE != 0
+					|| count != (length - HEADER_SIZE) / RECORD_SIZE || size < 0 || size > CAPACITY) {
+				return false;
+			}
+			var scores = new ArrayList<Score>(size);
+			for (int i = 0; i < size; i++) {
+				scores.add(get(buffer));
+			}
+			best.clear();
+			best.addAll(scores);
+			best.sort(ORDER);
+			covered = length;
+			runs = count;
+			return true;
+		} catch (BufferUnderflowException | IllegalArgumentException e) {
+			return false; // index abîmé, le journal fait foi
+		}
+	}
+
+	private void writeIndex() throws IOException {
+		var buffer = ByteBuffer.allocate(4 + 1 + 8 + 8 + 4 + best.size() * RECORD_SIZE);
+		buffer.putInt(INDEX_MAGIC).put((byte) VERSION).putLong(covered).putLong(runs).putInt(best.size());
+		for (var score : best) {
+			put(buffer, score);
+		}
+		buffer.flip();
+		var temporary = index.resolveSibling(INDEX_FILE + ".tmp");
+		try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(false);
+		}
+		Files.move(temporary, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static void put(ByteBuffer buffer, Score score) {
+		buffer.putInt(score.points()).putLong(score.seed()).putLong(score.time()).putInt(score.floor())
+				.put((byte) (score.victory() ? 1 : 0));
+	}
+
+	private static Score get(ByteBuffer buffer) {
+		return new Score(buffer.getInt(), buffer.getLong(), buffer.getLong(), buffer.getInt(), buffer.get() != 0);
+	}
+}
@@ -0,0 +1,280 @@
+package display;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Sprites packed side by side in a few large images, each sprite being a
+ * rectangle of a page. Drawing many sprites from the same page lets Java2D
+ * keep one source image from a copy to the next.
+ * <p>
+ * The pages are filled by shelves: sprites go left to right in a row as high
+ * as the highest of them, a new row starts below when the row is full and a
+ * new page when the page is full. A region is never freed alone, the atlas is
+ * emptied all at once.
+ * <p>
+ * An atlas can also be prepared ahead of time with {@link #pack}: the images
+ * of a directory reduced to {@value #PACKED_SIDE} pixels at most, in pages
+ * {@code atlas-<n>.png} described by {@code atlas.txt}. The index starts with
+ * {@code # backpack-hero atlas v1} then the columns
+ * {@code key,page,x,y,width,height,sourceWidth,sourceHeight,lastModified}, the
+ * date of the file the sprite comes from tells if it changed since.
+ */
+public final class SpriteAtlas {
+	public static final int VERSION = 1;
+	public static final String INDEX_FILE = "atlas.txt";
+	public static final int PACKED_SIDE = 384;
+	private static final int PACKED_PAGE = 2048;
+	private static final int PADDING = 1; // évite que le filtrage d'un voisin déborde
+
+	/**
+	 * Creates the images of the pages.
+	 */
+	@FunctionalInterface
+	public interface PageFactory {
+		BufferedImage create(int width, int height);
+	}
+
+	/**
+	 * A sprite in a page.
+	 */
+	public record Region(BufferedImage page, int x, int y, int width, int height) {
+		public Region {
+			Objects.requireNonNull(page);
+			if (x < 0 || y < 0 || width <= 0 || height <= 0 || x + width > page.getWidth()
+					|| y + height > page.getHeight()) {
+				throw new IllegalArgumentException("région hors de la page");
+			}
+		}
+
+		/**
+		 * Copy the sprite on a graphics, its top left corner at (dx, dy).
+		 */
+		public void draw(Graphics2D graphics, int dx, int dy) {
+			graphics.drawImage(page, dx, dy, dx + width, dy + height, x, y, x + width, y + height, null);
+		}
+
+		/**
+		 * Give the sprite as an image sharing the pixels of the page.
+		 */
+		public BufferedImage image() {
+			return page.getSubimage(x, y, width, height);
+		}
+	}
+
+	/**
+	 * A line of the index of a prepared atlas.
+	 */
+	public record Entry(String key, int page, int x, int y, int width, int height, int sourceWidth,
+			int sourceHeight, long lastModified) {
+		public Entry {
+			Objects.requireNonNull(key);
+			if (page < 0 || x < 0 || y < 0 || width <= 0 || height <= 0 || sourceWidth <= 0 || sourceHeight <= 0) {
+				throw new IllegalArgumentException("entrée d'atlas invalide");
+			}
+		}
+	}
+
+	private final int pageSize;
+	private final int maxPages;
+	private final PageFactory factory;
+	private final ArrayList<BufferedImage> pages = new ArrayList<>();
+	private int shelfX;
+	private int shelfY;
+	private int shelfHeight;
+
+	/**
+	 * Create an empty atlas.
+	 *
+	 * @param pageSize side of a page
+	 * @param maxPages number of pages before the atlas is full
+	 * @param factory  creates a page, or an image of its own for a sprite larger
+	 *                 than a page
+	 */
+	public SpriteAtlas(int pageSize, int maxPages, PageFactory factory) {
+		if (pageSize <= 0 || maxPages <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.pageSize = pageSize;
+		this.maxPages = maxPages;
+		this.factory = Objects.requireNonNull(factory);
+	}
+
+	/**
+	 * Reserve room for a sprite, the caller draws it in the page of the region. A
+	 * sprite larger than a page gets an image of its own.
+	 *
+	 * @return Region the room of the sprite, null if the pages are full
+	 */
+	public Region allocate(int width, int height) {
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException();
+		}
+		if (width > pageSize || height > pageSize) {
+			return new Region(factory.create(width, height), 0, 0, width, height);
+		}
+		if (!pages.isEmpty() && shelfX + width > pageSize) { // rangée pleine
+			shelfX = 0;
+			shelfY += shelfHeight;
+			shelfHeight = 0;
+		}
+		if (pages.isEmpty() || shelfY + height > pageSize) {
+			if (pages.size() == maxPages) {
+				return null;
+			}
+			pages.add(factory.create(pageSize, pageSize));
+			shelfX = 0;
+			shelfY = 0;
+			shelfHeight = 0;
+		}
+		var region = new Region(pages.getLast(), shelfX, shelfY, width, height);
+		shelfX += width + PADDING;
+		shelfHeight = Math.max(shelfHeight, height + PADDING);
+		return region;
+	}
+
+	/**
+	 * Forget every sprite, the pages are made again when needed.
+	 */
+	public void clear() {
+		pages.clear();
+		shelfX = 0;
+		shelfY = 0;
+		shelfHeight = 0;
+	}
+
+	public int pages() {
+		return pages.size();
+	}
+
+	/**
+	 * Give the file of a page of a prepared atlas.
+	 */
+	public static Path pageFile(Path directory, int page) {
+		return directory.resolve("atlas-" + page + ".png");
+	}
+
+	/**
+	 * Prepare the atlas of images of a directory, to read at start instead of the
+	 * files. The atlas must be prepared again when an image changes, until then
+	 * the changed images are read from their files.
+	 *
+	 * @param directory directory of the images, where the atlas is written
+	 * @param files     names of the image files
+	 * @return int number of pages written
+	 */
+	public static int pack(Path directory, List<String> files) throws IOException {
+		Objects.requireNonNull(directory);
+		Objects.requireNonNull(files);
+		record Source(String key, BufferedImage image, long lastModified) {
+		}
+		var sources = new ArrayList<Source>();
+		for (var file : files) {
+			var path = directory.resolve(file);
+			var image = ImageIO.read(path.toFile());
+			if (image == null) {
+				throw new IOException("format inconnu " + path);
+			}
+			sources.add(new Source(file.substring(0, file.lastIndexOf('.')), image,
+					Files.getLastModifiedTime(path).toMillis()));
+		}
+		// les plus hauts d'abord, les rangées perdent moins de place
+		sources.sort(Comparator.comparingInt((Source s) -> -reduced(s.image())[1]));
+		var atlas = new SpriteAtlas(PACKED_PAGE, Integer.MAX_VALUE,
+				(w, h) -> new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB));
+		var lines = new ArrayList<String>();
+		lines.add("# backpack-hero atlas v" + VERSION);
+		lines.add("key,page,x,y,width,height,sourceWidth,sourceHeight,lastModified");
+		for (var source : sources) {
+			var size = reduced(source.image());
+			var region = atlas.allocate(size[0], size[1]);
+			var g = region.page().createGraphics();
+			try {
+				g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+				g.drawImage(source.image(), region.x(), region.y(), size[0], size[1], null);
+			} finally {
+				g.dispose();
+			}
+			lines.add(String.join(",", source.key(), String.valueOf(atlas.pages() - 1), String.valueOf(region.x()),
+					String.valueOf(region.y()), String.valueOf(size[0]), String.valueOf(size[1]),
+					String.valueOf(source.image().getWidth()), String.valueOf(source.image().getHeight()),
+					String.valueOf(source.lastModified())));
+		}
+		int count = atlas.pages();
+		for (int i = 0; i < count; i++) {
+			var page = atlas.pages.get(i);
+			if (i == count - 1) { // la dernière page s'arrête à sa dernière rangée
+				page = page.getSubimage(0, 0, page.getWidth(), Math.min(page.getHeight(), atlas.shelfY + atlas.shelfHeight));
+			}
+			ImageIO.write(page, "png", pageFile(directory, i).toFile());
+		}
+		for (int i = count; Files.deleteIfExists(pageFile(directory, i)); i++) { // pages d'un atlas plus grand
+		}
+		Files.write(directory.resolve(INDEX_FILE), lines, StandardCharsets.UTF_8);
+		return count;
+	}
+
+	/**
+	 * Size of an image reduced to fit in {@value #PACKED_SIDE} pixels, never
+	 * enlarged.
+	 */
+	private static int[] reduced(BufferedImage image) {
+		double factor = Math.min(1, (double) PACKED_SIDE / Math.max(image.getWidth(), image.getHeight()));
+		return new int[] { Math.max(1, (int) Math.round(image.getWidth() * factor)),
+				Math.max(1, (int) Math.round(image.getHeight() * factor)) };
+	}
+
+	/**
+	 * Read the index of a prepared atlas.
+	 *
+	 * @return List the sprites of the atlas, empty if there is no atlas
+	 * @throws IllegalArgumentException if the index is not valid
+	 */
+	public static List<Entry> readIndex(Path directory) throws IOException {
+		Objects.requireNonNull(directory);
+		var file = directory.resolve(INDEX_FILE);
+		if (!Files.exists(file)) {
+			return List.of();
+		}
+		var lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+		var header = "# backpack-hero atlas v" + VERSION;
+		if (lines.isEmpty() || !lines.get(0).strip().equals(header)) {
+			throw new IllegalArgumentException(file + " : en-tête attendu " + header);
+		}
+		var entries = new ArrayList<Entry>();
+		boolean columnNames = true;
+		for (int i = 1; i < lines.size(); i++) {
+			var line = lines.get(i).strip();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			if (columnNames) {
+				columnNames = false;
+				continue;
+			}
+			var fields = line.split(",", -1);
+			try {
+				if (fields.length != 9) {
+					throw new IllegalArgumentException("9 colonnes attendues");
+				}
+				entries.add(new Entry(fields[0], Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+						Integer.parseInt(fields[3]), Integer.parseInt(fields[4]), Integer.parseInt(fields[5]),
+						Integer.parseInt(fields[6]), Integer.parseInt(fields[7]), Long.parseLong(fields[8])));
+			} catch (IllegalArgumentException e) { // NumberFormatException compris
+				throw new IllegalArgumentException(file + " ligne " + (i + 1) + " : " + e.getMessage(), e);
+			}
+		}
+		return entries;
+	}
+}
@@ -0,0 +1,45 @@
+package dungeon;
+
+import java.util.Objects;
+import java.util.random.RandomGenerator;
+
+/**
+ * A stream of a run that counts its draws. Every draw of a
+ * {@link RandomGenerator} is built on {@link #nextLong()}, so the seed of the
+ * stream and the count give back its exact state: a saved run skips the same
+ * number of draws to go on as if it had never stopped.
+ */
+public final class CountingRandom implements RandomGenerator {
+	private final RandomGenerator stream;
+	private long draws;
+
+	public CountingRandom(RandomGenerator stream) {
+		this.stream = Objects.requireNonNull(stream);
+	}
+
+	@Override
+	public long nextLong() {
+		draws++;
+		return stream.nextLong();
+	}
+
+	/**
+	 * Number of 64 bits draws since the creation of the stream.
+	 */
+	public long draws() {
+		return draws;
+	}
+
+	/**
+	 * Draw and forget values, to put back a stream at a saved count.
+	 */
+	public void skip(long count) {
+		if (count < 0) {
+			throw new IllegalArgumentException("nombre de tirages négatif");
+		}
+		for (long i = 0; i < count; i++) {
+			stream.nextLong();
+		}
+		draws += count;
+	}
+}
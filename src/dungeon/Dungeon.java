@@ -1,26 +1,112 @@
 package dungeon;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.random.RandomGenerator.SplittableGenerator;
 
 import fighter.Hero;
 
-public class Dungeon {
-	private final Floor[] etages;
+public final class Dungeon {
+	// étages générés à la demande, la tâche d'un étage ne tourne qu'une fois
+	private final List<FutureTask<Floor>> etages = new ArrayList<>();
+	private final SplittableGenerator root;
+	private final FloorConfig config;
+	private final int floorCount;
+	private final boolean prefetch;
+	private final long seed;
 	private int fluent;
+	private Floor current;
 	private Coord posHero;
 
-	public Dungeon() {
-		etages = new Floor[3];
-		Floor builder = new Floor(new Coord(0, 0), new Coord(0, 0));
-		for (int i = 0; i < etages.length; i++) {
-			etages[i] = builder.generator();
+	/**
+	 * Create the classic dungeon of three floors.
+	 */
+	public Dungeon(long seed) {
+		this(seed, FloorConfig.DEFAULT, 3, true);
+	}
+
+	/**
+	 * Create a dungeon, each floor is generated from its own stream of the seed
+	 * the first time it is needed, so the floors do not depend on when they are
+	 * generated.
+	 *
+	 * @param seed       master seed of the dungeon
+	 * @param config     generation parameters of every floor
+	 * @param floorCount number of floors
+	 * @param prefetch   generate the next floor on a virtual thread while the
+	 *                   hero walks the current one
+	 */
+	public Dungeon(long seed, FloorConfig config, int floorCount, boolean prefetch) {
+		Objects.requireNonNull(config);
+		if (floorCount <= 0) {
+			throw new IllegalArgumentException("au moins un étage");
 		}
+		this.seed = seed;
+		this.config = config;
+		this.floorCount = floorCount;
+		this.prefetch = prefetch;
+		root = Seed.root(seed);
 		fluent = 0;
-		posHero = etages[0].posStart();
+		current = floor(0);
+		posHero = current.posStart();
+		prefetch(1);
+	}
+
+	public long seed() {
+		return seed;
+	}
+
+	public int floorCount() {
+		return floorCount;
+	}
+
+	/**
+	 * Give the task of a floor, the streams are split in the order of the floors
+	 * whatever the order of the calls.
+	 */
+	private FutureTask<Floor> task(int index) {
+		synchronized (etages) {
+			while (etages.size() <= index) {
+				var rand = root.split();
+				etages.add(new FutureTask<>(() -> Floor.generate(config, rand)));
+			}
+			return etages.get(index);
+		}
+	}
+
+	/**
+	 * Give a floor, generated now if no one did it before.
+	 *
+	 * @param index floor number, from 0
+	 * @return Floor the floor
+	 */
+	public Floor floor(int index) {
+		if (index < 0 || index >= floorCount) {
+			throw new IllegalArgumentException();
+		}
+		var task = task(index);
+		task.run(); // ne fait rien si la tâche tourne déjà ou a fini, get attend alors
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private void prefetch(int index) {
+		if (prefetch && index < floorCount) {
+			Thread.ofVirtual().name("floor-" + index).start(task(index));
+		}
 	}
 
 	public Floor currentFloor() {
-		return etages[fluent];
+		return current;
 	}
 
 	public int fluent() {
@@ -31,13 +117,26 @@ public class Dungeon {
 		return posHero;
 	}
 
+	/**
+	 * Go back to a floor of a saved run, the floors are generated again from the
+	 * seed.
+	 */
+	public void resumeAt(int index) {
+		current = floor(index);
+		fluent = index;
+		posHero = current.posStart();
+		prefetch(fluent + 1);
+	}
+
 	public boolean accessTopFloor(Hero hero) {
 		Objects.requireNonNull(hero);
-		if (fluent >= etages.length - 1)
+		if (fluent >= floorCount - 1)
 			return false;
 		fluent++;
-		posHero = etages[fluent].posStart();
+		current = floor(fluent);
+		posHero = current.posStart();
 		hero.initPos(posHero);
+		prefetch(fluent + 1);
 		return true;
 	}
 }
@@ -1,79 +1,213 @@
 package dungeon;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 
 import java.util.List;
 
 import java.util.Objects;
 
-import java.util.Random;
 import java.util.random.RandomGenerator;
 
 public class Floor {
-	private final int line = 5;
-	private final int col = 11;
+	private static final int[] DX = { 1, -1, 0, 0 };
+	private static final int[] DY = { 0, 0, -1, 1 };
+	private final int line;
+	private final int col;
+	private static final RoomType[] TYPES = RoomType.values();
 	private Coord posStart;
-	private Room[][] grid;
-	private ArrayList<Coord> path;
+	// une case par salle possible : 0 pas de salle, sinon ordinal du type + 1
+	private final byte[] types;
+	private final BitSet visited = new BitSet();
+	private final BitSet completed = new BitSet();
+	// bits 0 à 3 : un bit par direction de DX / DY vers la salle voisine reliée
+	// bits 4 à 6 : direction + 1 de la salle suivante sur le chemin principal, 0 si aucune
+	private final byte[] links;
+	private static final int NEXT_SHIFT = 4;
 
 	public Floor(Coord posStart, Coord exit) {
+		this(posStart, exit, FloorConfig.DEFAULT.lines(), FloorConfig.DEFAULT.cols());
+	}
+
+	public Floor(Coord posStart, Coord exit, int lines, int cols) {
 		Objects.requireNonNull(posStart);
 		Objects.requireNonNull(exit);
-		this.posStart = posStart;
-		this.grid = new Room[line][col];
-		this.path = new ArrayList<>();
-		for (int i = 0; i < line; i++) {
-			for (int j = 0; j < col; j++) {
-				grid[i][j] = null;
-			}
+		if (lines <= 0 || cols <= 0) {
+			throw new IllegalArgumentException();
 		}
+		this.line = lines;
+		this.col = cols;
+		this.posStart = posStart;
+		this.types = new byte[line * col];
+		this.links = new byte[line * col];
 	}
 
 	public Coord posStart() {
 		return posStart;
 	}
 
+	public int lines() {
+		return line;
+	}
+
+	public int cols() {
+		return col;
+	}
+
+	/**
+	 * Give a view of the room at a position, or null if there is no room
+	 */
 	public Room room(int line, int col) {
 		if (line < 0 || line >= this.line || col < 0 || col >= this.col)
 			return null;
-		return grid[line][col];
+		int cell = cell(line, col);
+		return types[cell] == 0 ? null : new Room(this, cell);
+	}
+
+	Coord coord(int cell) {
+		return new Coord(cell / col, cell % col);
+	}
+
+	RoomType type(int cell) {
+		return TYPES[types[cell] - 1];
+	}
+
+	private void setType(Coord coord, RoomType type) {
+		types[cell(coord.line(), coord.col())] = (byte) (type.ordinal() + 1);
+	}
+
+	private boolean hasRoom(int l, int c) {
+		return types[cell(l, c)] != 0;
+	}
+
+	boolean isVisited(int cell) {
+		return visited.get(cell);
+	}
+
+	void markVisited(int cell) {
+		visited.set(cell);
+	}
+
+	boolean isCompleted(int cell) {
+		return completed.get(cell);
+	}
+
+	void markCompleted(int cell) {
+		completed.set(cell);
+	}
+
+	/**
+	 * Give the visited rooms, one bit per cell in line order.
+	 */
+	public long[] visitedRooms() {
+		return visited.toLongArray();
+	}
+
+	/**
+	 * Give the completed rooms, one bit per cell in line order.
+	 */
+	public long[] completedRooms() {
+		return completed.toLongArray();
+	}
+
+	/**
+	 * Put back the flags of the rooms of a saved floor.
+	 */
+	public void restoreRooms(long[] visitedRooms, long[] completedRooms) {
+		var visitedBits = BitSet.valueOf(visitedRooms);
+		var completedBits = BitSet.valueOf(completedRooms);
+		if (visitedBits.length() > types.length || completedBits.length() > types.length) {
+			throw new IllegalArgumentException("salles hors de l'étage");
+		}
+		visited.clear();
+		visited.or(visitedBits);
+		completed.clear();
+		completed.or(completedBits);
+	}
+
+	private int cell(int l, int c) {
+		return l * col + c;
+	}
+
+	private boolean inside(int l, int c) {
+		return l >= 0 && l < line && c >= 0 && c < col;
 	}
 
+	/**
+	 * Give the room after a position on the path, or null at the end
+	 */
 	public Coord availableNext(Coord fluent) {
 		Objects.requireNonNull(fluent);
-		int temp = path.indexOf(fluent);
-		if (temp == -1 || temp >= path.size() - 1)
+		if (!inside(fluent.line(), fluent.col()))
 			return null;
-		return path.get(temp + 1);
+		int next = (links[cell(fluent.line(), fluent.col())] & 0xFF) >>> NEXT_SHIFT;
+		if (next == 0)
+			return null;
+		return new Coord(fluent.line() + DX[next - 1], fluent.col() + DY[next - 1]);
+
+	}
+
+	/**
+	 * Tell if the hero can walk from a room to a neighbour room
+	 */
+	public boolean isLinked(Coord from, Coord to) {
+		Objects.requireNonNull(from);
+		Objects.requireNonNull(to);
+		if (!inside(from.line(), from.col()) || !inside(to.line(), to.col()))
+			return false;
+		for (int d = 0; d < 4; d++) {
+			if (from.line() + DX[d] == to.line() && from.col() + DY[d] == to.col()) {
+				return (links[cell(from.line(), from.col())] & 1 << d) != 0;
+			}
+		}
+		return false;
+	}
+
+	private void link(int l, int c, int direction) {
+		links[cell(l, c)] |= (byte) (1 << direction);
+		links[cell(l + DX[direction], c + DY[direction])] |= (byte) (1 << (direction ^ 1)); // 0 <-> 1, 2 <-> 3
+	}
 
+	/**
+	 * Draw a direction toward a free cell, -1 if the 4 are taken
+	 */
+	private int freeDirection(Coord cur, boolean[] visited, int[] order, RandomGenerator rand) {
+		int remaining = 4;
+		for (int j = 0; j < 4; j++) {
+			order[j] = j;
+		}
+		while (remaining > 0) {
+			int index = rand.nextInt(remaining);
+			int direction = order[index];
+			int l = cur.line() + DX[direction];
+			int c = cur.col() + DY[direction];
+			if (inside(l, c) && !visited[cell(l, c)]) {
+				return direction;
+			}
+			// on garde l'ordre des directions restantes, comme List.remove
+			System.arraycopy(order, index + 1, order, index, remaining - index - 1);
+			remaining--;
+		}
+		return -1;
 	}
 
-	private List<Coord> generatePath(Coord start, int depth, RandomGenerator rand) {
+	private List<Coord> generatePath(Coord start, int depth, boolean[] visited, RandomGenerator rand) {
 		Objects.requireNonNull(start);
 		Objects.requireNonNull(rand);
 		ArrayList<Coord> path = new ArrayList<Coord>();
-		int[] x = { 1, -1, 0, 0 };
-		int[] y = { 0, 0, -1, 1 };
+		var order = new int[4];
 		path.add(start);
+		visited[cell(start.line(), start.col())] = true;
 		for (int i = 0; i < depth; i++) {
-			List<Integer> order = new ArrayList<>(List.of(0, 1, 2, 3));
 			Coord cur = path.get(path.size() - 1);
-			for (int j = 0; j < 4; j++) {
-				if (order.isEmpty())
-					break;
-				int index = rand.nextInt(order.size());
-				int direction = order.get(index);
-				int l = cur.line() + x[direction];
-				int c = cur.col() + y[direction];
-				if (l >= 0 && l < line && c >= 0 && c < col) {
-					Coord next = new Coord(l, c);
-					if (!path.contains(next)) {
-						path.add(next);
-						break;
-					}
-				}
-				order.remove(index);
+			int direction = freeDirection(cur, visited, order, rand);
+			if (direction != -1) {
+				var next = new Coord(cur.line() + DX[direction], cur.col() + DY[direction]);
+				visited[cell(next.line(), next.col())] = true;
+				link(cur.line(), cur.col(), direction);
+				links[cell(cur.line(), cur.col())] |= (byte) ((direction + 1) << NEXT_SHIFT);
+				path.add(next);
 			}
 		}
 		return List.copyOf(path);
@@ -102,24 +236,96 @@ public class Floor {
 		return List.copyOf(shuffle);
 	}
 
-	public Floor generator() {
-		RandomGenerator rand = new Random();
-		int depth = rand.nextInt(15 - 9 + 1) + 9;
-		Coord start = new Coord(rand.nextInt(line), rand.nextInt(col));
-		List<Coord> path = generatePath(start, depth, rand);
-		Coord exit = path.get(path.size() - 1);
-		var floor = new Floor(start, exit);
+	/**
+	 * Grow dead ends from random rooms (main path or earlier branches), each
+	 * ending on a treasure.
+	 */
+	private void growBranches(FloorConfig config, List<Coord> path, boolean[] visited, RandomGenerator rand) {
+		if (config.branchLength() == 0 || path.size() < 2) {
+			return;
+		}
+		var order = new int[4];
+		var rooms = new ArrayList<Coord>(path.subList(0, path.size() - 1)); // pas depuis la sortie
+		for (int b = 0; b < config.branches(); b++) {
+			Coord cur = rooms.get(rand.nextInt(rooms.size()));
+			Coord last = null;
+			for (int step = 0; step < config.branchLength(); step++) {
+				int direction = freeDirection(cur, visited, order, rand);
+				if (direction == -1) {
+					break;
+				}
+				var next = new Coord(cur.line() + DX[direction], cur.col() + DY[direction]);
+				visited[cell(next.line(), next.col())] = true;
+				link(cur.line(), cur.col(), direction);
+				setType(next, rand.nextBoolean() ? RoomType.ENEMIES : RoomType.CORRIDOR);
+				rooms.add(next);
+				cur = next;
+				last = next;
+			}
+			if (last != null) {
+				setType(last, RoomType.TREASURE);
+			}
+		}
+	}
+
+	/**
+	 * Link neighbour rooms that are not linked yet, each pair with the given
+	 * chance.
+	 */
+	private void addLoops(double chance, RandomGenerator rand) {
+		if (chance == 0) {
+			return;
+		}
+		for (int l = 0; l < line; l++) {
+			for (int c = 0; c < col; c++) {
+				if (!hasRoom(l, c)) {
+					continue;
+				}
+				for (int direction = 0; direction < 4; direction += 3) { // bas (0) et droite (3) : chaque paire une fois
+					int nl = l + DX[direction];
+					int nc = c + DY[direction];
+					if (!inside(nl, nc) || !hasRoom(nl, nc) || (links[cell(l, c)] & 1 << direction) != 0) {
+						continue;
+					}
+					if (chance >= 1 || rand.nextDouble() < chance) {
+						link(l, c, direction);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Generate a new classic floor, the same generator state gives the same
+	 * floor.
+	 */
+	public Floor generator(RandomGenerator rand) {
+		return generate(FloorConfig.DEFAULT, rand);
+	}
+
+	/**
+	 * Generate a new floor: a main path from the start to the exit, side branches
+	 * and loops between neighbour rooms. The same configuration and generator
+	 * state give the same floor.
+	 */
+	public static Floor generate(FloorConfig config, RandomGenerator rand) {
+		Objects.requireNonNull(config);
+		Objects.requireNonNull(rand);
+		int depth = rand.nextInt(config.maxDepth() - config.minDepth() + 1) + config.minDepth();
+		Coord start = new Coord(rand.nextInt(config.lines()), rand.nextInt(config.cols()));
+		var floor = new Floor(start, start, config.lines(), config.cols());
+		var visited = new boolean[config.lines() * config.cols()];
+		List<Coord> path = floor.generatePath(start, depth, visited, rand);
 
-		var type = shuffleRoomType(path.size(), rand);
-		floor.grid[path.get(0).line()][path.get(0).col()] = new Room(path.get(0), RoomType.START);
-		floor.grid[path.get(path.size() - 1).line()][path.get(path.size() - 1).col()] = new Room(path.get(path.size() - 1),
-				RoomType.EXIT);
+		var type = floor.shuffleRoomType(path.size(), rand);
+		floor.setType(path.get(0), RoomType.START);
+		floor.setType(path.get(path.size() - 1), RoomType.EXIT);
 
 		for (int i = 1; i < path.size() - 1; i++) {
-			Coord c = path.get(i);
-			floor.grid[c.line()][c.col()] = new Room(c, type.get(i - 1));
+			floor.setType(path.get(i), type.get(i - 1));
 		}
-		floor.path.addAll(path);
+		floor.growBranches(config, path, visited, rand);
+		floor.addLoops(config.loopChance(), rand);
 		return floor;
 	}
 
@@ -0,0 +1,40 @@
+package dungeon;
+
+/**
+ * Parameters of the generation of a floor.
+ *
+ * @param lines        number of lines of the floor
+ * @param cols         number of columns of the floor
+ * @param minDepth     minimum number of steps of the main path
+ * @param maxDepth     maximum number of steps of the main path
+ * @param branches     number of side branches grown from the main path
+ * @param branchLength maximum number of rooms of a side branch
+ * @param loopChance   chance to link two neighbour rooms that the generation
+ *                     did not link, 1 links every neighbour rooms
+ */
+public record FloorConfig(int lines, int cols, int minDepth, int maxDepth, int branches, int branchLength,
+		double loopChance) {
+	/**
+	 * The classic floor: 5x11, one path of 9 to 15 steps, every neighbour rooms
+	 * linked.
+	 */
+	public static final FloorConfig DEFAULT = new FloorConfig(5, 11, 9, 15, 0, 0, 1.0);
+
+	public FloorConfig {
+		if (lines <= 0 || cols <= 0) {
+			throw new IllegalArgumentException("dimensions négatives");
+		}
+		if ((long) lines * cols > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("étage trop grand");
+		}
+		if (minDepth < 0 || maxDepth < minDepth) {
+			throw new IllegalArgumentException("profondeur invalide");
+		}
+		if (branches < 0 || branchLength < 0) {
+			throw new IllegalArgumentException("branches négatives");
+		}
+		if (!(loopChance >= 0 && loopChance <= 1)) {
+			throw new IllegalArgumentException("loopChance hors de [0, 1]");
+		}
+	}
+}
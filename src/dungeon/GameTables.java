@@ -0,0 +1,315 @@
+package dungeon;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
+
+import backpack.Shape;
+import backpack.object.Curse;
+import backpack.object.Gear;
+import backpack.object.MalusType;
+import backpack.object.Rarity;
+import backpack.object.ShieldType;
+import backpack.object.WeaponType;
+import fighter.Enemy;
+import fighter.EnemyCreation;
+import fighter.EnemyInfo;
+
+/**
+ * Gear and enemy tables of a run, read from {@code gear.csv} and
+ * {@code enemies.csv} so the balance can change without compiling. A missing
+ * file falls back to the tables built in the code ({@link RandomGear} and
+ * {@link EnemyCreation#DEFAULT_TABLE}).
+ * <p>
+ * Both files start with a header {@code # backpack-hero <kind> v<version>}
+ * then a line with the column names, then one row per entry, comma
+ * separated. Lines starting with {@code #} are comments. A shape is written
+ * line by line separated by {@code /}, {@code #} for a full cell and
+ * {@code .} for an empty one, for example {@code ##/#.}.
+ * <p>
+ * Columns of {@code gear.csv}:
+ * {@code name,rarity,weapon,shield,damage,protection,cost,mana,shape,weight}
+ * where weapon or shield is {@code -} when the gear is not one.<br>
+ * Columns of {@code enemies.csv}:
+ * {@code name,maxHp,minDamage,maxDamage,minProtection,maxProtection,healMin,healMax,xp,weight,curses}
+ * where curses is {@code -} or a list of {@code name:malusType:malus:shape}
+ * separated by {@code |}. Every rarity needs a gear of positive weight.
+ */
+public final class GameTables {
+	public static final int VERSION = 1;
+	public static final String GEAR_FILE = "gear.csv";
+	public static final String ENEMY_FILE = "enemies.csv";
+
+	private final List<GearTemplate> gear;
+	private final List<EnemyInfo> enemies;
+	private final RarityTable<GearTemplate> gearByRarity;
+	private final WeightedSampler<GearTemplate> allGear;
+	private final WeightedSampler<EnemyInfo> enemyTable;
+
+	private GameTables(List<GearTemplate> gear, List<EnemyInfo> enemies, WeightedSampler<EnemyInfo> enemyTable) {
+		if (gear.isEmpty() || enemies.isEmpty()) {
+			throw new IllegalArgumentException("table vide");
+		}
+		this.gear = List.copyOf(gear);
+		this.enemies = List.copyOf(enemies);
+		this.gearByRarity = RarityTable.of(this.gear, GearTemplate::rarity, GearTemplate::weight);
+		this.allGear = WeightedSampler.of(this.gear, GearTemplate::weight);
+		this.enemyTable = enemyTable;
+	}
+
+	private static final class Standard {
+		private static final GameTables TABLES = loadOrBuiltin(Path.of(System.getProperty("user.dir"), "data"));
+	}
+
+	/**
+	 * Give the tables of the game, read once from the data directory.
+	 */
+	public static GameTables standard() {
+		return Standard.TABLES;
+	}
+
+	/**
+	 * Give the tables built in the code.
+	 */
+	public static GameTables builtin() {
+		var gear = new ArrayList<GearTemplate>();
+		for (var item : RandomGear.values()) {
+			gear.add(new GearTemplate(item.createGear(), 1));
+		}
+		var table = EnemyCreation.DEFAULT_TABLE;
+		var enemies = new ArrayList<EnemyInfo>();
+		for (int i = 0; i < table.size(); i++) {
+			enemies.add(table.get(i));
+		}
+		return new GameTables(gear, enemies, table);
+	}
+
+	/**
+	 * Read the tables of a directory, each missing file is replaced by the built
+	 * in table.
+	 *
+	 * @throws IllegalArgumentException if a file is not valid
+	 */
+	public static GameTables loadOrBuiltin(Path directory) {
+		Objects.requireNonNull(directory);
+		try {
+			return read(directory, true);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Read the tables of a directory, both files must exist.
+	 *
+	 * @throws IllegalArgumentException if a file is not valid
+	 */
+	public static GameTables load(Path directory) throws IOException {
+		Objects.requireNonNull(directory);
+		return read(directory, false);
+	}
+
+	private static GameTables read(Path directory, boolean fallback) throws IOException {
+		var gearFile = directory.resolve(GEAR_FILE);
+		var enemyFile = directory.resolve(ENEMY_FILE);
+		var builtin = fallback && !(Files.exists(gearFile) && Files.exists(enemyFile)) ? builtin() : null;
+		var parser = new Parser();
+		var gear = builtin != null && !Files.exists(gearFile) ? builtin.gear : parser.gear(gearFile);
+		if (builtin != null && !Files.exists(enemyFile)) {
+			return new GameTables(gear, builtin.enemies, builtin.enemyTable);
+		}
+		var enemies = new ArrayList<EnemyInfo>();
+		var weights = parser.enemies(enemyFile, enemies);
+		return new GameTables(gear, enemies, WeightedSampler.of(enemies, weights));
+	}
+
+	public List<GearTemplate> gear() {
+		return gear;
+	}
+
+	public List<EnemyInfo> enemies() {
+		return enemies;
+	}
+
+	/**
+	 * Draw a gear of a rarity.
+	 */
+	public GearTemplate gear(RandomGenerator rand, Rarity rarity) {
+		return gearByRarity.sample(rand, rarity);
+	}
+
+	/**
+	 * Create a gear drawn from the whole table.
+	 */
+	public Gear randomGear(RandomGenerator rand) {
+		return allGear.sample(rand).createGear();
+	}
+
+	/**
+	 * Create an enemy drawn from the enemy table.
+	 */
+	public Enemy randomEnemy(RandomGenerator rand) {
+		return EnemyCreation.createRandom(rand, enemyTable);
+	}
+
+	/**
+	 * Reads the rows of the files, a shape is parsed and interned once and shared
+	 * by every row using it.
+	 */
+	private static final class Parser {
+		private final HashMap<String, Shape> shapes = new HashMap<>();
+		private Path file;
+		private int lineNumber;
+
+		List<GearTemplate> gear(Path file) throws IOException {
+			var gear = new ArrayList<GearTemplate>();
+			rows(file, "gear", 10, fields -> {
+				var weapon = fields[2].equals("-") ? null : WeaponType.valueOf(fields[2]);
+				var shield = fields[3].equals("-") ? null : ShieldType.valueOf(fields[3]);
+				if ((weapon == null) == (shield == null)) {
+					throw new IllegalArgumentException("une arme ou un bouclier");
+				}
+				var item = new Gear(name(fields[0]), integer(fields[4]), shape(fields[8]), integer(fields[6]),
+						integer(fields[5]), Rarity.valueOf(fields[1]), weapon, shield, integer(fields[7]));
+				gear.add(new GearTemplate(item, weight(fields[9])));
+			});
+			// le marchand et le butin tirent un équipement de chaque rareté
+			for (var rarity : Rarity.values()) {
+				if (gear.stream().noneMatch(template -> template.rarity() == rarity && template.weight() > 0)) {
+					throw new IllegalArgumentException(file + " : aucun équipement " + rarity + " de poids positif");
+				}
+			}
+			return gear;
+		}
+
+		/**
+		 * Read the enemies in the list and give their weights.
+		 */
+		double[] enemies(Path file, List<EnemyInfo> enemies) throws IOException {
+			var weights = new ArrayList<Double>();
+			rows(file, "enemies", 11, fields -> {
+				enemies.add(new EnemyInfo(name(fields[0]), integer(fields[1]), integer(fields[2]), integer(fields[3]),
+						integer(fields[4]), integer(fields[5]), integer(fields[6]), integer(fields[7]),
+						integer(fields[8]), curses(fields[10])));
+				weights.add(weight(fields[9]));
+			});
+			return weights.stream().mapToDouble(Double::doubleValue).toArray();
+		}
+
+		/**
+		 * Check the header and give each row to the action, a row refused by the
+		 * action or by the rules of the records gives an error with the file and the
+		 * line.
+		 */
+		private void rows(Path file, String kind, int columns, Consumer<String[]> action) throws IOException {
+			this.file = file;
+			var lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+			lineNumber = 1;
+			var header = "# backpack-hero " + kind + " v" + VERSION;
+			if (lines.isEmpty() || !lines.get(0).strip().equals(header)) {
+				throw error("en-tête attendu : " + header, null);
+			}
+			boolean columnNames = true;
+			for (int i = 1; i < lines.size(); i++) {
+				lineNumber = i + 1;
+				var line = lines.get(i).strip();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				if (columnNames) { // la ligne des noms de colonnes
+					columnNames = false;
+					continue;
+				}
+				var fields = line.split(",", -1);
+				if (fields.length != columns) {
+					throw error(columns + " colonnes attendues", null);
+				}
+				for (int f = 0; f < fields.length; f++) {
+					fields[f] = fields[f].strip();
+				}
+				try {
+					action.accept(fields);
+				} catch (IllegalArgumentException | NullPointerException e) {
+					throw error(Objects.requireNonNullElse(e.getMessage(), "valeur refusée"), e);
+				}
+			}
+		}
+
+		private List<Curse> curses(String field) {
+			if (field.equals("-")) {
+				return List.of();
+			}
+			var curses = new ArrayList<Curse>();
+			for (var curse : field.split("\\|")) {
+				var parts = curse.split(":", -1);
+				if (parts.length != 4) {
+					throw new IllegalArgumentException("malédiction nom:type:malus:forme attendue");
+				}
+				curses.add(new Curse(shape(parts[3].strip()), MalusType.valueOf(parts[1].strip()), name(parts[0]),
+						integer(parts[2].strip())));
+			}
+			return List.copyOf(curses);
+		}
+
+		private String name(String field) {
+			var name = field.strip();
+			if (name.isEmpty()) {
+				throw new IllegalArgumentException("nom vide");
+			}
+			return name;
+		}
+
+		private int integer(String field) {
+			try {
+				return Integer.parseInt(field);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("entier attendu : " + field);
+			}
+		}
+
+		private double weight(String field) {
+			try {
+				return Double.parseDouble(field);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("poids attendu : " + field);
+			}
+		}
+
+		private Shape shape(String field) {
+			var shape = shapes.get(field);
+			if (shape != null) {
+				return shape;
+			}
+			var lines = field.split("/", -1);
+			var matrix = new boolean[lines.length][];
+			for (int i = 0; i < lines.length; i++) {
+				if (lines[i].isEmpty() || lines[i].length() != lines[0].length()) {
+					throw new IllegalArgumentException("forme invalide : " + field);
+				}
+				matrix[i] = new boolean[lines[i].length()];
+				for (int j = 0; j < lines[i].length(); j++) {
+					switch (lines[i].charAt(j)) {
+					case '#' -> matrix[i][j] = true;
+					case '.' -> matrix[i][j] = false;
+					default -> throw new IllegalArgumentException("forme invalide : " + field);
+					}
+				}
+			}
+			shape = Shape.of(matrix);
+			shapes.put(field, shape);
+			return shape;
+		}
+
+		private IllegalArgumentException error(String message, Exception cause) {
+			return new IllegalArgumentException(file + " ligne " + lineNumber + " : " + message, cause);
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package dungeon;
+
+import java.util.Objects;
+
+import backpack.object.Equipment;
+import backpack.object.Gear;
+import backpack.object.Rarity;
+
+/**
+ * A gear of a loaded table with its chance inside its rarity. The gear is
+ * validated once when the table is read, {@link #create()} copies it.
+ *
+ * @param gear   stats of the gear, its shape is interned
+ * @param weight weight of the gear inside its rarity, 0 to never draw it
+ */
+public record GearTemplate(Gear gear, double weight) implements GenerationItem {
+	public GearTemplate {
+		Objects.requireNonNull(gear);
+		if (!(weight >= 0) || Double.isInfinite(weight)) {
+			throw new IllegalArgumentException("poids invalide");
+		}
+	}
+
+	@Override
+	public Rarity rarity() {
+		return gear.rarity();
+	}
+
+	public Gear createGear() {
+		return new Gear(gear.name(), gear.basicDamage(), gear.shape(), gear.cost(), gear.protectionBasic(),
+				gear.rarity(), gear.typeW(), gear.typeS(), gear.mana());
+	}
+
+	@Override
+	public Equipment create() {
+		return createGear();
+	}
+}
@@ -4,10 +4,11 @@ import java.util.List;
 import java.util.Objects;
 import java.util.random.RandomGenerator;
 
+import backpack.Shape;
 import backpack.object.Equipment;
 import backpack.object.Rarity;
 
-public sealed interface GenerationItem permits RandomGear,RandomGem,RandomManaStone,RandomPotion,RandomArmor,RandomArrow {
+public sealed interface GenerationItem permits RandomGear,RandomGem,RandomManaStone,RandomPotion,RandomArmor,RandomArrow,GearTemplate {
 	Rarity rarity();
 	Equipment create();
 	
@@ -15,17 +16,23 @@ public sealed interface GenerationItem permits RandomGear,RandomGem,RandomManaSt
 		Objects.requireNonNull(rand);
 		Objects.requireNonNull(rarity);
 		Objects.requireNonNull(list);
-		List<GenerationItem> itemRarity = getByRarity(rarity,list);
-		if (itemRarity.isEmpty()) {
+		// pour une liste fixe, préférer une RarityTable construite une fois (voir LootTables)
+		int count = 0;
+		for (var item : list) {
+			if (item.rarity() == rarity) {
+				count++;
+			}
+		}
+		if (count == 0) {
 			throw new IllegalArgumentException();
 		}
-		return itemRarity.get(rand.nextInt(itemRarity.size())).create();
-	}
-	
-	private static List<GenerationItem> getByRarity(Rarity rarity,List<GenerationItem> list) {
-		return list.stream()
-				.filter(g -> g.rarity() == rarity)
-				.toList();
+		int chosen = rand.nextInt(count);
+		for (var item : list) {
+			if (item.rarity() == rarity && chosen-- == 0) {
+				return item.create();
+			}
+		}
+		throw new AssertionError();
 	}
 	
 	public static Rarity generation(RandomGenerator rand) {
@@ -37,44 +44,44 @@ public sealed interface GenerationItem permits RandomGear,RandomGem,RandomManaSt
 	  return Rarity.LEGENDARY;
 	}
 	
-	static boolean[][] shape1x1() {
-		return new boolean[][] { { true } };
+	static Shape shape1x1() {
+		return Shape.of(new boolean[][] { { true } });
 	}
 
-	static boolean[][] shape1x2() {
-		return new boolean[][] { { true, true } };
+	static Shape shape1x2() {
+		return Shape.of(new boolean[][] { { true, true } });
 	}
 
-	static boolean[][] shape2x2Full() {
-		return new boolean[][] { { true, true }, { true, true } };
+	static Shape shape2x2Full() {
+		return Shape.of(new boolean[][] { { true, true }, { true, true } });
 	}
 
-	static boolean[][] shape2x3Full() {
-		return new boolean[][] { { true, true, true }, { true, true, true } };
+	static Shape shape2x3Full() {
+		return Shape.of(new boolean[][] { { true, true, true }, { true, true, true } });
 	}
 	
-  static boolean[][] shape2x1() {
-    return new boolean[][] { { true }, { true } };
+  static Shape shape2x1() {
+    return Shape.of(new boolean[][] { { true }, { true } });
   }
 
-  static boolean[][] shape2x2L() {
-    return new boolean[][] { { true, true }, { true, false } };
+  static Shape shape2x2L() {
+    return Shape.of(new boolean[][] { { true, true }, { true, false } });
   }
   
-  static boolean[][] shape1x3() {
-    return new boolean[][] { { true, true, true } };
+  static Shape shape1x3() {
+    return Shape.of(new boolean[][] { { true, true, true } });
   }
 
-  static boolean[][] shape3x1() {
-    return new boolean[][] { { true }, { true }, { true } };
+  static Shape shape3x1() {
+    return Shape.of(new boolean[][] { { true }, { true }, { true } });
   }
 
-  static boolean[][] shape3x2Full() {
-    return new boolean[][] { { true, true }, { true, true }, { true, true } };
+  static Shape shape3x2Full() {
+    return Shape.of(new boolean[][] { { true, true }, { true, true }, { true, true } });
   }
 
-  static boolean[][] shape2x2LReverse() {
-    return new boolean[][] { { true, true }, { false, true } };
+  static Shape shape2x2LReverse() {
+    return Shape.of(new boolean[][] { { true, true }, { false, true } });
   }
 	
 }
@@ -0,0 +1,26 @@
+package dungeon;
+
+import java.util.List;
+
+/**
+ * Default tables of the generated items, every item of a rarity with the same
+ * chance. Build a {@link RarityTable} with weights to tune the loot.
+ */
+public final class LootTables {
+	public static final RarityTable<RandomGear> GEAR = RarityTable.uniform(List.of(RandomGear.values()),
+			RandomGear::rarity);
+	public static final RarityTable<RandomGem> GEM = RarityTable.uniform(List.of(RandomGem.values()), RandomGem::rarity);
+	public static final RarityTable<RandomPotion> POTION = RarityTable.uniform(List.of(RandomPotion.values()),
+			RandomPotion::rarity);
+	public static final RarityTable<RandomArmor> ARMOR = RarityTable.uniform(List.of(RandomArmor.values()),
+			RandomArmor::rarity);
+	public static final RarityTable<RandomArrow> ARROW = RarityTable.uniform(List.of(RandomArrow.values()),
+			RandomArrow::rarity);
+	public static final RarityTable<RandomManaStone> MANA_STONE = RarityTable
+			.uniform(List.of(RandomManaStone.values()), RandomManaStone::rarity);
+	public static final RarityTable<RandomCurse> CURSE = RarityTable.uniform(List.of(RandomCurse.values()),
+			RandomCurse::rarity);
+
+	private LootTables() {
+	}
+}
@@ -2,6 +2,7 @@ package dungeon;
 
 import java.util.Objects;
 
+import backpack.Shape;
 import backpack.object.Arrow;
 import backpack.object.Equipment;
 import backpack.object.Rarity;
@@ -13,12 +14,12 @@ public enum RandomArrow implements GenerationItem {
 	ARROW_RARE("arrow_rare", 3, GenerationItem.shape2x1(), Rarity.RARE),
 	ARROW_LEGENDARY("arrow_legendary", 5, GenerationItem.shape2x2L(), Rarity.LEGENDARY);
 
-	private final boolean[][] shape;
+	private final Shape shape;
 	private final Rarity rarity;
 	private final int damage;
 	private final String name;
 
-	RandomArrow(String name, int damage, boolean[][] shape, Rarity rarity) {
+	RandomArrow(String name, int damage, Shape shape, Rarity rarity) {
 		Objects.requireNonNull(name);
 		Objects.requireNonNull(rarity);
 		this.name = name;
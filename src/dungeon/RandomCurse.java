@@ -3,6 +3,7 @@ package dungeon;
 
 import java.util.Objects;
 
+import backpack.Shape;
 import backpack.object.Curse;
 import backpack.object.MalusType;
 import backpack.object.Rarity;
@@ -19,11 +20,11 @@ public enum RandomCurse {
 	HEAL_CURSE("Grand Sickness Curse", GenerationItem.shape2x3Full(), MalusType.HEAL, Rarity.LEGENDARY);
 
 	private final String name;
-	private final boolean[][] shape;
+	private final Shape shape;
 	private final MalusType malusType;
 	private final Rarity rarity;
 
-	RandomCurse(String name, boolean[][] shape, MalusType malusType, Rarity rarity) {
+	RandomCurse(String name, Shape shape, MalusType malusType, Rarity rarity) {
 		Objects.requireNonNull(name);
 		Objects.requireNonNull(malusType);
 		Objects.requireNonNull(rarity);
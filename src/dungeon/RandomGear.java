@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.random.RandomGenerator;
 
+import backpack.Shape;
 import backpack.object.Equipment;
 import backpack.object.Gear;
 import backpack.object.Rarity;
@@ -30,7 +31,7 @@ public enum RandomGear implements GenerationItem {
 
 	private final String name;
 	private final int basicDamage;
-	private final boolean[][] shape;
+	private final Shape shape;
 	private final int cost;
 	private final int protectionBasic;
 	private final Rarity rarity;
@@ -39,26 +40,26 @@ public enum RandomGear implements GenerationItem {
 	private final int mana;
 
 	// armes normales sans mana
-	RandomGear(String name, int basicDamage, boolean[][] shape, int cost, Rarity rarity, WeaponType typeW) {
+	RandomGear(String name, int basicDamage, Shape shape, int cost, Rarity rarity, WeaponType typeW) {
 		this(name, basicDamage, shape, cost, 0, rarity, typeW, null, 0);
 	}
 
 	// les armes magiques
-	RandomGear(String name, int basicDamage, boolean[][] shape, int cost, Rarity rarity, WeaponType typeW, int mana) {
+	RandomGear(String name, int basicDamage, Shape shape, int cost, Rarity rarity, WeaponType typeW, int mana) {
 		this(name, basicDamage, shape, cost, 0, rarity, typeW, null, mana);
 	}
 
 	// boucliers magiques avec mana
-	RandomGear(String name, int basicDamage, boolean[][] shape, int cost, Rarity rarity, ShieldType typeS, int mana) {
+	RandomGear(String name, int basicDamage, Shape shape, int cost, Rarity rarity, ShieldType typeS, int mana) {
 		this(name, basicDamage, shape, cost, 0, rarity, null, typeS, mana);
 	}
 
 	// oucliers sans mana
-	RandomGear(String name, boolean[][] shape, int cost, int protectionBasic, Rarity rarity, ShieldType typeS) {
+	RandomGear(String name, Shape shape, int cost, int protectionBasic, Rarity rarity, ShieldType typeS) {
 		this(name, 0, shape, cost, protectionBasic, rarity, null, typeS, 0);
 	}
 
-	RandomGear(String name, int basicDamage, boolean[][] shape, int cost, int protectionBasic, Rarity rarity,
+	RandomGear(String name, int basicDamage, Shape shape, int cost, int protectionBasic, Rarity rarity,
 			WeaponType typeW, ShieldType typeS, int mana) {
 		Objects.requireNonNull(name);
 		Objects.requireNonNull(rarity);
@@ -99,13 +100,14 @@ public enum RandomGear implements GenerationItem {
 		return rarity;
 	}
 
+	private static final WeightedSampler<RandomGear> ALL = WeightedSampler.uniform(List.of(values()));
+
 	/**
 	 * Get a random Gear item from all available types.
 	 */
 	public static Gear randomGear(RandomGenerator rand) {
 		Objects.requireNonNull(rand);
-		List<RandomGear> gears = List.of(values());
-		return gears.get(rand.nextInt(gears.size())).createGear();
+		return ALL.sample(rand).createGear();
 	}
 
 }
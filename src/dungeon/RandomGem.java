@@ -2,6 +2,7 @@ package dungeon;
 
 import java.util.Objects;
 
+import backpack.Shape;
 import backpack.object.Equipment;
 import backpack.object.Gem;
 import backpack.object.GemType;
@@ -22,12 +23,12 @@ public enum RandomGem implements GenerationItem {
 	BLOCK_CROWN("Block Crown Gem", GenerationItem.shape2x3Full(), GemType.ARMOR_BLOCK, 7, Rarity.LEGENDARY);
 
 	private final String name;
-	private final boolean[][] shape;
+	private final Shape shape;
 	private final GemType type;
 	private final int bonus;
 	private final Rarity rarity;
 
-	RandomGem(String name, boolean[][] shape, GemType type, int bonus, Rarity rarity) {
+	RandomGem(String name, Shape shape, GemType type, int bonus, Rarity rarity) {
 		Objects.requireNonNull(name);
 		Objects.requireNonNull(type);
 		Objects.requireNonNull(rarity);
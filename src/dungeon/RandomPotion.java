@@ -2,6 +2,7 @@ package dungeon;
 
 import java.util.Objects;
 
+import backpack.Shape;
 import backpack.object.Consumable;
 import backpack.object.Equipment;
 import backpack.object.PotionType;
@@ -22,12 +23,12 @@ public enum RandomPotion implements GenerationItem {
 	ENERGY_ELIXIR("Élixir de vitesse", GenerationItem.shape2x2Full(), PotionType.ENERGY, 12, 30, Rarity.LEGENDARY);
 
 	private final String name;
-	private final boolean[][] shape;
+	private final Shape shape;
 	private final PotionType type;
 	private final int amount;
 	private final Rarity rarity;
 
-	RandomPotion(String name, boolean[][] shape, PotionType type, int amount, int basePrice, Rarity rarity) {
+	RandomPotion(String name, Shape shape, PotionType type, int amount, int basePrice, Rarity rarity) {
 		Objects.requireNonNull(name);
 		Objects.requireNonNull(type);
 		Objects.requireNonNull(rarity);
@@ -0,0 +1,70 @@
+package dungeon;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.random.RandomGenerator;
+
+import backpack.object.Rarity;
+
+/**
+ * One weighted sampler per rarity, built once from a list of items.
+ *
+ * @param <T> type of the items
+ */
+public final class RarityTable<T> {
+	private final EnumMap<Rarity, WeightedSampler<T>> samplers = new EnumMap<>(Rarity.class);
+
+	private RarityTable(List<? extends T> items, Function<? super T, Rarity> rarity,
+			ToDoubleFunction<? super T> weight) {
+		var buckets = new EnumMap<Rarity, List<T>>(Rarity.class);
+		for (var item : items) {
+			buckets.computeIfAbsent(Objects.requireNonNull(rarity.apply(item)), r -> new ArrayList<>()).add(item);
+		}
+		for (var entry : buckets.entrySet()) {
+			if (entry.getValue().stream().anyMatch(item -> weight.applyAsDouble(item) > 0)) { // rareté désactivée sinon
+				samplers.put(entry.getKey(), WeightedSampler.of(entry.getValue(), weight));
+			}
+		}
+	}
+
+	/**
+	 * Create a table with a weight per item.
+	 *
+	 * @param items  items, the order is kept inside a rarity
+	 * @param rarity rarity of an item
+	 * @param weight weight of an item inside its rarity
+	 */
+	public static <T> RarityTable<T> of(List<? extends T> items, Function<? super T, Rarity> rarity,
+			ToDoubleFunction<? super T> weight) {
+		Objects.requireNonNull(items);
+		Objects.requireNonNull(rarity);
+		Objects.requireNonNull(weight);
+		return new RarityTable<>(items, rarity, weight);
+	}
+
+	/**
+	 * Create a table where every item of a rarity has the same chance.
+	 */
+	public static <T> RarityTable<T> uniform(List<? extends T> items, Function<? super T, Rarity> rarity) {
+		return of(items, rarity, item -> 1);
+	}
+
+	/**
+	 * Draw an item of a rarity.
+	 *
+	 * @throws IllegalArgumentException if the table has no item of this rarity
+	 */
+	public T sample(RandomGenerator rand, Rarity rarity) {
+		Objects.requireNonNull(rand);
+		Objects.requireNonNull(rarity);
+		var sampler = samplers.get(rarity);
+		if (sampler == null) {
+			throw new IllegalArgumentException("aucun objet " + rarity);
+		}
+		return sampler.sample(rand);
+	}
+}
@@ -1,32 +1,40 @@
 package dungeon;
 import java.util.Objects;
 
-public class Room {
-	private final Coord coord;
-	private final RoomType roomType;
-	private  boolean visit; //CHEMIN,ENNEMIS,TRESOR,MARCHAND,GUERISSEUR,SORTIE
-	private boolean completed; // pour savoir si on a déjà visité une salle
-	
-	public Room(Coord coord,RoomType roomType) {
-		Objects.requireNonNull(coord);
-		Objects.requireNonNull(roomType);
-		this.coord = coord;
-		this.roomType = roomType;
-		this.visit = false;
-		this.completed = false;
+/**
+ * View of a room of a floor, the state lives in the floor.
+ */
+public final class Room {
+	private final Floor floor;
+	private final int cell;
+
+	Room(Floor floor, int cell) {
+		Objects.requireNonNull(floor);
+		this.floor = floor;
+		this.cell = cell;
 	}
 	//getters
-	public Coord coord() {return coord;}
-	public RoomType roomType() {return roomType;}
-	public boolean visit() {return visit;}
-	public void toVisit() {this.visit = true;}
+	public Coord coord() {return floor.coord(cell);}
+	public RoomType roomType() {return floor.type(cell);}
+	public boolean visit() {return floor.isVisited(cell);}
+	public void toVisit() {floor.markVisited(cell);}
 	public boolean isCompleted() {
-		return completed;
+		return floor.isCompleted(cell);
 	}
 	public void complete() {
-		this.completed = true;
+		floor.markCompleted(cell);
 	}
 	public boolean shouldTriggerEvent() {
-		return !completed;
+		return !isCompleted();
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof Room room && floor == room.floor && cell == room.cell;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * System.identityHashCode(floor) + cell;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,35 @@
+package dungeon;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator.SplittableGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+/**
+ * Seeded generators of a run. A run has one master seed, every subsystem
+ * (floors, loot, enemies, fights) takes its own stream split from it, in a
+ * fixed order, so the same seed always plays the same run.
+ */
+public final class Seed {
+	private static final RandomGeneratorFactory<SplittableGenerator> FACTORY = RandomGeneratorFactory
+			.of("L64X128MixRandom");
+
+	private Seed() {
+	}
+
+	/**
+	 * Give the root generator of a seed, to split the streams from.
+	 *
+	 * @param seed master seed
+	 * @return SplittableGenerator new generator, always the same for a seed
+	 */
+	public static SplittableGenerator root(long seed) {
+		return FACTORY.create(seed);
+	}
+
+	/**
+	 * Pick a seed for a new run.
+	 */
+	public static long random() {
+		return ThreadLocalRandom.current().nextLong();
+	}
+}
@@ -0,0 +1,148 @@
+package dungeon;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.ToDoubleFunction;
+import java.util.random.RandomGenerator;
+
+/**
+ * Weighted random choice in constant time with the alias method of Vose. The
+ * table is built once, a draw costs one column draw and one coin flip and
+ * allocates nothing. When every weight is the same the coin flip is skipped,
+ * a draw is then exactly {@code items.get(rand.nextInt(size))}.
+ *
+ * @param <T> type of the items
+ */
+public final class WeightedSampler<T> {
+	private final Object[] items;
+	private final double[] probability; // chance de garder la colonne plutôt que son alias
+	private final int[] alias;
+	private final boolean uniform;
+
+	private WeightedSampler(Object[] items, double[] weights) {
+		this.items = items;
+		int n = items.length;
+		probability = new double[n];
+		alias = new int[n];
+		double total = 0;
+		boolean same = true;
+		for (int i = 0; i < n; i++) {
+			total += weights[i];
+			same &= weights[i] == weights[0];
+		}
+		if (!(total > 0) || Double.isInfinite(total)) {
+			throw new IllegalArgumentException("la somme des poids doit être positive");
+		}
+		uniform = same;
+		var scaled = new double[n];
+		var small = new int[n];
+		var large = new int[n];
+		int smallCount = 0;
+		int largeCount = 0;
+		for (int i = 0; i < n; i++) {
+			scaled[i] = weights[i] * n / total;
+			if (scaled[i] < 1) {
+				small[smallCount++] = i;
+			} else {
+				large[largeCount++] = i;
+			}
+		}
+		while (smallCount > 0 && largeCount > 0) {
+			int less = small[--smallCount];
+			int more = large[--largeCount];
+			probability[less] = scaled[less];
+			alias[less] = more;
+			scaled[more] = scaled[more] + scaled[less] - 1;
+			if (scaled[more] < 1) {
+				small[smallCount++] = more;
+			} else {
+				large[largeCount++] = more;
+			}
+		}
+		while (largeCount > 0) {
+			probability[large[--largeCount]] = 1;
+		}
+		while (smallCount > 0) { // reste d'arrondi, la colonne est pleine
+			probability[small[--smallCount]] = 1;
+		}
+	}
+
+	/**
+	 * Create a sampler from items and their weights.
+	 *
+	 * @param items  items to draw, in a fixed order
+	 * @param weight weight of an item, 0 to never draw it
+	 * @return WeightedSampler the sampler
+	 */
+	public static <T> WeightedSampler<T> of(List<? extends T> items, ToDoubleFunction<? super T> weight) {
+		Objects.requireNonNull(items);
+		Objects.requireNonNull(weight);
+		var weights = new double[items.size()];
+		for (int i = 0; i < weights.length; i++) {
+			weights[i] = weight.applyAsDouble(Objects.requireNonNull(items.get(i)));
+		}
+		return build(items, weights);
+	}
+
+	/**
+	 * Create a sampler from items and the weights at the same index.
+	 */
+	public static <T> WeightedSampler<T> of(List<? extends T> items, double... weights) {
+		Objects.requireNonNull(items);
+		Objects.requireNonNull(weights);
+		if (items.size() != weights.length) {
+			throw new IllegalArgumentException("un poids par élément");
+		}
+		return build(items, weights.clone());
+	}
+
+	private static <T> WeightedSampler<T> build(List<? extends T> items, double[] weights) {
+		if (items.isEmpty()) {
+			throw new IllegalArgumentException("aucun élément");
+		}
+		var array = items.toArray();
+		for (int i = 0; i < array.length; i++) {
+			Objects.requireNonNull(array[i]);
+			if (!(weights[i] >= 0) || Double.isInfinite(weights[i])) {
+				throw new IllegalArgumentException("poids invalide pour " + array[i]);
+			}
+		}
+		return new WeightedSampler<>(array, weights);
+	}
+
+	/**
+	 * Create a sampler where every item has the same chance.
+	 */
+	public static <T> WeightedSampler<T> uniform(List<? extends T> items) {
+		return of(items, item -> 1);
+	}
+
+	/**
+	 * Draw an item.
+	 */
+	@SuppressWarnings("unchecked")
+	public T sample(RandomGenerator rand) {
+		Objects.requireNonNull(rand);
+		int column = rand.nextInt(items.length);
+		if (uniform || rand.nextDouble() < probability[column]) {
+			return (T) items[column];
+		}
+		return (T) items[alias[column]];
+	}
+
+	/**
+	 * Give an item of the table, in the order of creation.
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(int index) {
+		Objects.checkIndex(index, items.length);
+		return (T) items[index];
+	}
+
+	/**
+	 * Number of items of the table, with a weight or not
+	 */
+	public int size() {
+		return items.length;
+	}
+}
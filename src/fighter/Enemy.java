@@ -122,7 +122,7 @@ public final class Enemy implements Fighter {
 			return null;
 		}
 		var curses = typeEnemy.curses();
-		return curses.get(rand.nextInt(curses.size()));
+		return curses.get(rand.nextInt(curses.size())).copy();
 	}
 
 	/**
@@ -1,25 +1,34 @@
 package fighter;
 
+import java.util.List;
 import java.util.Objects;
 import java.util.random.RandomGenerator;
 
+import dungeon.WeightedSampler;
+
 public class EnemyCreation {
+	/**
+	 * Chances of each enemy in a random encounter. The queen is not drawn, she
+	 * has a weight of 0.
+	 */
+	public static final WeightedSampler<EnemyInfo> DEFAULT_TABLE = WeightedSampler.of(
+			List.of(EnemyInfo.RAT_LOUP(), EnemyInfo.PETIT_RAT_LOUP(), EnemyInfo.SORCIER_GRENOUILLE(),
+					EnemyInfo.OMBRE_VIVANTE(), EnemyInfo.REINE_ABEILLES()),
+			3, 3, 1, 1, 0);
+
 	/**
 	 * Create a random enemy from available enemy types.
 	 */
 	public static Enemy createRandom(RandomGenerator rand) {
+		return createRandom(rand, DEFAULT_TABLE);
+	}
+
+	/**
+	 * Create a random enemy drawn from a weighted table of enemy types.
+	 */
+	public static Enemy createRandom(RandomGenerator rand, WeightedSampler<EnemyInfo> table) {
 		Objects.requireNonNull(rand);
-		int type = rand.nextInt(8);
-		if (type <= 2) {
-			return new Enemy(EnemyInfo.RAT_LOUP());
-		} else if (type >= 2 && type <= 5) {
-			return new Enemy(EnemyInfo.PETIT_RAT_LOUP());
-		} else if (type == 6) {
-			return new Enemy(EnemyInfo.SORCIER_GRENOUILLE());
-		} else if (type == 7) {
-			return new Enemy(EnemyInfo.OMBRE_VIVANTE());
-		} else {
-			return new Enemy(EnemyInfo.REINE_ABEILLES());
-		}
+		Objects.requireNonNull(table);
+		return new Enemy(table.sample(rand));
 	}
-}
\ No newline at end of file
+}
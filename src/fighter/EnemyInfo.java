@@ -3,6 +3,7 @@ package fighter;
 import java.util.List;
 import java.util.Objects;
 
+import backpack.Shape;
 import backpack.object.Curse;
 import backpack.object.MalusType;
 
@@ -35,9 +36,9 @@ public record EnemyInfo(String name, int maxHp, int minDamage, int maxDamage, in
   
 	private static final EnemyInfo PETIT_RAT_LOUP = new EnemyInfo("Petit Rat-Loup", 32, 6, 7, 7, 9, 0, 0, 9, List.of());
 	private static final EnemyInfo RAT_LOUP = new EnemyInfo("Rat-Loup", 45, 7, 9, 6, 8, 0, 0, 6, List.of());
-	private static final EnemyInfo SORCIER_GRENOUILLE = new EnemyInfo("Sorcier-grenouille", 45, 0, 0, 0, 0, 0, 0, 8, List.of(new Curse(new boolean[][]{{true}}, MalusType.HEAL, "Tiny Sickness", 2)));
-	private static final EnemyInfo REINE_ABEILLES = new EnemyInfo("Reine des abeilles", 74, 15, 15, 0, 0, 0, 0, 20, List.of(new Curse(new boolean[][]{{true, true}, {true, true}}, MalusType.DAMAGE, "Bleed Plate", 6)));
-	private static final EnemyInfo OMBRE_VIVANTE = new EnemyInfo("Ombre vivante", 50, 0, 0, 0, 0, 0, 0, 25, List.of(new Curse(new boolean[][]{{true, true}}, MalusType.HEAL, "Sickness Bar", 4)));
+	private static final EnemyInfo SORCIER_GRENOUILLE = new EnemyInfo("Sorcier-grenouille", 45, 0, 0, 0, 0, 0, 0, 8, List.of(new Curse(Shape.of(new boolean[][]{{true}}), MalusType.HEAL, "Tiny Sickness", 2)));
+	private static final EnemyInfo REINE_ABEILLES = new EnemyInfo("Reine des abeilles", 74, 15, 15, 0, 0, 0, 0, 20, List.of(new Curse(Shape.of(new boolean[][]{{true, true}, {true, true}}), MalusType.DAMAGE, "Bleed Plate", 6)));
+	private static final EnemyInfo OMBRE_VIVANTE = new EnemyInfo("Ombre vivante", 50, 0, 0, 0, 0, 0, 0, 25, List.of(new Curse(Shape.of(new boolean[][]{{true, true}}), MalusType.HEAL, "Sickness Bar", 4)));
 
 	public static EnemyInfo PETIT_RAT_LOUP() { return PETIT_RAT_LOUP; }
 	public static EnemyInfo RAT_LOUP() { return RAT_LOUP; }
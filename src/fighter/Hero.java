@@ -42,6 +42,33 @@ public final class Hero implements Fighter {
 		this.backpack = new BackPack();
 	}
 
+	private Hero(Hero other) {
+		maxHp = other.maxHp;
+		currentHp = other.currentHp;
+		turnEnergy = other.turnEnergy;
+		currentEnergy = other.currentEnergy;
+		protection = other.protection;
+		level = other.level;
+		xp = other.xp;
+		xpNextLevel = other.xpNextLevel;
+		maxMana = other.maxMana;
+		currentMana = other.currentMana;
+		gold = other.gold.copy();
+		backpack = other.backpack.copy();
+		pos = other.pos;
+		weakDamageMalus = other.weakDamageMalus;
+		energyPenalty = other.energyPenalty;
+	}
+
+	/**
+	 * Give an independent copy of the hero and his backpack, for simulations.
+	 *
+	 * @return copy of the hero
+	 */
+	public Hero copy() {
+		return new Hero(this);
+	}
+
 	/**
 	 * Return the hero current position.
 	 *
@@ -320,4 +347,44 @@ public final class Hero implements Fighter {
 	public int energyPenalty() {
 		return energyPenalty;
 	}
+
+	/**
+	 * Stats of a hero kept by a save, apart from the backpack and the position.
+	 */
+	public record Stats(int maxHp, int currentHp, int currentEnergy, int protection, int level, int xp,
+			double xpNextLevel, int maxMana, int currentMana, int gold, int weakDamageMalus, int energyPenalty) {
+		public Stats {
+			if (maxHp <= 0 || currentHp < 0 || currentHp > maxHp || level <= 0 || xp < 0 || gold < 0) {
+				throw new IllegalArgumentException("statistiques invalides");
+			}
+		}
+	}
+
+	public Stats stats() {
+		return new Stats(maxHp, currentHp, currentEnergy, protection, level, xp, xpNextLevel, maxMana, currentMana,
+				gold.amount(), weakDamageMalus, energyPenalty);
+	}
+
+	/**
+	 * Put back the state of a saved hero.
+	 */
+	public void restore(Stats stats, BackPack backpack, Coord pos) {
+		Objects.requireNonNull(stats);
+		Objects.requireNonNull(backpack);
+		Objects.requireNonNull(pos);
+		maxHp = stats.maxHp();
+		currentHp = stats.currentHp();
+		currentEnergy = stats.currentEnergy();
+		protection = stats.protection();
+		level = stats.level();
+		xp = stats.xp();
+		xpNextLevel = stats.xpNextLevel();
+		maxMana = stats.maxMana();
+		currentMana = stats.currentMana();
+		gold = new Gold(stats.gold());
+		weakDamageMalus = stats.weakDamageMalus();
+		energyPenalty = stats.energyPenalty();
+		this.backpack = backpack;
+		this.pos = pos;
+	}
 }
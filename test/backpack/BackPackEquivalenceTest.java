@@ -0,0 +1,255 @@
+package backpack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import backpack.object.Curse;
+import backpack.object.Equipment;
+import backpack.object.GemType;
+import backpack.object.Gold;
+import dungeon.RandomArmor;
+import dungeon.RandomArrow;
+import dungeon.RandomCurse;
+import dungeon.RandomGear;
+import dungeon.RandomGem;
+import dungeon.RandomManaStone;
+import dungeon.RandomPotion;
+
+/**
+ * Plays the same random calls on a BackPack and on the grid reference and
+ * checks after each call that both give the same result, or fail the same
+ * way, and hold the same items on the same cells with the same gem bonuses.
+ *
+ * Run with {@code ant test}, or give the seeds and the number of bags :
+ * {@code java backpack.BackPackEquivalenceTest 42 7 99 2000}.
+ */
+public final class BackPackEquivalenceTest {
+	private static final int MAX_LINE = BackPack.MAX_LINE;
+	private static final int MAX_COL = BackPack.MAX_COL;
+	private static final int CALLS = 200;
+
+	private final Random random;
+	private final List<Supplier<Equipment>> items = new ArrayList<>();
+	private BackPack bag;
+	private GridBackPack reference;
+	private String last;
+
+	private BackPackEquivalenceTest(long seed) {
+		random = new Random(seed);
+		for (var gear : RandomGear.values()) {
+			items.add(gear::create);
+		}
+		for (var armor : RandomArmor.values()) {
+			items.add(armor::create);
+		}
+		for (var arrow : RandomArrow.values()) {
+			items.add(arrow::create);
+		}
+		for (var gem : RandomGem.values()) {
+			items.add(gem::create);
+		}
+		for (var potion : RandomPotion.values()) {
+			items.add(potion::create);
+		}
+		for (var stone : RandomManaStone.values()) {
+			items.add(stone::create);
+		}
+		for (var curse : RandomCurse.values()) {
+			items.add(curse::createCurse);
+		}
+	}
+
+	public static void main(String[] args) {
+		long[] seeds = { 42, 7, 99 };
+		int bags = 2000;
+		if (args.length > 0) {
+			seeds = new long[Math.max(1, args.length - 1)];
+			for (int i = 0; i < seeds.length; i++) {
+				seeds[i] = Long.parseLong(args[i]);
+			}
+			if (args.length > 1) {
+				bags = Integer.parseInt(args[args.length - 1]);
+			}
+		}
+		long calls = 0;
+		for (long seed : seeds) {
+			var test = new BackPackEquivalenceTest(seed);
+			for (int i = 0; i < bags; i++) {
+				calls += test.runBag(seed, i);
+			}
+		}
+		System.out.println("BackPackEquivalenceTest : " + calls + " appels identiques");
+	}
+
+	private int runBag(long seed, int index) {
+		bag = new BackPack();
+		reference = new GridBackPack();
+		for (int call = 0; call < CALLS; call++) {
+			var name = step();
+			try {
+				compare();
+			} catch (AssertionError e) {
+				throw new AssertionError("graine " + seed + ", sac " + index + ", appel " + call + " " + name + " : "
+						+ e.getMessage(), e);
+			}
+		}
+		return CALLS;
+	}
+
+	/**
+	 * Pick a call and play it on both bags, the results must match.
+	 */
+	private String step() {
+		// des coordonnées hors du sac de temps en temps
+		int x = random.nextInt(MAX_LINE + 2) - 1;
+		int y = random.nextInt(MAX_COL + 2) - 1;
+		boolean rotation = random.nextBoolean();
+		return switch (random.nextInt(10)) {
+		case 0 -> same("unlockSlot", () -> bag.unlockSlot(x, y), () -> reference.unlockSlot(x, y));
+		case 1 -> {
+			var item = item();
+			yield same("canPlace " + item, () -> bag.canPlace(item, x, y, rotation),
+					() -> reference.canPlace(item, x, y, rotation));
+		}
+		case 2, 3 -> {
+			var item = item();
+			if (item instanceof Curse curse) {
+				yield same("placeCurse " + curse.name(), () -> bag.placeCurse(curse, x, y),
+						() -> reference.placeCurse(curse, x, y));
+			}
+			yield same("place " + item, () -> {
+				bag.place(item, x, y, rotation);
+				return null;
+			}, () -> {
+				reference.place(item, x, y, rotation);
+				return null;
+			});
+		}
+		case 4 -> same("withdraw", () -> {
+			bag.withdraw(x, y);
+			return null;
+		}, () -> {
+			reference.withdraw(x, y);
+			return null;
+		});
+		case 5 -> {
+			int toX = random.nextInt(MAX_LINE + 2) - 1;
+			int toY = random.nextInt(MAX_COL + 2) - 1;
+			yield same("move", () -> bag.move(new Position(x, y), new Position(toX, toY), rotation),
+					() -> reference.move(new Position(x, y), new Position(toX, toY), rotation));
+		}
+		case 6 -> {
+			int amount = random.nextInt(20) - 2;
+			if (random.nextBoolean()) {
+				yield same("addGold", () -> {
+					bag.addGold(amount);
+					return bag.getGold();
+				}, () -> {
+					reference.addGold(amount);
+					return reference.getGold();
+				});
+			}
+			yield same("pay", () -> bag.pay(amount), () -> reference.pay(amount));
+		}
+		case 7 -> {
+			var item = item();
+			yield same("setRotation", () -> shapeText(bag.setRotation(item, rotation, x, y)),
+					() -> shapeText(reference.setRotation(item, rotation, x, y)));
+		}
+		default -> same("detection", () -> bag.detection(x, y), () -> reference.detection(x, y));
+		};
+	}
+
+	/**
+	 * Take a new item most of the time, an item already in the bag otherwise.
+	 * The gold is left out : each bag makes its own.
+	 */
+	private Equipment item() {
+		var inBag = bag.items().stream().filter(item -> !(item instanceof Gold)).toList();
+		if (!inBag.isEmpty() && random.nextInt(4) == 0) {
+			return inBag.get(random.nextInt(inBag.size()));
+		}
+		return items.get(random.nextInt(items.size())).get();
+	}
+
+	private String same(String name, Supplier<Object> actual, Supplier<Object> expected) {
+		var got = outcome(actual);
+		var want = outcome(expected);
+		if (!Objects.equals(got, want)) {
+			throw new AssertionError(name + " donne " + got + " au lieu de " + want);
+		}
+		last = name;
+		return name;
+	}
+
+	private static Object outcome(Supplier<Object> call) {
+		try {
+			var result = call.get();
+			// l'or est recréé de chaque côté, on compare son montant
+			return result instanceof Gold gold ? "or " + gold.amount() : result;
+		} catch (RuntimeException e) {
+			return e.getClass().getSimpleName();
+		}
+	}
+
+	private static String shapeText(boolean[][] shape) {
+		var text = new StringBuilder();
+		for (var row : shape) {
+			for (boolean cell : row) {
+				text.append(cell ? '#' : '.');
+			}
+			text.append('/');
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Check the whole state of the two bags, cell by cell and item by item
+	 */
+	private void compare() {
+		check("line", bag.line(), reference.line());
+		check("col", bag.col(), reference.col());
+		check("gold", bag.getGold(), reference.getGold());
+		var seen = new ArrayList<Equipment>();
+		for (int i = 0; i < MAX_LINE; i++) {
+			for (int j = 0; j < MAX_COL; j++) {
+				check("unlocked " + i + "," + j, bag.isUnlocked(i, j), reference.isUnlocked(i, j));
+				var item = bag.detection(i, j);
+				var expected = reference.detection(i, j);
+				// l'or est recréé de chaque côté, on compare sa classe
+				if (item != expected && (item == null || expected == null || item.getClass() != expected.getClass()
+						|| !(item instanceof Gold))) {
+					throw new AssertionError("case " + i + "," + j + " : " + item + " au lieu de " + expected);
+				}
+				if (item != null && seen.stream().noneMatch(other -> other == item)) {
+					seen.add(item); // par identité, deux armes égales restent deux items
+				}
+			}
+		}
+		check("items", bag.items().size(), seen.size());
+		for (var item : seen) {
+			if (item instanceof Gold) {
+				continue;
+			}
+			check("getPos " + item, bag.getPos(item), reference.getPos(item));
+			check("rotation " + item, bag.getRotation(item), reference.getRotation(item));
+			for (var type : GemType.values()) {
+				check("bonus " + type + " " + item, bag.bonus(item, type), reference.bonus(item, type));
+			}
+			for (var other : seen) {
+				if (!(other instanceof Gold)) {
+					check("adjacent", bag.adjacent(item, other), reference.adjacent(item, other));
+				}
+			}
+		}
+	}
+
+	private void check(String what, Object actual, Object expected) {
+		if (!Objects.equals(actual, expected)) {
+			throw new AssertionError(what + " : " + actual + " au lieu de " + expected + " (après " + last + ")");
+		}
+	}
+}
@@ -0,0 +1,290 @@
+package backpack;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import backpack.object.Curse;
+import backpack.object.Equipment;
+import backpack.object.Gem;
+import backpack.object.GemType;
+import backpack.object.Gold;
+
+/**
+ * The bag as it was before the masks : one cell of the grid at a time. Used
+ * only as a reference by the tests and the benchmarks. Rotations are kept by
+ * identity like in BackPack, the old HashMap mixed up two equal gears.
+ */
+final class GridBackPack {
+	private static final int MAX_LINE = 5;
+	private static final int MAX_COL = 7;
+	private int line;
+	private int col;
+	private final Equipment[][] grid = new Equipment[MAX_LINE][MAX_COL];
+	private final boolean[][] unlocked = new boolean[MAX_LINE][MAX_COL];
+	private final Map<Equipment, Boolean> rotations = new IdentityHashMap<>();
+
+	GridBackPack() {
+		line = 3;
+		col = 3;
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 3; j++) {
+				unlocked[i][j] = true;
+			}
+		}
+	}
+
+	int line() {
+		return line;
+	}
+
+	int col() {
+		return col;
+	}
+
+	boolean getRotation(Equipment item) {
+		Objects.requireNonNull(item);
+		return rotations.getOrDefault(item, false);
+	}
+
+	private boolean rangeMax(int x, int y) {
+		return x >= 0 && y >= 0 && x < MAX_LINE && y < MAX_COL;
+	}
+
+	boolean isUnlocked(int x, int y) {
+		return rangeMax(x, y) && unlocked[x][y];
+	}
+
+	boolean unlockSlot(int x, int y) {
+		if (!rangeMax(x, y) || unlocked[x][y]) {
+			return false;
+		}
+		boolean hasAdjacentUnlocked = (x > 0 && unlocked[x - 1][y]) || (x < MAX_LINE - 1 && unlocked[x + 1][y])
+				|| (y > 0 && unlocked[x][y - 1]) || (y < MAX_COL - 1 && unlocked[x][y + 1]);
+		if (!hasAdjacentUnlocked) {
+			return false;
+		}
+		unlocked[x][y] = true;
+		int maxLine = 0;
+		int maxCol = 0;
+		for (int i = 0; i < MAX_LINE; i++) {
+			for (int j = 0; j < MAX_COL; j++) {
+				if (unlocked[i][j]) {
+					maxLine = Math.max(maxLine, i + 1);
+					maxCol = Math.max(maxCol, j + 1);
+				}
+			}
+		}
+		line = maxLine;
+		col = maxCol;
+		return true;
+	}
+
+	private Gold goldCell() {
+		for (int i = 0; i < line; i++) {
+			for (int j = 0; j < col; j++) {
+				if (grid[i][j] instanceof Gold g) {
+					return g;
+				}
+			}
+		}
+		return null;
+	}
+
+	void addGold(int amount) {
+		if (amount <= 0)
+			throw new IllegalArgumentException();
+		var g = goldCell();
+		if (g != null) {
+			g.add(amount);
+			return;
+		}
+		for (int i = 0; i < line; i++) {
+			for (int j = 0; j < col; j++) {
+				if (grid[i][j] == null) {
+					grid[i][j] = new Gold(amount);
+					return;
+				}
+			}
+		}
+	}
+
+	int getGold() {
+		var g = goldCell();
+		return g == null ? 0 : g.amount();
+	}
+
+	boolean pay(int amount) {
+		if (amount <= 0)
+			throw new IllegalArgumentException();
+		var g = goldCell();
+		return g != null && g.paid(amount);
+	}
+
+	List<Position> getPos(Equipment gear) {
+		Objects.requireNonNull(gear);
+		var temp = new ArrayList<Position>();
+		for (int i = 0; i < line; i++) {
+			for (int j = 0; j < col; j++) {
+				if (grid[i][j] == gear) {
+					temp.add(new Position(i, j));
+				}
+			}
+		}
+		return List.copyOf(temp);
+	}
+
+	boolean adjacent(Equipment gear, Equipment gem) {
+		Objects.requireNonNull(gear);
+		Objects.requireNonNull(gem);
+		var posGem = getPos(gem);
+		for (var i : getPos(gear)) {
+			if (posGem.contains(new Position(i.line() + 1, i.col())) || posGem.contains(new Position(i.line(), i.col() + 1))
+					|| posGem.contains(new Position(i.line() - 1, i.col()))
+					|| posGem.contains(new Position(i.line(), i.col() - 1))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	int bonus(Equipment gear, GemType type) {
+		Objects.requireNonNull(gear);
+		int bonus = 0;
+		for (var p : getPos(gear)) {
+			bonus += gemAt(p.line() + 1, p.col(), type);
+			bonus += gemAt(p.line() - 1, p.col(), type);
+			bonus += gemAt(p.line(), p.col() + 1, type);
+			bonus += gemAt(p.line(), p.col() - 1, type);
+		}
+		return bonus;
+	}
+
+	private int gemAt(int x, int y, GemType type) {
+		if (rangeMax(x, y) && grid[x][y] instanceof Gem gem && gem.type() == type) {
+			return gem.bonus();
+		}
+		return 0;
+	}
+
+	Equipment detection(int line, int col) {
+		if (!rangeMax(line, col)) {
+			throw new IllegalArgumentException();
+		}
+		if (line >= this.line || col >= this.col) {
+			return null;
+		}
+		return grid[line][col];
+	}
+
+	boolean[][] setRotation(Equipment gear, boolean rotation, int x, int y) {
+		Objects.requireNonNull(gear);
+		if (gear.getClass() == Curse.class) {
+			rotation = false;
+		}
+		boolean[][] shape = gear.getShape();
+		if (rotation) {
+			shape = BackPack.rotation90(shape);
+		}
+		if (x < 0 || y < 0 || x + shape.length > MAX_LINE || y + shape[0].length > MAX_COL) {
+			throw new IllegalArgumentException();
+		}
+		return shape;
+	}
+
+	boolean canPlace(Equipment gear, int x, int y, boolean rotation) {
+		Objects.requireNonNull(gear);
+		boolean[][] shape;
+		try {
+			shape = setRotation(gear, rotation, x, y);
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+		for (int i = 0; i < shape.length; i++) {
+			for (int j = 0; j < shape[0].length; j++) {
+				if (grid[x + i][y + j] != null && shape[i][j]) {
+					return false;
+				}
+				if (!isUnlocked(x + i, y + j)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	void place(Equipment gear, int x, int y, boolean rotation) {
+		Objects.requireNonNull(gear);
+		var shape = setRotation(gear, rotation, x, y);
+		if (!canPlace(gear, x, y, rotation)) {
+			throw new IllegalArgumentException();
+		}
+		for (int i = 0; i < shape.length; i++) {
+			for (int j = 0; j < shape[0].length; j++) {
+				if (shape[i][j]) {
+					grid[x + i][y + j] = gear;
+				}
+			}
+		}
+		rotations.put(gear, rotation);
+	}
+
+	boolean placeCurse(Curse curse, int x, int y) {
+		Objects.requireNonNull(curse);
+		boolean[][] shape = curse.getShape();
+		if (x < 0 || y < 0 || x + shape.length > MAX_LINE || y + shape[0].length > MAX_COL) {
+			return false;
+		}
+		for (int i = 0; i < shape.length; i++) {
+			for (int j = 0; j < shape[0].length; j++) {
+				if (shape[i][j] && (!isUnlocked(x + i, y + j) || detection(x + i, y + j) != null)) {
+					return false;
+				}
+			}
+		}
+		for (int i = 0; i < shape.length; i++) {
+			for (int j = 0; j < shape[0].length; j++) {
+				if (shape[i][j]) {
+					grid[x + i][y + j] = curse;
+				}
+			}
+		}
+		rotations.put(curse, false);
+		return true;
+	}
+
+	void withdraw(int x, int y) {
+		var temp = detection(x, y);
+		if (temp == null) {
+			throw new IllegalArgumentException();
+		}
+		for (int i = 0; i < line; i++) {
+			for (int j = 0; j < col; j++) {
+				if (grid[i][j] == temp) {
+					grid[i][j] = null;
+				}
+			}
+		}
+		rotations.remove(temp);
+	}
+
+	boolean move(Position oldPlace, Position newPlace, boolean rotation) {
+		Objects.requireNonNull(oldPlace);
+		Objects.requireNonNull(newPlace);
+		Equipment temp = detection(oldPlace.line(), oldPlace.col());
+		if (temp == null) {
+			throw new IllegalArgumentException();
+		}
+		boolean oldRotation = rotations.getOrDefault(temp, false);
+		withdraw(oldPlace.line(), oldPlace.col());
+		if (canPlace(temp, newPlace.line(), newPlace.col(), rotation)) {
+			place(temp, newPlace.line(), newPlace.col(), rotation);
+		} else {
+			place(temp, oldPlace.line(), oldPlace.col(), oldRotation);
+			throw new IllegalArgumentException();
+		}
+		return true;
+	}
+}
@@ -0,0 +1,80 @@
+package backpack;
+
+import backpack.object.Equipment;
+import backpack.object.Gem;
+import dungeon.RandomCurse;
+import dungeon.RandomGear;
+import dungeon.RandomGem;
+
+/**
+ * Checks that the gem bonus of the auto placement only counts between a gem
+ * and an item its type boosts : a curse or a gold coin next to a gem gets
+ * nothing, so it doesn't take the cells where the gem helps a weapon.
+ *
+ * Run with {@code ant test}.
+ */
+public final class PlacementObjectiveTest {
+	private PlacementObjectiveTest() {
+	}
+
+	public static void main(String[] args) {
+		curseLeavesTheGemCells();
+		weaponTakesTheGemCells();
+		gemScoresOnlyWhatItBoosts();
+		System.out.println("PlacementObjectiveTest : ok");
+	}
+
+	/**
+	 * A damage gem in the middle of the 3x3 bag, the curse goes on another cell
+	 */
+	private static void curseLeavesTheGemCells() {
+		var bag = new BackPack();
+		bag.place(RandomGem.SMALL_DAMAGE.create(), 1, 1, false);
+		var curse = RandomCurse.TINY_DAMAGE.createCurse();
+		var best = bag.bestPlacement(curse, PlacementObjective.DEFAULT);
+		check("place libre pour la malédiction", best != null);
+		check("malédiction à côté de la gemme en " + best.line() + "," + best.col(),
+				!touches(best, 1, 1));
+		check("bonus de gemme d'une malédiction", PlacementObjective.GEM_BONUS.score(bag, curse, 1L << 1) == 0);
+		// Combat.settleCurse passe par placeCurse après bestPlacement
+		check("pose de la malédiction", bag.placeCurse(curse, best.line(), best.col()));
+	}
+
+	/**
+	 * The same bag with a dagger : it goes next to the gem and gets its bonus
+	 */
+	private static void weaponTakesTheGemCells() {
+		var bag = new BackPack();
+		var gem = (Gem) RandomGem.SMALL_DAMAGE.create();
+		bag.place(gem, 1, 1, false);
+		Equipment dagger = RandomGear.DAGGER.create();
+		var best = bag.bestPlacement(dagger, PlacementObjective.DEFAULT);
+		check("dague loin de la gemme en " + best.line() + "," + best.col(), touches(best, 1, 1));
+		bag.place(dagger, best.line(), best.col(), best.rotation());
+		check("bonus de la dague", bag.bonusDamage(dagger) == gem.bonus());
+	}
+
+	/**
+	 * A gem placed next to items only counts the ones its type boosts
+	 */
+	private static void gemScoresOnlyWhatItBoosts() {
+		var bag = new BackPack();
+		bag.place(RandomGear.DAGGER.create(), 0, 0, false);
+		bag.placeCurse(RandomCurse.TINY_WEAK.createCurse(), 0, 2);
+		long between = 1L << 1; // case 0,1 entre la dague et la malédiction
+		var damage = (Gem) RandomGem.SMALL_DAMAGE.create();
+		check("gemme de dégâts", PlacementObjective.GEM_BONUS.score(bag, damage, between) == damage.bonus());
+		check("gemme de coeur", PlacementObjective.GEM_BONUS.score(bag, RandomGem.SMALL_HEART.create(), between) == 0);
+		check("gemme de blocage", PlacementObjective.GEM_BONUS.score(bag, RandomGem.SMALL_BLOCK.create(), between) == 0);
+	}
+
+	private static boolean touches(Placement placement, int x, int y) {
+		return Math.abs(placement.line() - x) + Math.abs(placement.col() - y) == 1;
+	}
+
+	private static void check(String what, boolean ok) {
+		if (!ok) {
+			throw new AssertionError(what);
+		}
+	}
+}
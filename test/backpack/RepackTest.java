@@ -0,0 +1,157 @@
+package backpack;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import backpack.object.Curse;
+import backpack.object.Equipment;
+import backpack.object.GemType;
+import dungeon.RandomArmor;
+import dungeon.RandomCurse;
+import dungeon.RandomGear;
+import dungeon.RandomGem;
+import dungeon.RandomManaStone;
+import dungeon.RandomPotion;
+
+/**
+ * Repacks random bags and checks that every item is still there, the curses
+ * haven't moved, the gold is the same and the score never goes down. The
+ * score is counted here from the bag, not by the repacker : the gem bonus of
+ * each item from the gems that boost it, then the biggest free region.
+ *
+ * Run with {@code ant test}, or give the seed and the number of bags :
+ * {@code java backpack.RepackTest 42 300}.
+ */
+public final class RepackTest {
+	private static final int REGION_WEIGHT = 64;
+	private static final Duration BUDGET = Duration.ofMillis(20);
+
+	private final Random random;
+	private final List<Supplier<Equipment>> items = new ArrayList<>();
+
+	private RepackTest(long seed) {
+		random = new Random(seed);
+		for (var gear : RandomGear.values()) {
+			items.add(gear::create);
+		}
+		for (var armor : RandomArmor.values()) {
+			items.add(armor::create);
+		}
+		for (var gem : RandomGem.values()) {
+			items.add(gem::create);
+			items.add(gem::create); // autant de gemmes que d'armes
+		}
+		for (var potion : RandomPotion.values()) {
+			items.add(potion::create);
+		}
+		for (var stone : RandomManaStone.values()) {
+			items.add(stone::create);
+		}
+	}
+
+	public static void main(String[] args) {
+		long seed = args.length > 0 ? Long.parseLong(args[0]) : 42;
+		int bags = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+		var test = new RepackTest(seed);
+		int changed = 0;
+		for (int i = 0; i < bags; i++) {
+			try {
+				changed += test.runBag(i % 2 == 1) ? 1 : 0;
+			} catch (AssertionError e) {
+				throw new AssertionError("graine " + seed + ", sac " + i + " : " + e.getMessage(), e);
+			}
+		}
+		System.out.println("RepackTest : " + bags + " sacs, " + changed + " réarrangés");
+	}
+
+	/**
+	 * Fill a bag at random, repack it and check it
+	 *
+	 * @return boolean true if the repack changed the bag
+	 */
+	private boolean runBag(boolean parallel) {
+		var bag = bag();
+		var before = new IdentityHashMap<Equipment, Long>();
+		for (var item : bag.items()) {
+			before.put(item, bag.footprint(item));
+		}
+		int gold = bag.getGold();
+		int score = score(bag);
+		boolean changed = bag.repack(BUDGET, parallel);
+		check("items", bag.items().size(), before.size());
+		for (Map.Entry<Equipment, Long> entry : before.entrySet()) {
+			var item = entry.getKey();
+			long mask = bag.footprint(item);
+			check("cases de " + item, Long.bitCount(mask), Long.bitCount(entry.getValue()));
+			if (item.getClass() == Curse.class) {
+				check("malédiction " + item, mask, entry.getValue());
+			}
+		}
+		check("or", bag.getGold(), gold);
+		int after = score(bag);
+		if (changed ? after <= score : after != score) {
+			throw new AssertionError("score " + after + " au lieu de " + score + (changed ? " ou plus" : ""));
+		}
+		return changed;
+	}
+
+	/**
+	 * A bag with random unlocked cells, some curses, some gold and random items
+	 */
+	private BackPack bag() {
+		var bag = new BackPack();
+		for (int i = 0; i < 40; i++) {
+			bag.unlockSlot(random.nextInt(BackPack.MAX_LINE), random.nextInt(BackPack.MAX_COL));
+		}
+		var curses = RandomCurse.values();
+		for (int i = random.nextInt(3); i > 0; i--) {
+			bag.placeCurse(curses[random.nextInt(curses.length)].createCurse(), random.nextInt(BackPack.MAX_LINE),
+					random.nextInt(BackPack.MAX_COL));
+		}
+		bag.addGold(1 + random.nextInt(20));
+		int count = 3 + random.nextInt(6);
+		for (int tries = 0; tries < 100 && bag.items().size() < count; tries++) {
+			var item = items.get(random.nextInt(items.size())).get();
+			int x = random.nextInt(BackPack.MAX_LINE);
+			int y = random.nextInt(BackPack.MAX_COL);
+			boolean rotation = random.nextBoolean();
+			if (bag.canPlace(item, x, y, rotation)) {
+				bag.place(item, x, y, rotation);
+			}
+		}
+		return bag;
+	}
+
+	/**
+	 * Gem bonus of the bag, each item counting the gems that boost it, then the
+	 * biggest free region
+	 */
+	private static int score(BackPack bag) {
+		int bonus = 0;
+		for (var item : bag.items()) {
+			for (var type : GemType.values()) {
+				if (type.boosts(item)) {
+					bonus += bag.bonus(item, type);
+				}
+			}
+		}
+		int region = 0;
+		for (long free = bag.freeCells(); free != 0;) {
+			long grown = BackPack.grow(free & -free, free);
+			region = Math.max(region, Long.bitCount(grown));
+			free &= ~grown;
+		}
+		return bonus * REGION_WEIGHT + region;
+	}
+
+	private static void check(String what, long actual, long expected) {
+		if (actual != expected) {
+			throw new AssertionError(what + " : " + actual + " au lieu de " + expected);
+		}
+	}
+}
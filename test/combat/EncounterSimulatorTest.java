@@ -0,0 +1,75 @@
+package combat;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+import dungeon.RandomArmor;
+import dungeon.RandomGear;
+import dungeon.RandomManaStone;
+import fighter.EnemyCreation;
+import fighter.Hero;
+
+/**
+ * Checks that a seed gives the same report whatever the number of threads :
+ * the same batch is played in sequence, in parallel on pools of 1, 2 and 4
+ * threads and on the common pool, the reports must be equal. The number of
+ * fights leaves the last chunk partly full.
+ *
+ * Run with {@code ant test}.
+ */
+public final class EncounterSimulatorTest {
+	private static final int FIGHTS = 10 * 1024 + 123;
+	private static final int MAX_TURNS = 30;
+	private static final long[] SEEDS = { 1, 42, -7 };
+
+	private EncounterSimulatorTest() {
+	}
+
+	public static void main(String[] args) throws InterruptedException, ExecutionException {
+		var hero = hero();
+		var sequential = new EncounterSimulator(MAX_TURNS, false);
+		var parallel = new EncounterSimulator(MAX_TURNS, true);
+		for (long seed : SEEDS) {
+			var expected = sequential.run(hero, rand -> List.of(EnemyCreation.createRandom(rand)), FIGHTS, seed);
+			if (expected.fights() != FIGHTS) {
+				throw new AssertionError("graine " + seed + " : " + expected.fights() + " combats joués");
+			}
+			same(seed, "pool commun", parallel.run(hero, rand -> List.of(EnemyCreation.createRandom(rand)), FIGHTS,
+					seed), expected);
+			for (int threads : new int[] { 1, 2, 4 }) {
+				var pool = new ForkJoinPool(threads);
+				try {
+					// un flux parallèle lancé dans un pool garde ce pool
+					var report = pool.submit(() -> parallel.run(hero,
+							rand -> List.of(EnemyCreation.createRandom(rand)), FIGHTS, seed)).get();
+					same(seed, threads + " threads", report, expected);
+				} finally {
+					pool.shutdown();
+				}
+			}
+		}
+		System.out.println("EncounterSimulatorTest : mêmes rapports pour " + SEEDS.length + " graines, "
+				+ ForkJoinPool.getCommonPoolParallelism() + " threads dans le pool commun");
+	}
+
+	/**
+	 * A hero with a weapon, a shield, an armor and a mana stone
+	 */
+	private static Hero hero() {
+		var hero = new Hero(80); // assez de PV pour gagner une partie des combats
+		var bag = hero.getBackpack();
+		bag.place(RandomGear.WOODEN_SWORD.create(), 0, 0, false);
+		bag.place(RandomGear.WOODEN_SHIELD.create(), 1, 0, false);
+		bag.place(RandomArmor.TROLL_ARMOR.create(), 1, 1, false);
+		bag.place(RandomManaStone.PEBBLE.create(), 0, 2, false);
+		return hero;
+	}
+
+	private static void same(long seed, String what, EncounterSimulator.Report actual,
+			EncounterSimulator.Report expected) {
+		if (!actual.equals(expected)) {
+			throw new AssertionError("graine " + seed + ", " + what + " : " + actual + " au lieu de " + expected);
+		}
+	}
+}
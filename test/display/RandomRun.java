@@ -0,0 +1,205 @@
+package display;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import backpack.Position;
+import backpack.object.Curse;
+import backpack.object.Equipment;
+import backpack.object.Gold;
+import backpack.object.ManaStone;
+import dungeon.Coord;
+
+/**
+ * Plays random commands on a run, as a player clicking around would : most
+ * commands fit the screen of the moment, some are refused (a cell out of the
+ * bag, a wrong enemy, a drop with nothing dragged). Used by the replay and
+ * save tests.
+ */
+final class RandomRun {
+	private static final int MAX_LINE = 5; // taille du sac plein
+	private static final int MAX_COL = 7;
+	private final Random random;
+
+	RandomRun(long seed) {
+		random = new Random(seed);
+	}
+
+	/**
+	 * Play some commands, or fewer if the run ends
+	 */
+	void play(GameData data, int commands) {
+		for (int i = 0; i < commands && !data.isGameOver() && !data.isVictory(); i++) {
+			step(data);
+		}
+	}
+
+	/**
+	 * Play until the run can be saved, at most some commands
+	 *
+	 * @return boolean true if the run can be saved
+	 */
+	boolean playUntilSavable(GameData data, int commands) {
+		for (int i = 0; i < commands && !data.canSave(); i++) {
+			if (data.isGameOver() || data.isVictory()) {
+				return false;
+			}
+			step(data);
+		}
+		return data.canSave();
+	}
+
+	private void step(GameData data) {
+		if (random.nextInt(20) == 0) { // une commande hors de propos de temps en temps
+			stray(data);
+			return;
+		}
+		if (data.isDragging()) {
+			switch (random.nextInt(5)) {
+			case 0 -> data.rotationDuringDrag();
+			case 1 -> data.autoPlace();
+			case 2 -> data.drop(null, false);
+			default -> data.drop(cell(), random.nextBoolean());
+			}
+		} else if (data.isUnlockingSlots()) {
+			switch (random.nextInt(4)) {
+			case 0 -> data.deselectSlot(cell());
+			case 1 -> data.confirmUnlock();
+			default -> data.selectSlotToUnlock(cell());
+			}
+		} else if (data.hasPendingCurse()) {
+			switch (random.nextInt(3)) {
+			case 0 -> data.refuseCurse();
+			default -> data.dragPendingCurse(cell());
+			}
+		} else if (data.inFight()) {
+			switch (random.nextInt(8)) {
+			case 0 -> data.selectEnemy(random.nextInt(data.enemies().size()));
+			case 1 -> data.meleeAttack();
+			case 2, 3 -> data.executeEnemyTurn();
+			default -> data.useItemAt(itemCell(data));
+			}
+		} else if (!data.combatRewards().isEmpty()) {
+			switch (random.nextInt(4)) {
+			case 0 -> data.leaveRewards();
+			default -> data.dragReward(random.nextInt(data.combatRewards().size() + 1), cell(), random.nextBoolean());
+			}
+		} else if (data.inMerchant()) {
+			switch (random.nextInt(4)) {
+			case 0 -> data.leaveMerchant();
+			default -> data.dragMerchantItem(random.nextInt(data.merchantSlot().size() + 1), cell(),
+					random.nextBoolean());
+			}
+		} else if (data.inHealer()) {
+			switch (random.nextInt(3)) {
+			case 0 -> data.healerHeal();
+			case 1 -> data.healerRaiseMaxHp();
+			default -> data.endHealer();
+			}
+		} else if (data.hasPendingItem() && random.nextBoolean()) {
+			if (random.nextBoolean()) {
+				data.autoPlace();
+			} else {
+				data.dragPendingItem(cell(), random.nextBoolean());
+			}
+		} else {
+			switch (random.nextInt(8)) {
+			case 0 -> data.dragFromBackpack(cell(), cell());
+			case 1 -> data.nextRoom();
+			default -> {
+				var pos = data.hero().pos();
+				data.moveHero(new Coord(pos.line() + random.nextInt(3) - 1, pos.col() + random.nextInt(3) - 1));
+			}
+			}
+		}
+	}
+
+	/**
+	 * A command that the screen of the moment doesn't offer, it must be refused
+	 * or do the same thing on the replay
+	 */
+	private void stray(GameData data) {
+		switch (random.nextInt(8)) {
+		case 0 -> data.drop(cell(), random.nextBoolean());
+		case 1 -> data.meleeAttack();
+		case 2 -> data.executeEnemyTurn();
+		case 3 -> data.dragReward(random.nextInt(3) - 1, cell(), false);
+		case 4 -> data.buyDraggedItem(cell());
+		case 5 -> data.discardItem(cell());
+		case 6 -> {
+			try {
+				data.selectEnemy(random.nextInt(4) - 1);
+			} catch (IllegalArgumentException e) {
+				// refusé sans être écrit
+			}
+		}
+		default -> data.useItemAt(cell());
+		}
+	}
+
+	/**
+	 * A cell of an item of the bag, or any cell if the bag is empty
+	 */
+	private Position itemCell(GameData data) {
+		var items = data.backpack().items();
+		if (items.isEmpty()) {
+			return cell();
+		}
+		var cells = data.backpack().getPos(items.get(random.nextInt(items.size())));
+		return cells.get(random.nextInt(cells.size()));
+	}
+
+	private Position cell() {
+		return new Position(random.nextInt(MAX_LINE), random.nextInt(MAX_COL));
+	}
+
+	/**
+	 * Everything a player can see of a run, and the draws of its random streams
+	 */
+	static String fingerprint(GameData data) {
+		var text = new StringBuilder();
+		text.append(data.seed()).append(' ').append(Arrays.toString(data.draws())).append('\n');
+		text.append(data.hero().stats()).append(' ').append(data.hero().pos()).append('\n');
+		text.append("étage ").append(data.dungeon().fluent()).append(' ').append(data.currentRoom());
+		for (int i = 0; i <= data.dungeon().fluent(); i++) {
+			text.append(' ').append(Arrays.toString(data.dungeon().floor(i).visitedRooms()))
+					.append(Arrays.toString(data.dungeon().floor(i).completedRooms()));
+		}
+		text.append('\n').append(data.inFight()).append(data.inHealer()).append(data.inMerchant())
+				.append(data.isGameOver()).append(data.isVictory()).append(data.isDragging())
+				.append(data.isUnlockingSlots()).append('\n');
+		var bag = data.backpack();
+		text.append(Long.toHexString(bag.unlockedMask())).append(" or ").append(bag.getGold()).append('\n');
+		for (var item : bag.items()) {
+			text.append(Long.toHexString(bag.footprint(item))).append(bag.getRotation(item) ? " tourné " : " ")
+					.append(describe(item)).append('\n');
+		}
+		text.append("attente ").append(describe(data.pendingItem())).append(' ').append(describe(data.pendingCurse()))
+				.append(' ').append(data.curseRefusalCount()).append('\n');
+		data.merchantSlot().forEach(item -> text.append("marchand ").append(describe(item)).append('\n'));
+		data.combatRewards().forEach(item -> text.append("récompense ").append(describe(item)).append('\n'));
+		if (data.isDragging()) { // la rotation d'origine ne compte que pendant un déplacement
+			text.append("déplacé ").append(describe(data.draggingItem())).append(' ').append(data.originalRotation())
+					.append('\n');
+		}
+		text.append(data.slotsToUnlock()).append(' ').append(data.selectedSlots()).append('\n');
+		for (var enemy : data.enemies()) {
+			text.append(enemy.enemyInfo().name()).append(' ').append(enemy.getCurrentHp()).append('\n');
+		}
+		text.append("cible ").append(data.selectedEnemyIndex());
+		return text.toString();
+	}
+
+	/**
+	 * Text of an item by value, the classes without record keep a mutable state
+	 */
+	static String describe(Equipment item) {
+		return switch (item) {
+		case null -> "rien";
+		case Curse curse -> "Curse " + curse.name() + " " + curse.malusType() + " " + curse.malus();
+		case Gold gold -> "Gold " + gold.amount();
+		case ManaStone stone -> "ManaStone " + stone.name() + " " + stone.getManaFight() + "/" + stone.manaBasic();
+		default -> item.toString();
+		};
+	}
+}
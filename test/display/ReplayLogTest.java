@@ -0,0 +1,97 @@
+package display;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import dungeon.GameTables;
+
+/**
+ * Plays random commands on seeded runs while they are recorded, replays each
+ * log from its seed and checks that the replay ends in the same state. A log
+ * cut inside its last record, or anywhere after its header, replays the
+ * commands before the cut.
+ *
+ * Run with {@code ant test}, or give the first seed and the number of runs :
+ * {@code java display.ReplayLogTest 1 300}.
+ */
+public final class ReplayLogTest {
+	private static final int COMMANDS = 400;
+
+	private ReplayLogTest() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		long first = args.length > 0 ? Long.parseLong(args[0]) : 1;
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+		var tables = GameTables.standard();
+		var file = Files.createTempFile("replay", ".bhrp");
+		long commands = 0;
+		try {
+			for (long seed = first; seed < first + runs; seed++) {
+				try {
+					commands += check(seed, tables, file);
+				} catch (AssertionError e) {
+					throw new AssertionError("graine " + seed + " : " + e.getMessage(), e);
+				}
+			}
+		} finally {
+			Files.deleteIfExists(file);
+		}
+		System.out.println("ReplayLogTest : " + runs + " parties, " + commands + " commandes rejouées");
+	}
+
+	/**
+	 * Record a random run, replay it whole and cut
+	 *
+	 * @return int number of commands in the log
+	 */
+	private static int check(long seed, GameTables tables, Path file) throws IOException {
+		var data = new GameData(seed, tables);
+		try (var writer = ReplayLog.Writer.create(file, seed)) {
+			data.recordTo(writer);
+			new RandomRun(seed).play(data, COMMANDS);
+		}
+		var expected = RandomRun.fingerprint(data);
+		var replayed = ReplayLog.replay(file, tables, Integer.MAX_VALUE);
+		same("rejeu", RandomRun.fingerprint(replayed), expected);
+
+		var log = Files.readAllBytes(file);
+		int count = ReplayLog.replay(log, new GameData(seed, tables), Integer.MAX_VALUE);
+		if (count == 0) {
+			return 0;
+		}
+		// le dernier enregistrement coupé par un arrêt brutal est ignoré
+		Files.write(file, Arrays.copyOf(log, log.length - 1));
+		var cut = ReplayLog.replay(file, tables, Integer.MAX_VALUE);
+		same("journal coupé", RandomRun.fingerprint(cut), upTo(log, seed, tables, count - 1));
+
+		// une coupure n'importe où rejoue les commandes entières avant elle
+		int header = 4 + 1 + 8;
+		int length = header + new Random(seed).nextInt(log.length - header);
+		var partial = new GameData(seed, tables);
+		int applied = ReplayLog.replay(Arrays.copyOf(log, length), partial, Integer.MAX_VALUE);
+		if (applied >= count) {
+			throw new AssertionError(applied + " commandes rejouées sur " + count + " après une coupure");
+		}
+		same("journal coupé à " + length, RandomRun.fingerprint(partial), upTo(log, seed, tables, applied));
+		return count;
+	}
+
+	/**
+	 * State after the first commands of a whole log
+	 */
+	private static String upTo(byte[] log, long seed, GameTables tables, int commands) {
+		var data = new GameData(seed, tables);
+		ReplayLog.replay(log, data, commands);
+		return RandomRun.fingerprint(data);
+	}
+
+	private static void same(String what, String actual, String expected) {
+		if (!actual.equals(expected)) {
+			throw new AssertionError(what + " :\n" + actual + "\nau lieu de\n" + expected);
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package display;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import backpack.PlacementObjective;
+import backpack.object.ManaStone;
+import dungeon.GameTables;
+import dungeon.RandomCurse;
+import dungeon.RandomManaStone;
+
+/**
+ * Saves seeded runs in the middle of their play, with a partly used mana
+ * stone in the bag and a curse waiting, loads each save and checks that the
+ * loaded run is the same and goes on the same way : the same commands after
+ * the load draw the same random values and end in the same state.
+ *
+ * Run with {@code ant test}, or give the first seed and the number of runs :
+ * {@code java display.SaveGameTest 1 300}.
+ */
+public final class SaveGameTest {
+	private static final int BEFORE = 10;
+	private static final int AFTER = 200;
+
+	private SaveGameTest() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		long first = args.length > 0 ? Long.parseLong(args[0]) : 1;
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+		var tables = GameTables.standard();
+		var file = Files.createTempFile("save", ".bhsv");
+		int saved = 0;
+		try {
+			for (long seed = first; seed < first + runs; seed++) {
+				try {
+					saved += check(seed, tables, new SaveGame(file)) ? 1 : 0;
+				} catch (AssertionError e) {
+					throw new AssertionError("graine " + seed + " : " + e.getMessage(), e);
+				}
+			}
+		} finally {
+			Files.deleteIfExists(file);
+			Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".tmp"));
+		}
+		if (saved < runs / 2) {
+			throw new AssertionError("seulement " + saved + " parties sauvegardées sur " + runs);
+		}
+		System.out.println("SaveGameTest : " + saved + " sauvegardes rechargées sur " + runs + " parties");
+	}
+
+	/**
+	 * Play a run, save it, load it and play on both
+	 *
+	 * @return boolean false if the run ended before it could be saved
+	 */
+	private static boolean check(long seed, GameTables tables, SaveGame save) throws IOException {
+		var data = new GameData(seed, tables);
+		var run = new RandomRun(seed);
+		run.play(data, BEFORE);
+		if (!run.playUntilSavable(data, AFTER)) {
+			return false;
+		}
+		var stone = (ManaStone) RandomManaStone.CHARGED_STONE.create();
+		var spot = data.backpack().bestPlacement(stone, PlacementObjective.DEFAULT);
+		if (spot != null) {
+			data.backpack().place(stone, spot.line(), spot.col(), spot.rotation());
+			stone.rechargeMana();
+			stone.useMana(1); // ni neuve ni vide
+		}
+		if (!data.hasPendingCurse()) {
+			data.setPendingCurse(RandomCurse.DAMAGE_BAR.createCurse());
+		}
+
+		save.write(data);
+		var loaded = SaveGame.read(save.file(), tables);
+		same("chargement", RandomRun.fingerprint(loaded), RandomRun.fingerprint(data));
+		if (spot != null && !RandomRun.fingerprint(loaded).contains(RandomRun.describe(stone))) {
+			throw new AssertionError("pierre de mana entamée perdue");
+		}
+
+		// les mêmes commandes après le chargement tirent les mêmes valeurs
+		var draws = data.draws();
+		new RandomRun(~seed).play(data, AFTER);
+		new RandomRun(~seed).play(loaded, AFTER);
+		same("après le chargement", RandomRun.fingerprint(loaded), RandomRun.fingerprint(data));
+		if (Arrays.equals(draws, data.draws()) && !data.isGameOver()) {
+			throw new AssertionError("aucun tirage après le chargement");
+		}
+		return true;
+	}
+
+	private static void same(String what, String actual, String expected) {
+		if (!actual.equals(expected)) {
+			throw new AssertionError(what + " :\n" + actual + "\nau lieu de\n" + expected);
+		}
+	}
+}